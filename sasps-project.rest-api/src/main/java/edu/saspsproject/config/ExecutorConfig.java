@@ -0,0 +1,62 @@
+package edu.saspsproject.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Bounded pool for CPU-bound availability computation, kept apart from the common pool
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool availabilityPool(@Value("${app.availability.parallelism:0}") int parallelism) {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(size);
+    }
+
+    // Announcement jobs run one after another, the job rows are the real queue
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor announcementExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "announcement");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Bounds the emails of an announcement page sent at the same time
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService announcementMailExecutor(@Value("${app.announcement.mail-parallelism:8}") int parallelism) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "announcement-mail-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Few workers and a short queue: exports are heavy, extra requests are rejected rather than piled up
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor exportExecutor(@Value("${app.export.workers:2}") int workers,
+                                             @Value("${app.export.queue-capacity:20}") int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,70 @@
+package edu.saspsproject.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the id sequences past the ids already present in their tables. Rows inserted while the
+ * entities used identity columns do not advance the sequences, so without this the first pooled
+ * allocation after the switch would hand out ids that are already taken. Runs once Hibernate
+ * has updated the schema and before the web server accepts requests.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer {
+
+    // Sequence name -> table, must match the @SequenceGenerator of each entity
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "announcement_jobs_seq", "announcement_jobs",
+            "appointments_seq", "appointments",
+            "county_seq", "county",
+            "daily_appointment_stats_seq", "daily_appointment_stats",
+            "institutions_seq", "institutions",
+            "notifications_seq", "notifications",
+            "outbox_events_seq", "outbox_events",
+            "public_service_seq", "public_service",
+            "users_seq", "users",
+            "user_appointment_map_seq", "user_appointment_map"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((sequence, table) -> {
+            Map<String, Object> state = jdbcTemplate.queryForMap(
+                    "select m.max_id, s.start_value, s.last_value, s.increment_by "
+                            + "from (select max(id) as max_id from " + table + ") m, pg_sequences s "
+                            + "where s.schemaname = current_schema() and s.sequencename = ?",
+                    sequence);
+            if (state.get("max_id") == null) {
+                return;
+            }
+            long maxId = ((Number) state.get("max_id")).longValue();
+            long increment = ((Number) state.get("increment_by")).longValue();
+            long next = state.get("last_value") == null
+                    ? ((Number) state.get("start_value")).longValue()
+                    : ((Number) state.get("last_value")).longValue() + increment;
+            if (next > maxId) {
+                return;
+            }
+            // Advances with nextval rather than setval: with pooled ids every value handed out reserves
+            // the block above it for the instance that got it, and setval could move the sequence back
+            // into a block another instance is still using. Concurrent callers only move it further.
+            long calls = (maxId - next) / increment + 1;
+            jdbcTemplate.queryForObject(
+                    "select max(nextval('" + sequence + "')) from generate_series(1, ?)", Long.class, calls);
+            log.info("Advanced sequence {} past the existing {} rows", sequence, table);
+        });
+    }
+}
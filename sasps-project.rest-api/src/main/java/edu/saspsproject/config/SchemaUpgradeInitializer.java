@@ -0,0 +1,93 @@
+package edu.saspsproject.config;
+
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.model.OutboxEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Schema changes that ddl-auto=update does not make on an existing database. Hibernate guards
+ * every @Enumerated(STRING) column with a CHECK constraint listing the values known when the
+ * table was created, and never updates it, so values added later would be rejected on insert.
+ * Columns added to existing tables start out NULL and are backfilled here. Runs once Hibernate has updated the schema and before the web server accepts requests.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaUpgradeInitializer {
+
+    private record EnumColumn(String table, String column, Class<? extends Enum<?>> type) {
+    }
+
+    // Enum columns that gained values after their table was first created
+    private static final List<EnumColumn> ENUM_COLUMNS = List.of(
+            new EnumColumn("notifications", "notification_type", Notification.NotificationType.class),
+            new EnumColumn("notifications", "status", Notification.NotificationStatus.class),
+            new EnumColumn("outbox_events", "status", OutboxEvent.Status.class)
+    );
+
+    // The first outbox marked failed events FAILED, that status is gone: they are dispatched
+    // again and set aside once they run out of attempts
+    private static final String REQUEUE_FAILED_OUTBOX_EVENTS =
+            "update outbox_events set status = 'PENDING' where status = 'FAILED'";
+
+    // Bookings made before active_slot existed: one per slot is marked, so the unique constraint
+    // covers them too. A slot already double-booked keeps its oldest booking active
+    private static final String BACKFILL_ACTIVE_SLOT =
+            "update appointments a set active_slot = true " +
+            "where a.status <> 'CANCELLED' and a.active_slot is null " +
+            "and not exists (select 1 from appointments b " +
+            "where b.institution_id = a.institution_id and b.appointment_time = a.appointment_time " +
+            "and b.status <> 'CANCELLED' and (b.active_slot or (b.active_slot is null and b.id < a.id)))";
+
+    private static final String COUNT_UNMARKED_ACTIVE =
+            "select count(*) from appointments where status <> 'CANCELLED' and active_slot is null";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaUpgradeInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void upgradeSchema() {
+        // Before the check is rewritten without FAILED
+        jdbcTemplate.update(REQUEUE_FAILED_OUTBOX_EVENTS);
+        ENUM_COLUMNS.forEach(this::widenEnumCheck);
+        backfillActiveSlots();
+    }
+
+    private void backfillActiveSlots() {
+        int marked = jdbcTemplate.update(BACKFILL_ACTIVE_SLOT);
+        if (marked > 0) {
+            log.info("Marked {} existing appointments as holding their slot", marked);
+        }
+        Long duplicates = jdbcTemplate.queryForObject(COUNT_UNMARKED_ACTIVE, Long.class);
+        if (duplicates != null && duplicates > 0) {
+            log.warn("{} appointments share their slot with an earlier active booking and were left unmarked", duplicates);
+        }
+    }
+
+    // Recreates the column's check with every current value, only when some are missing
+    private void widenEnumCheck(EnumColumn enumColumn) {
+        String constraint = enumColumn.table() + "_" + enumColumn.column() + "_check";
+        List<String> definitions = jdbcTemplate.queryForList(
+                "select pg_get_constraintdef(oid) from pg_constraint where conrelid = to_regclass(?) and conname = ?",
+                String.class, enumColumn.table(), constraint);
+        List<String> values = Arrays.stream(enumColumn.type().getEnumConstants()).map(Enum::name).toList();
+        if (definitions.isEmpty() || values.stream().allMatch(value -> definitions.get(0).contains("'" + value + "'"))) {
+            return;
+        }
+        String allowed = values.stream().map(value -> "'" + value + "'").collect(Collectors.joining(", "));
+        jdbcTemplate.execute("alter table " + enumColumn.table() + " drop constraint " + constraint
+                + ", add constraint " + constraint + " check (" + enumColumn.column() + " in (" + allowed + "))");
+        log.info("Updated {} to allow {}", constraint, values);
+    }
+}
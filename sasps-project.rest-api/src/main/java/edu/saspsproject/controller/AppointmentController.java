@@ -1,25 +1,46 @@
 package edu.saspsproject.controller;
 
+import edu.saspsproject.dto.response.CompactAvailabilityResponse;
 import edu.saspsproject.dto.response.CountyResponse;
-import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.dto.response.DailyStatsResponse;
+import edu.saspsproject.dto.response.EarliestSlotResponse;
+import edu.saspsproject.dto.request.AppointmentExportFilter;
 import edu.saspsproject.dto.request.AppointmentRequest;
+import edu.saspsproject.dto.request.AppointmentSearchCriteria;
+import edu.saspsproject.dto.request.ExportJobRequest;
+import edu.saspsproject.dto.response.ExportJobResponse;
+import edu.saspsproject.dto.request.SlotHoldRequest;
+import edu.saspsproject.dto.response.SlotHoldResponse;
 import edu.saspsproject.dto.response.AvailabilityResponse;
+import edu.saspsproject.repository.KeysetCursor;
+import edu.saspsproject.repository.KeysetPage;
+import edu.saspsproject.service.AppointmentExportService;
 import edu.saspsproject.service.AppointmentService;
+import edu.saspsproject.service.DailyStatsRollupService;
+import edu.saspsproject.service.ExportJob;
+import edu.saspsproject.service.ExportJobService;
+import edu.saspsproject.service.SlotConflictException;
 import edu.saspsproject.model.Appointment;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RequestMapping("/api/appointment")
@@ -28,7 +49,12 @@ import java.util.Map;
 public class AppointmentController {
 
     private final AppointmentService appointmentService;
-    private final AppointmentRepository repo;
+    private final AppointmentExportService appointmentExportService;
+    private final ExportJobService exportJobService;
+    private final DailyStatsRollupService dailyStatsRollupService;
+
+    // Largest page of the delta export
+    private static final int MAX_DELTA_EXPORT_ROWS = 1_000_000;
 
     @PostMapping()
     public ResponseEntity<Long> saveAppointment(@RequestBody AppointmentRequest appointmentRequest) {
@@ -36,15 +62,52 @@ public class AppointmentController {
             Long appointmentId = appointmentService.saveAppointment(appointmentRequest);
             log.info("Created appointment with ID: {}", appointmentId);
             return ResponseEntity.ok(appointmentId);
+        } catch (SlotConflictException e) {
+            log.warn("Slot conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IllegalArgumentException | IllegalStateException e) {
             log.error("Error creating appointment: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
         }
     }
 
+    // Hold a slot for a short time while the booking form is filled in
+    @PostMapping("/hold")
+    public ResponseEntity<SlotHoldResponse> holdSlot(@RequestBody SlotHoldRequest holdRequest) {
+        try {
+            SlotHoldResponse hold = appointmentService.holdSlot(holdRequest);
+            log.info("Held slot {} of institution {} until {}", hold.appointmentTime(), hold.institutionId(), hold.expiresAt());
+            return ResponseEntity.ok(hold);
+        } catch (SlotConflictException e) {
+            log.warn("Slot conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            log.error("Error holding slot: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/hold/{holdToken}")
+    public ResponseEntity<Void> releaseHold(@PathVariable String holdToken) {
+        appointmentService.releaseHold(holdToken);
+        return ResponseEntity.noContent().build();
+    }
+
+    // The flat slot list stays the default, the compact formats are returned only when explicitly accepted
     @GetMapping("/availability")
-    public ResponseEntity<AvailabilityResponse> getAvailability(@RequestParam Long institutionId, @RequestParam @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate) {
+    public ResponseEntity<?> getAvailability(@RequestParam Long institutionId,
+                                             @RequestParam @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
+            MediaType compactType = compactAvailabilityType(accept);
+            if (compactType != null) {
+                CompactAvailabilityResponse availability = appointmentService.getCompactAvailability(institutionId, Optional.ofNullable(startDate));
+                Object body = compactType.isCompatibleWith(MediaType.valueOf(CompactAvailabilityResponse.BINARY_MEDIA_TYPE))
+                        ? availability.toBinary()
+                        : availability;
+                return ResponseEntity.ok().contentType(compactType).body(body);
+            }
+
             AvailabilityResponse availability = appointmentService.getAvailability(institutionId, Optional.ofNullable(startDate));
             log.info("Retrieved {} available slots for institution {}",
                     availability.getAvailableSlots().size(), institutionId);
@@ -55,6 +118,61 @@ public class AppointmentController {
         }
     }
 
+    private MediaType compactAvailabilityType(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.isWildcardType() || mediaType.isWildcardSubtype()) {
+                continue;
+            }
+            String type = mediaType.getType() + "/" + mediaType.getSubtype();
+            if (type.equals(CompactAvailabilityResponse.BINARY_MEDIA_TYPE) || type.equals(CompactAvailabilityResponse.JSON_MEDIA_TYPE)) {
+                return MediaType.valueOf(type);
+            }
+            if (MediaType.APPLICATION_JSON.includes(mediaType)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @GetMapping("/availability/county/{countyId}")
+    public ResponseEntity<List<AvailabilityResponse>> getCountyAvailability(@PathVariable Long countyId,
+                                                                            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate,
+                                                                            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate endDate) {
+        try {
+            var availability = appointmentService.getCountyAvailability(countyId, Optional.ofNullable(startDate), Optional.ofNullable(endDate));
+            log.info("Retrieved availability for {} institutions in county {}", availability.size(), countyId);
+            return ResponseEntity.ok(availability);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid county availability request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error getting county availability: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/availability/earliest")
+    public ResponseEntity<List<EarliestSlotResponse>> getEarliestSlots(@RequestParam String institutionType,
+                                                                       @RequestParam(required = false) Long countyId,
+                                                                       @RequestParam(defaultValue = "10") int limit) {
+        try {
+            var slots = appointmentService.findEarliestSlots(institutionType, Optional.ofNullable(countyId), limit);
+            log.info("Found {} earliest {} slots (county {})", slots.size(), institutionType, countyId);
+            return ResponseEntity.ok(slots);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid earliest slot search: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error searching earliest slots: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/customer/{email}")
     public ResponseEntity<?> getCustomerAppointments(@PathVariable String email) {
         try {
@@ -89,12 +207,17 @@ public class AppointmentController {
 
 
 
+    // One page in id order, the cursor of the next page is returned in X-Next-Cursor
     @GetMapping("/all")
-    public ResponseEntity<?> getAllAppointments() {
+    public ResponseEntity<?> getAllAppointments(@RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
         try {
-            var appointments = appointmentService.getAllAppointments();
-            log.info("Retrieved {} total appointments", appointments.size());
-            return ResponseEntity.ok(appointments);
+            KeysetPage<Appointment> page = appointmentService.getAllAppointments(cursor, size);
+            log.info("Retrieved {} appointments", page.items().size());
+            return ResponseEntity.ok().headers(KeysetPageHeaders.of(page)).body(page.items());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid appointment listing request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error getting all appointments: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -117,6 +240,53 @@ public class AppointmentController {
         }
     }
 
+    // Per-day counts from the daily rollup, for trend charts over long ranges
+    @GetMapping("/stats/daily")
+    public ResponseEntity<DailyStatsResponse> getDailyStats(
+            @RequestParam(required = false) Long institutionId,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(dailyStatsRollupService.getDailyStats(
+                    institutionId, Optional.ofNullable(startDate), Optional.ofNullable(endDate)));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid daily stats request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error getting daily stats: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Any combination of filters in one query, paged like /all with the cursor returned in X-Next-Cursor
+    @GetMapping("/search")
+    public ResponseEntity<?> searchAppointments(
+            @RequestParam(required = false) Long institutionId,
+            @RequestParam(required = false) Long countyId,
+            @RequestParam(required = false) Appointment.Status status,
+            @RequestParam(required = false) Appointment.ServiceType serviceType,
+            @RequestParam(required = false) Appointment.PriorityLevel priority,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate endDate,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        try {
+            AppointmentSearchCriteria criteria = new AppointmentSearchCriteria(
+                    institutionId, countyId, status, serviceType, priority, startDate, endDate, userId);
+            KeysetPage<Appointment> page = appointmentService.searchAppointments(criteria, email, cursor, size);
+            log.info("Search returned {} appointments", page.items().size());
+            return ResponseEntity.ok().headers(KeysetPageHeaders.of(page)).body(page.items());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid appointment search: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error searching appointments: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/by-date")
     public ResponseEntity<?> getAppointmentsByDate(@RequestParam String date) {
         try {
@@ -191,188 +361,154 @@ public class AppointmentController {
         }
     }
 
-    // BASELINE PROBLEM: Export appointments to CSV - NO separation of concerns
+    // Streams the CSV while it is read from the database, gzip-encoded when the client accepts it
     @GetMapping("/export/csv")
-    public ResponseEntity<byte[]> exportAppointmentsToCSV() {
+    public ResponseEntity<StreamingResponseBody> exportAppointmentsToCSV(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate endDate,
+            @RequestParam(required = false) Long institutionId,
+            @RequestParam(required = false) Appointment.Status status,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        AppointmentExportFilter filter = new AppointmentExportFilter(startDate, endDate, institutionId, status);
         try {
-            List<Appointment> appointments = repo.findAll();
-            
-            // CSV generation hardcoded in controller - poor design
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            PrintWriter writer = new PrintWriter(outputStream);
-            
-            // Write header
-            writer.println("ID,Title,Institution,Service Type,Date Time,Status,Priority Level,Duration");
-            
-            // Write data - duplicated logic from multiple places
-            for (Appointment app : appointments) {
-                writer.printf("%d,%s,%s,%s,%s,%s,%s,%s%n",
-                    app.getId(),
-                    app.getTitle(),
-                    app.getInstitution().getName(),
-                    app.getServiceType(),
-                    app.getAppointmentTime(),
-                    app.getStatus(),
-                    app.getPriorityLevel(),
-                    app.getEstimatedDuration()
-                );
+            filter.validate();
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid export filter: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024, true) : outputStream;
+            long exported = appointmentExportService.writeCsv(filter, target);
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
             }
-            
-            writer.flush();
-            byte[] csvData = outputStream.toByteArray();
-            
-            // Also send email notification - tight coupling
-            sendEmailNotification("admin@test.com", "CSV Export", "Exported " + appointments.size() + " appointments");
-            
-            log.info("Exported {} appointments to CSV", appointments.size());
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.valueOf("text/csv"));
-            headers.setContentDispositionFormData("attachment", "appointments.csv");
-            
-            return ResponseEntity.ok().headers(headers).body(csvData);
-        } catch (Exception e) {
-            log.error("Error exporting appointments: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            log.info("Exported {} appointments to CSV", exported);
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("text/csv"));
+        headers.setContentDispositionFormData("attachment", "appointments.csv");
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
         }
+        return ResponseEntity.ok().headers(headers).body(body);
     }
 
-    // Email notification hardcoded in controller - tight coupling
-    private void sendEmailNotification(String to, String subject, String message) {
+    // Appointments created or changed since the cursor of the previous call, oldest change first.
+    // The cursor to pass next time is returned in X-Next-Cursor, X-Has-More tells whether to call again right away
+    @GetMapping("/export/csv/delta")
+    public ResponseEntity<StreamingResponseBody> exportChangedAppointmentsToCSV(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100000") int limit) {
+        AppointmentExportService.DeltaPage page;
         try {
-            // Hardcoded email sending, no interface, no abstraction
-            log.info("Sending email to {} - Subject: {} - Message: {}", to, subject, message);
-            
-            // In real world, this would be hardcoded SMTP logic here too
-            // Demonstrates tight coupling and code duplication
-            
-            // Simulate sending (in real app, would be SMTP client directly here)
-            if (!to.contains("@")) {
-                throw new RuntimeException("Invalid email");
+            if (limit < 1 || limit > MAX_DELTA_EXPORT_ROWS) {
+                throw new IllegalArgumentException("Limit must be between 1 and " + MAX_DELTA_EXPORT_ROWS);
             }
-            log.info("Email sent successfully to {}", to);
-        } catch (Exception e) {
-            log.error("Error sending email: {}", e.getMessage());
-            // Silently fail - poor error handling
+            page = appointmentExportService.planDelta(KeysetCursor.decode(cursor), limit);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid delta export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         }
+
+        StreamingResponseBody body = outputStream -> {
+            long exported = appointmentExportService.writeDeltaCsv(page, outputStream);
+            log.info("Exported {} changed appointments to CSV", exported);
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("text/csv"));
+        headers.setContentDispositionFormData("attachment", "appointments-delta.csv");
+        headers.add("X-Next-Cursor", page.nextCursor().encode());
+        headers.add("X-Has-More", String.valueOf(page.hasMore()));
+        return ResponseEntity.ok().headers(headers).body(body);
     }
 
-    // Email notification hardcoded in controller - tight coupling
-    // PDF Export - duplicate logic similar to CSV export
-    // Hardcoded PDF generation directly in controller - no separation of concerns
+    // PDF report of the filtered appointments, written to the response as it is saved
     @GetMapping("/export/pdf")
-    public ResponseEntity<byte[]> exportAppointmentsToPDF() {
+    public ResponseEntity<StreamingResponseBody> exportAppointmentsToPDF(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "ddMMyyyy") LocalDate endDate,
+            @RequestParam(required = false) Long institutionId,
+            @RequestParam(required = false) Appointment.Status status) {
+        AppointmentExportFilter filter = new AppointmentExportFilter(startDate, endDate, institutionId, status);
         try {
-            List<Appointment> appointments = repo.findAll();
-            
-            // Hardcoded PDF generation using PDFBox - all logic in controller
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
-            // Create PDF document - hardcoded page setup
-            org.apache.pdfbox.pdmodel.PDDocument document = new org.apache.pdfbox.pdmodel.PDDocument();
-            org.apache.pdfbox.pdmodel.PDPage page = new org.apache.pdfbox.pdmodel.PDPage();
-            document.addPage(page);
-            
-            // Hardcoded content stream
-            org.apache.pdfbox.pdmodel.PDPageContentStream contentStream = 
-                new org.apache.pdfbox.pdmodel.PDPageContentStream(document, page);
-            
-            // Hardcoded font and position
-            contentStream.setFont(org.apache.pdfbox.pdmodel.font.PDType1Font.HELVETICA_BOLD, 16);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(50, 750);
-            contentStream.showText("Appointments Report");
-            contentStream.endText();
-            
-            // Hardcoded subtitle
-            contentStream.setFont(org.apache.pdfbox.pdmodel.font.PDType1Font.HELVETICA, 10);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(50, 730);
-            contentStream.showText("Generated: " + java.time.LocalDateTime.now().toString());
-            contentStream.endText();
-            
-            contentStream.beginText();
-            contentStream.newLineAtOffset(50, 715);
-            contentStream.showText("Total appointments: " + appointments.size());
-            contentStream.endText();
-            
-            // Hardcoded table header
-            float yPosition = 690;
-            contentStream.setFont(org.apache.pdfbox.pdmodel.font.PDType1Font.HELVETICA_BOLD, 9);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(50, yPosition);
-            contentStream.showText("ID");
-            contentStream.newLineAtOffset(30, 0);
-            contentStream.showText("Title");
-            contentStream.newLineAtOffset(120, 0);
-            contentStream.showText("Institution");
-            contentStream.newLineAtOffset(100, 0);
-            contentStream.showText("Date");
-            contentStream.newLineAtOffset(80, 0);
-            contentStream.showText("Status");
-            contentStream.endText();
-            
-            // Hardcoded line separator
-            yPosition -= 15;
-            contentStream.moveTo(50, yPosition);
-            contentStream.lineTo(550, yPosition);
-            contentStream.stroke();
-            
-            // Hardcoded data rows - manual loop without abstraction
-            yPosition -= 15;
-            contentStream.setFont(org.apache.pdfbox.pdmodel.font.PDType1Font.HELVETICA, 8);
-            
-            for (Appointment app : appointments) {
-                if (yPosition < 50) {
-                    // Hardcoded page break logic
-                    contentStream.close();
-                    page = new org.apache.pdfbox.pdmodel.PDPage();
-                    document.addPage(page);
-                    contentStream = new org.apache.pdfbox.pdmodel.PDPageContentStream(document, page);
-                    contentStream.setFont(org.apache.pdfbox.pdmodel.font.PDType1Font.HELVETICA, 8);
-                    yPosition = 750;
-                }
-                
-                contentStream.beginText();
-                contentStream.newLineAtOffset(50, yPosition);
-                contentStream.showText(String.valueOf(app.getId()));
-                contentStream.newLineAtOffset(30, 0);
-                String title = app.getTitle().length() > 15 ? app.getTitle().substring(0, 15) + "..." : app.getTitle();
-                contentStream.showText(title);
-                contentStream.newLineAtOffset(120, 0);
-                String inst = app.getInstitution().getName().length() > 12 ? app.getInstitution().getName().substring(0, 12) + "..." : app.getInstitution().getName();
-                contentStream.showText(inst);
-                contentStream.newLineAtOffset(100, 0);
-                contentStream.showText(app.getAppointmentTime().toString().substring(0, 16));
-                contentStream.newLineAtOffset(80, 0);
-                contentStream.showText(app.getStatus().toString());
-                contentStream.endText();
-                
-                yPosition -= 12;
-            }
-            
-            contentStream.close();
-            document.save(outputStream);
-            document.close();
-            
-            byte[] pdfData = outputStream.toByteArray();
-            
-            // Hardcoded email notification - tight coupling
-            sendEmailNotification("admin@test.com", "PDF Export", "Exported " + appointments.size() + " appointments to PDF");
-            
-            log.info("Exported {} appointments to PDF", appointments.size());
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "appointments.pdf");
-            
-            return ResponseEntity.ok().headers(headers).body(pdfData);
-        } catch (Exception e) {
-            log.error("Error exporting appointments to PDF: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            filter.validate();
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid report filter: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         }
+
+        StreamingResponseBody body = outputStream -> {
+            long exported = appointmentExportService.writePdf(filter, outputStream);
+            log.info("Exported {} appointments to PDF", exported);
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "appointments.pdf");
+        return ResponseEntity.ok().headers(headers).body(body);
     }
     
+    // Starts a background export, or returns the one already producing the same result
+    @PostMapping("/export/jobs")
+    public ResponseEntity<ExportJobResponse> createExportJob(@RequestBody ExportJobRequest exportJobRequest) {
+        try {
+            ExportJob.Format format = ExportJob.Format.valueOf(
+                    String.valueOf(exportJobRequest.getFormat()).toUpperCase(Locale.ROOT));
+            Appointment.Status status = exportJobRequest.getStatus() != null
+                    ? Appointment.Status.valueOf(exportJobRequest.getStatus().toUpperCase(Locale.ROOT))
+                    : null;
+            AppointmentExportFilter filter = new AppointmentExportFilter(exportJobRequest.getStartDate(),
+                    exportJobRequest.getEndDate(), exportJobRequest.getInstitutionId(), status);
+
+            ExportJob job = exportJobService.submit(format, filter, exportJobRequest.getNotifyEmail());
+            log.info("Export job {} is {}", job.getId(), job.getStatus());
+            return ResponseEntity.accepted().body(toExportJobResponse(job));
+        } catch (IllegalStateException e) {
+            log.warn("Export rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/export/jobs/{jobId}")
+    public ResponseEntity<ExportJobResponse> getExportJob(@PathVariable String jobId) {
+        return exportJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(toExportJobResponse(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Byte ranges are served by Spring for Resource bodies, so interrupted downloads can resume
+    @GetMapping("/export/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadExport(@PathVariable String jobId) {
+        Optional<ExportJob> job = exportJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getStatus() != ExportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf(job.get().getFormat().contentType()));
+        headers.setContentDispositionFormData("attachment", job.get().fileName());
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(job.get().getFile()));
+    }
+
+    private ExportJobResponse toExportJobResponse(ExportJob job) {
+        String downloadUrl = job.getStatus() == ExportJob.Status.COMPLETED
+                ? "/api/appointment/export/jobs/" + job.getId() + "/download"
+                : null;
+        return new ExportJobResponse(job.getId(), job.getFormat().name(), job.getStatus().name(), job.getRowCount(),
+                job.getCreatedAt(), job.getCompletedAt(), job.getError(), downloadUrl);
+    }
+
     // Helper method to escape HTML special characters
     private String escapeHtml(String text) {
         if (text == null) return "";
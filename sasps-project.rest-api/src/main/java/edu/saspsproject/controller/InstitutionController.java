@@ -5,6 +5,7 @@ import edu.saspsproject.model.Institution;
 import edu.saspsproject.repository.InstitutionRepository;
 import edu.saspsproject.service.InstitutionDataLoader;
 import edu.saspsproject.service.InstitutionService;
+import edu.saspsproject.service.SlotOccupancyIndex;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,11 +17,13 @@ public class InstitutionController {
     private final InstitutionRepository repo;
     private final InstitutionService institutionService;
     private final InstitutionDataLoader dataLoader;
+    private final SlotOccupancyIndex slotOccupancyIndex;
 
-    public InstitutionController(InstitutionRepository repo, InstitutionService institutionService, InstitutionDataLoader dataLoader) {
+    public InstitutionController(InstitutionRepository repo, InstitutionService institutionService, InstitutionDataLoader dataLoader, SlotOccupancyIndex slotOccupancyIndex) {
         this.repo = repo;
         this.institutionService = institutionService;
         this.dataLoader = dataLoader;
+        this.slotOccupancyIndex = slotOccupancyIndex;
     }
 
     @GetMapping
@@ -30,7 +33,10 @@ public class InstitutionController {
 
     @PostMapping
     public Institution add(@RequestBody Institution institution) {
-        return repo.save(institution);
+        Institution saved = repo.save(institution);
+        // Opening hours may have changed, rebuild the slot grid on next availability query
+        slotOccupancyIndex.evict(saved.getId());
+        return saved;
     }
 
     @PostMapping("/load-data")
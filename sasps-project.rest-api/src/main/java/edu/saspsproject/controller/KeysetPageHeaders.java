@@ -0,0 +1,20 @@
+package edu.saspsproject.controller;
+
+import edu.saspsproject.repository.KeysetPage;
+import org.springframework.http.HttpHeaders;
+
+// Paged listings keep a plain JSON array as body, the paging state travels in headers
+final class KeysetPageHeaders {
+
+    private KeysetPageHeaders() {
+    }
+
+    static HttpHeaders of(KeysetPage<?> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.hasMore()) {
+            headers.add("X-Next-Cursor", page.nextCursor());
+        }
+        headers.add("X-Has-More", Boolean.toString(page.hasMore()));
+        return headers;
+    }
+}
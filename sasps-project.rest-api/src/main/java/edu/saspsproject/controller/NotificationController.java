@@ -1,12 +1,16 @@
 package edu.saspsproject.controller;
 
 import edu.saspsproject.model.Notification;
+import edu.saspsproject.repository.KeysetPage;
 import edu.saspsproject.service.NotificationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/notifications")
@@ -16,23 +20,36 @@ public class NotificationController {
 
     private final NotificationService notificationService;
 
-    // Get notifications for a specific user
+    // Get notifications for a specific user, newest first, the next cursor is returned in X-Next-Cursor
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Notification>> getUserNotifications(@PathVariable Long userId) {
-        return ResponseEntity.ok(notificationService.getUserNotifications(userId));
+    public ResponseEntity<List<Notification>> getUserNotifications(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        try {
+            return toResponse(notificationService.getUserNotifications(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
     }
     
     // Get all notifications - admin only (no actual check for baseline)
     @GetMapping("/all")
     public ResponseEntity<List<Notification>> getAllNotifications(
-            @RequestHeader(value = "X-User-Role", required = false) String role) {
+            @RequestHeader(value = "X-User-Role", required = false) String role,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
         
         // BASELINE: Simple hardcoded role check - no proper security
         if (!"ADMIN".equals(role)) {
             return ResponseEntity.status(403).body(null);
         }
         
-        return ResponseEntity.ok(notificationService.getAllNotifications());
+        try {
+            return toResponse(notificationService.getAllNotifications(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
     }
     
     // Get notifications by status - admin only
@@ -54,4 +71,29 @@ public class NotificationController {
             return ResponseEntity.badRequest().body(null);
         }
     }
+
+    // Put dead-lettered emails created between the dates back in the retry queue - admin only
+    @PostMapping("/dead-letters/replay")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(
+            @RequestHeader(value = "X-User-Role", required = false) String role,
+            @RequestParam @DateTimeFormat(pattern = "ddMMyyyy") LocalDate startDate,
+            @RequestParam @DateTimeFormat(pattern = "ddMMyyyy") LocalDate endDate,
+            @RequestParam(required = false) String type) {
+        if (!"ADMIN".equals(role)) {
+            return ResponseEntity.status(403).body(null);
+        }
+
+        try {
+            Notification.NotificationType notificationType = type == null ? null
+                    : Notification.NotificationType.valueOf(type.toUpperCase());
+            int replayed = notificationService.replayDeadLetters(startDate, endDate, notificationType);
+            return ResponseEntity.ok(Map.of("replayed", replayed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    private static ResponseEntity<List<Notification>> toResponse(KeysetPage<Notification> page) {
+        return ResponseEntity.ok().headers(KeysetPageHeaders.of(page)).body(page.items());
+    }
 }
@@ -1,12 +1,19 @@
 package edu.saspsproject.controller;
 
+import edu.saspsproject.dto.response.AnnouncementJobResponse;
+import edu.saspsproject.model.AnnouncementJob;
 import edu.saspsproject.model.Appointment;
 import edu.saspsproject.model.User;
+import edu.saspsproject.repository.KeysetPage;
+import edu.saspsproject.service.AnnouncementService;
 import edu.saspsproject.service.UserService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -19,15 +26,22 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class UserController {
     private final UserService userService;
+    private final AnnouncementService announcementService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, AnnouncementService announcementService) {
         this.userService = userService;
+        this.announcementService = announcementService;
     }
 
-    // Get all users no pagination
+    // Get all users, one keyset page at a time, the next cursor is returned in X-Next-Cursor
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        try {
+            return toResponse(userService.getAllUsers(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // Get user by ID
@@ -94,6 +108,23 @@ public class UserController {
         }
     }
 
+    // Cancel all future appointments of a user - admin only, same bulk path as deactivation
+    @PostMapping("/{id}/appointments/cancel")
+    public ResponseEntity<Map<String, Object>> cancelFutureAppointments(
+            @PathVariable Long id,
+            @RequestHeader(value = "X-User-Role", required = false) String role,
+            @RequestBody(required = false) Map<String, String> body) {
+        if (!"ADMIN".equals(role)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            int cancelled = userService.cancelFutureAppointments(id, body == null ? null : body.get("reason"));
+            return ResponseEntity.ok(Map.of("userId", id, "cancelledAppointments", cancelled));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     // Get user statistics
     @GetMapping("/{id}/statistics")
     public ResponseEntity<Map<String, Object>> getUserStatistics(@PathVariable Long id) {
@@ -104,26 +135,46 @@ public class UserController {
         }
     }
 
-    // Get user appointment history
+    // Get user appointment history, latest first, the next cursor is returned in X-Next-Cursor
     @GetMapping("/{id}/appointments")
-    public ResponseEntity<List<Appointment>> getUserAppointments(@PathVariable Long id) {
+    public ResponseEntity<List<Appointment>> getUserAppointments(@PathVariable Long id,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
         try {
-            return ResponseEntity.ok(userService.getUserAppointmentHistory(id));
+            KeysetPage<Appointment> page = userService.getUserAppointmentHistory(id, cursor, size);
+            return ResponseEntity.ok().headers(KeysetPageHeaders.of(page)).body(page.items());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
-    // Get active users only
+    // Get active users only, paged like the full listing
     @GetMapping("/active")
-    public ResponseEntity<List<User>> getActiveUsers() {
-        return ResponseEntity.ok(userService.getActiveUsers());
+    public ResponseEntity<List<User>> getActiveUsers(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        try {
+            return toResponse(userService.getActiveUsers(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
-    // Get users by county
+    // Get users by county, paged like the full listing
     @GetMapping("/county/{county}")
-    public ResponseEntity<List<User>> getUsersByCounty(@PathVariable String county) {
-        return ResponseEntity.ok(userService.getUsersByCounty(county));
+    public ResponseEntity<List<User>> getUsersByCounty(@PathVariable String county,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        try {
+            return toResponse(userService.getUsersByCounty(county, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static ResponseEntity<List<User>> toResponse(KeysetPage<User> page) {
+        return ResponseEntity.ok().headers(KeysetPageHeaders.of(page)).body(page.items());
     }
 
     // Get users by city
@@ -147,20 +198,59 @@ public class UserController {
         }
     }
 
-    // Send county-wide announcement
+    // Send county-wide announcement as a background job, progress is polled on the returned job
     @PostMapping("/county/{county}/announce")
-    public ResponseEntity<Void> sendCountyAnnouncement(
+    public ResponseEntity<AnnouncementJobResponse> sendCountyAnnouncement(
             @PathVariable String county,
             @RequestBody Map<String, String> body) {
         try {
-            String message = body.get("message");
-            if (message == null || message.isEmpty()) {
-                return ResponseEntity.badRequest().build();
-            }
-            userService.sendCountyAnnouncement(county, message);
-            return ResponseEntity.ok().build();
+            AnnouncementJob job = announcementService.submit(county, body.get("message"));
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/user/announcements/" + job.getId()))
+                    .body(toResponse(job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+
+    // Announcement job progress and throughput
+    @GetMapping("/announcements/{jobId}")
+    public ResponseEntity<AnnouncementJobResponse> getAnnouncementJob(@PathVariable Long jobId) {
+        return announcementService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(toResponse(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Resume a failed or stalled announcement job from its cursor - admin only
+    @PostMapping("/announcements/{jobId}/resume")
+    public ResponseEntity<AnnouncementJobResponse> resumeAnnouncementJob(
+            @PathVariable Long jobId,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+        if (!"ADMIN".equals(role)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.accepted().body(toResponse(announcementService.resume(jobId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private static AnnouncementJobResponse toResponse(AnnouncementJob job) {
+        double recipientsPerSecond = 0;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getCompletedAt() != null ? job.getCompletedAt() : LocalDateTime.now();
+            double seconds = Math.max(1, Duration.between(job.getStartedAt(), end).toMillis() / 1000.0);
+            recipientsPerSecond = job.getRecipientsProcessed() / seconds;
+        }
+        return new AnnouncementJobResponse(job.getId(), job.getCounty(), job.getStatus().name(),
+                job.getRecipientsProcessed(), job.getEmailsSent(), job.getEmailsFailed(), recipientsPerSecond,
+                job.getCreatedAt(), job.getStartedAt(), job.getCompletedAt(), job.getLastError());
+    }
+}
@@ -0,0 +1,22 @@
+package edu.saspsproject.dto.request;
+
+import edu.saspsproject.model.Appointment;
+
+import java.time.LocalDate;
+
+// Optional filters of appointment exports and reports, null meaning "any". Both dates are inclusive.
+public record AppointmentExportFilter(LocalDate startDate,
+                                      LocalDate endDate,
+                                      Long institutionId,
+                                      Appointment.Status status) {
+
+    public static AppointmentExportFilter all() {
+        return new AppointmentExportFilter(null, null, null, null);
+    }
+
+    public void validate() {
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+    }
+}
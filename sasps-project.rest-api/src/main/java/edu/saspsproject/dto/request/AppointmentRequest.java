@@ -16,4 +16,6 @@ public class AppointmentRequest {
     private String priorityLevel;
     private String notes;
     private String documentRequired;
+    // Token of a slot hold taken while the form was filled in, optional
+    private String holdToken;
 }
\ No newline at end of file
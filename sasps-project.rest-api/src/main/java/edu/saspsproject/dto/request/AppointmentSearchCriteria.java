@@ -0,0 +1,22 @@
+package edu.saspsproject.dto.request;
+
+import edu.saspsproject.model.Appointment;
+
+import java.time.LocalDate;
+
+// Optional filters of the appointment search, null meaning "any". Both dates are inclusive.
+public record AppointmentSearchCriteria(Long institutionId,
+                                        Long countyId,
+                                        Appointment.Status status,
+                                        Appointment.ServiceType serviceType,
+                                        Appointment.PriorityLevel priorityLevel,
+                                        LocalDate startDate,
+                                        LocalDate endDate,
+                                        Long userId) {
+
+    public void validate() {
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package edu.saspsproject.dto.request;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class ExportJobRequest {
+    // CSV or PDF
+    private String format;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Long institutionId;
+    private String status;
+    // Where to send the completion email, optional
+    private String notifyEmail;
+}
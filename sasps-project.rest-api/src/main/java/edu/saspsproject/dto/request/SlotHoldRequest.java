@@ -0,0 +1,12 @@
+package edu.saspsproject.dto.request;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class SlotHoldRequest {
+    private Long institutionId;
+    private LocalDateTime appointmentTime;
+    private Integer ttlSeconds;
+}
@@ -0,0 +1,16 @@
+package edu.saspsproject.dto.response;
+
+import java.time.LocalDateTime;
+
+public record AnnouncementJobResponse(Long jobId,
+                                      String county,
+                                      String status,
+                                      long recipientsProcessed,
+                                      long emailsSent,
+                                      long emailsFailed,
+                                      double recipientsPerSecond,
+                                      LocalDateTime createdAt,
+                                      LocalDateTime startedAt,
+                                      LocalDateTime completedAt,
+                                      String lastError) {
+}
@@ -0,0 +1,43 @@
+package edu.saspsproject.dto.response;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Compact availability: the slot template is sent once, followed by one free-slot mask per day starting
+ * at {@code firstDay}. Slot {@code i} of a day starts at {@code openingTime + i * intervalMinutes} and is
+ * free when bit {@code i % 8} of byte {@code i / 8} of the day mask is set. Masks are base64 in JSON.
+ */
+public record CompactAvailabilityResponse(Long institutionId,
+                                          LocalDate firstDay,
+                                          LocalTime openingTime,
+                                          int intervalMinutes,
+                                          int slotsPerDay,
+                                          List<byte[]> freeSlotMasks) {
+
+    public static final String JSON_MEDIA_TYPE = "application/x-sasps-availability+json";
+    public static final String BINARY_MEDIA_TYPE = "application/x-sasps-availability";
+
+    private static final byte BINARY_VERSION = 1;
+
+    /**
+     * Binary layout (big endian): version (1 byte), institutionId (8), firstDay as epoch day (4),
+     * opening minute of day (2), interval minutes (2), slots per day (2), day count (2),
+     * then {@code dayCount} masks of {@code ceil(slotsPerDay / 8)} bytes each.
+     */
+    public byte[] toBinary() {
+        int maskLength = (slotsPerDay + 7) / 8;
+        ByteBuffer buffer = ByteBuffer.allocate(21 + freeSlotMasks.size() * maskLength);
+        buffer.put(BINARY_VERSION);
+        buffer.putLong(institutionId);
+        buffer.putInt((int) firstDay.toEpochDay());
+        buffer.putShort((short) (openingTime.getHour() * 60 + openingTime.getMinute()));
+        buffer.putShort((short) intervalMinutes);
+        buffer.putShort((short) slotsPerDay);
+        buffer.putShort((short) freeSlotMasks.size());
+        freeSlotMasks.forEach(buffer::put);
+        return buffer.array();
+    }
+}
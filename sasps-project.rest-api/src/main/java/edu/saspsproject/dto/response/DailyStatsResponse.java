@@ -0,0 +1,25 @@
+package edu.saspsproject.dto.response;
+
+import edu.saspsproject.model.Appointment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appointments per day read from the daily rollup, for one institution or all of them when
+ * {@code institutionId} is null. Changes made after {@code rolledUpUntil} are not included yet.
+ */
+public record DailyStatsResponse(Long institutionId,
+                                 LocalDate startDate,
+                                 LocalDate endDate,
+                                 LocalDateTime rolledUpUntil,
+                                 List<Day> days) {
+
+    public record Day(LocalDate day,
+                      long totalAppointments,
+                      Map<Appointment.Status, Long> appointmentsByStatus,
+                      Map<Appointment.ServiceType, Long> appointmentsByService) {
+    }
+}
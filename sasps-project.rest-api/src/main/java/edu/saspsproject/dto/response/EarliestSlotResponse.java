@@ -0,0 +1,6 @@
+package edu.saspsproject.dto.response;
+
+import java.time.LocalDateTime;
+
+public record EarliestSlotResponse(Long institutionId, String institutionName, LocalDateTime slot) {
+}
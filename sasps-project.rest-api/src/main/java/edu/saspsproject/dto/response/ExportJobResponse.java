@@ -0,0 +1,13 @@
+package edu.saspsproject.dto.response;
+
+import java.time.LocalDateTime;
+
+public record ExportJobResponse(String jobId,
+                                String format,
+                                String status,
+                                long rowCount,
+                                LocalDateTime createdAt,
+                                LocalDateTime completedAt,
+                                String error,
+                                String downloadUrl) {
+}
@@ -0,0 +1,7 @@
+package edu.saspsproject.dto.response;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+public record SlotHoldResponse(String holdToken, Long institutionId, LocalDateTime appointmentTime, Instant expiresAt) {
+}
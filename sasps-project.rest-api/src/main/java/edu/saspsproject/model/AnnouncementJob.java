@@ -0,0 +1,87 @@
+package edu.saspsproject.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * County announcement delivered in the background. The job pages through the recipients by id and
+ * stores the last one handled with each page, so it resumes from there after a restart. The instance
+ * working on a job holds a lease on it, renewed with every page; the version column makes sure only
+ * one instance can take a job over once its lease has run out.
+ */
+@Entity
+@Table(name = "announcement_jobs", indexes = {
+        @Index(name = "idx_announcement_jobs_status", columnList = "status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnnouncementJob {
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "announcement_jobs_seq")
+    @SequenceGenerator(name = "announcement_jobs_seq", sequenceName = "announcement_jobs_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String county;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    // Keyset cursor: id of the last user whose page was committed, 0 before the first page
+    @Column(name = "last_user_id", nullable = false)
+    private long lastUserId;
+
+    @Column(name = "recipients_processed", nullable = false)
+    private long recipientsProcessed;
+
+    @Column(name = "emails_sent", nullable = false)
+    private long emailsSent;
+
+    @Column(name = "emails_failed", nullable = false)
+    private long emailsFailed;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    // Failed runs in a row, the job is given up after app.announcement.max-failures
+    @Column(columnDefinition = "integer default 0")
+    private int failures;
+
+    // Instance working on the job and until when, null when nobody is
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -10,7 +10,18 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_institution_time", columnList = "institution_id, appointment_time"),
+        @Index(name = "idx_appointments_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_appointments_time_id", columnList = "appointment_time, id"),
+        // Search filters, each followed by the (appointment_time, id) keyset order
+        @Index(name = "idx_appointments_status_time_id", columnList = "status, appointment_time, id"),
+        @Index(name = "idx_appointments_service_time_id", columnList = "service_type, appointment_time, id"),
+        @Index(name = "idx_appointments_user_time_id", columnList = "user_id, appointment_time, id"),
+        @Index(name = "idx_appointments_institution_status_time", columnList = "institution_id, status, appointment_time")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_appointments_active_slot", columnNames = {"institution_id", "appointment_time", "active_slot"})
+})
 public class Appointment {
     public enum Status {
         PENDING, CONFIRMED, COMPLETED, CANCELLED
@@ -25,7 +36,8 @@ public class Appointment {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointments_seq")
+    @SequenceGenerator(name = "appointments_seq", sequenceName = "appointments_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "institution_id", nullable = false)
@@ -52,6 +64,7 @@ public class Appointment {
     private String notes;
 
     @NotNull
+    @Column(name = "appointment_time")
     private LocalDateTime appointmentTime;
 
     @Enumerated(EnumType.STRING)
@@ -76,9 +89,22 @@ public class Appointment {
     @NotNull
     private Boolean reminderSent;
 
+    // TRUE while the appointment holds its slot, NULL once cancelled: NULLs are distinct in the
+    // unique constraint, so only one active booking per institution and time can exist
+    @Column(name = "active_slot")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private Boolean activeSlot;
+
     @NotNull
     private LocalDateTime createdAt;
 
+    // Part of the delta export cursor: every change must move it forward
     @NotNull
+    @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
 }
\ No newline at end of file
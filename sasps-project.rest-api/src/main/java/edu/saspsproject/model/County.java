@@ -12,7 +12,8 @@ public class County {
 
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "county_seq")
+    @SequenceGenerator(name = "county_seq", sequenceName = "county_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,42 @@
+package edu.saspsproject.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Number of appointments of one institution on one day with a given service type and status.
+ * Maintained by the daily rollup job, never written by request handling.
+ */
+@Entity
+@Table(name = "daily_appointment_stats", indexes = {
+        @Index(name = "idx_daily_stats_day_institution", columnList = "day, institution_id"),
+        @Index(name = "idx_daily_stats_institution_day", columnList = "institution_id, day")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyAppointmentStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "daily_appointment_stats_seq")
+    @SequenceGenerator(name = "daily_appointment_stats_seq", sequenceName = "daily_appointment_stats_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(name = "institution_id", nullable = false)
+    private Long institutionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "service_type")
+    private Appointment.ServiceType serviceType;
+
+    @Enumerated(EnumType.STRING)
+    private Appointment.Status status;
+
+    private long total;
+}
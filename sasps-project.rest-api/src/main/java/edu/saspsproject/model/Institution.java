@@ -21,7 +21,8 @@ public class Institution {
 
     @Setter
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "institutions_seq")
+    @SequenceGenerator(name = "institutions_seq", sequenceName = "institutions_seq", allocationSize = 50)
     private Long id;
 
     @Setter
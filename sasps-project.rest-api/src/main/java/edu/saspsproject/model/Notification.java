@@ -1,12 +1,22 @@
 package edu.saspsproject.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
 
+/**
+ * A message to a user over one channel. In-app notifications (method NONE) are delivered when
+ * written; EMAIL notifications keep the rendered email and are the persistent delivery queue:
+ * PENDING until the first attempt, FAILED while retries are scheduled, DEAD_LETTER once they run
+ * out, and SKIPPED when the user does not receive emails.
+ */
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_notifications_status_next_attempt", columnList = "status, next_attempt_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,18 +33,21 @@ public class Notification {
         REMINDER,
         CANCELLATION,
         WELCOME,
-        ANNOUNCEMENT
+        ANNOUNCEMENT,
+        EXPORT
     }
 
     public enum NotificationStatus {
         PENDING,
         SENT,
         FAILED,
-        SKIPPED
+        SKIPPED,
+        DEAD_LETTER
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_seq")
+    @SequenceGenerator(name = "notifications_seq", sequenceName = "notifications_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id")
@@ -61,6 +74,21 @@ public class Notification {
     @Column(columnDefinition = "TEXT")
     private String message;
 
+    // Email subject and HTML body as rendered when the notification was created, resent as is by retries
+    private String subject;
+
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
     @Column(name = "sent_at")
     private LocalDateTime sentAt;
 
@@ -70,6 +98,9 @@ public class Notification {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        if (attempts == null) {
+            attempts = 0;
+        }
         if (status == null) {
             status = NotificationStatus.PENDING;
         }
@@ -9,7 +9,8 @@ import lombok.Setter;
 @Table
 public class PublicService {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "public_service_seq")
+    @SequenceGenerator(name = "public_service_seq", sequenceName = "public_service_seq", allocationSize = 50)
     private Long id;
     @Column(nullable = false)
     private String name;
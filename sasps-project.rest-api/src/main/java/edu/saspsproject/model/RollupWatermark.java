@@ -0,0 +1,25 @@
+package edu.saspsproject.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// How far a rollup job got: every change up to the watermark is reflected in its table
+@Entity
+@Table(name = "rollup_watermarks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupWatermark {
+
+    @Id
+    private String name;
+
+    // Last appointment updatedAt covered by the rollup
+    @Column(nullable = false)
+    private LocalDateTime watermark;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+}
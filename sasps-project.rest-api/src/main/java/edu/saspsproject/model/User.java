@@ -7,11 +7,16 @@ import java.time.LocalDateTime;
 
 @Getter
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_active_id", columnList = "active, id"),
+        @Index(name = "idx_users_county_id", columnList = "county, id"),
+        @Index(name = "idx_users_announcement_recipients", columnList = "county, active, email_notifications_enabled, id")
+})
 public class User {
     @Setter
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Setter
@@ -9,7 +9,8 @@ import lombok.Setter;
 public class UserAppointmentMap {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_appointment_map_seq")
+    @SequenceGenerator(name = "user_appointment_map_seq", sequenceName = "user_appointment_map_seq", allocationSize = 50)
     private Long id;
 
     @Setter
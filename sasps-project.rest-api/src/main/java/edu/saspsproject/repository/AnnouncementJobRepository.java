@@ -0,0 +1,13 @@
+package edu.saspsproject.repository;
+
+import edu.saspsproject.model.AnnouncementJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AnnouncementJobRepository extends JpaRepository<AnnouncementJob, Long> {
+    List<AnnouncementJob> findByStatusInOrderByIdAsc(Collection<AnnouncementJob.Status> statuses);
+}
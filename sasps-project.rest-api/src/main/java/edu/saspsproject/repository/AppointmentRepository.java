@@ -1,14 +1,25 @@
 package edu.saspsproject.repository;
 
 import edu.saspsproject.model.Appointment;
+import edu.saspsproject.repository.projection.AppointmentDataVersion;
+import edu.saspsproject.repository.projection.AppointmentSpan;
+import edu.saspsproject.repository.projection.AppointmentStatsBucket;
+import edu.saspsproject.repository.projection.BookedSlot;
+import edu.saspsproject.repository.projection.GroupCount;
+import edu.saspsproject.repository.projection.InstitutionBookedSlot;
+import edu.saspsproject.repository.projection.UserStatusCount;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentRepositoryCustom {
     @Query("select a from Appointment a join fetch a.institution i where i.id = :institutionId")
     List<Appointment> findByInstitutionIdWithInstitution(@Param("institutionId") Long institutionId);
 
@@ -18,4 +29,98 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findByInstitutionId(Long institutionId);
 
     List<Appointment> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    List<Appointment> findByServiceType(Appointment.ServiceType serviceType);
+
+    // Booked times of one institution in [from, to), served by idx_appointments_institution_time
+    @Query("select a.appointmentTime as appointmentTime from Appointment a " +
+            "where a.institutionId = :institutionId " +
+            "and a.appointmentTime >= :from and a.appointmentTime < :to " +
+            "and a.status <> :excludedStatus")
+    List<BookedSlot> findBookedSlots(@Param("institutionId") Long institutionId,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("excludedStatus") Appointment.Status excludedStatus);
+
+    default List<BookedSlot> findActiveBookedSlots(Long institutionId, LocalDateTime from, LocalDateTime to) {
+        return findBookedSlots(institutionId, from, to, Appointment.Status.CANCELLED);
+    }
+
+    // Same as findBookedSlots for a set of institutions in a single round-trip
+    @Query("select a.institutionId as institutionId, a.appointmentTime as appointmentTime from Appointment a " +
+            "where a.institutionId in :institutionIds " +
+            "and a.appointmentTime >= :from and a.appointmentTime < :to " +
+            "and a.status <> :excludedStatus")
+    List<InstitutionBookedSlot> findBookedSlots(@Param("institutionIds") Collection<Long> institutionIds,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to,
+                                                @Param("excludedStatus") Appointment.Status excludedStatus);
+
+    default List<InstitutionBookedSlot> findActiveBookedSlots(Collection<Long> institutionIds, LocalDateTime from, LocalDateTime to) {
+        return findBookedSlots(institutionIds, from, to, Appointment.Status.CANCELLED);
+    }
+
+    @Query("select a from Appointment a where a.appointmentTime >= :from and a.appointmentTime < :to")
+    List<Appointment> findByAppointmentTimeInRange(@Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+
+    @Query("select a from Appointment a where a.appointmentTime > :from and a.appointmentTime < :to " +
+            "and a.status in :statuses")
+    List<Appointment> findByAppointmentTimeBetweenAndStatusIn(@Param("from") LocalDateTime from,
+                                                              @Param("to") LocalDateTime to,
+                                                              @Param("statuses") Collection<Appointment.Status> statuses);
+
+    // Aggregates for the statistics endpoints, computed by the database instead of loading the rows
+    @Query("select a.institutionId as groupKey, count(a) as total from Appointment a group by a.institutionId")
+    List<GroupCount<Long>> countByInstitution();
+
+    @Query("select a.serviceType as groupKey, count(a) as total from Appointment a " +
+            "where a.serviceType is not null group by a.serviceType")
+    List<GroupCount<Appointment.ServiceType>> countByServiceType();
+
+    @Query("select a.status as groupKey, count(a) as total from Appointment a group by a.status")
+    List<GroupCount<Appointment.Status>> countByStatus();
+
+    @Query("select a.serviceType as groupKey, count(a) as total from Appointment a " +
+            "where a.institutionId = :institutionId and a.serviceType is not null group by a.serviceType")
+    List<GroupCount<Appointment.ServiceType>> countByServiceType(@Param("institutionId") Long institutionId);
+
+    @Query("select a.status as groupKey, count(a) as total from Appointment a " +
+            "where a.institutionId = :institutionId group by a.status")
+    List<GroupCount<Appointment.Status>> countByStatus(@Param("institutionId") Long institutionId);
+
+    @Query("select count(a) as total, min(a.appointmentTime) as firstAppointment, max(a.appointmentTime) as lastAppointment " +
+            "from Appointment a where a.institutionId = :institutionId")
+    AppointmentSpan findAppointmentSpan(@Param("institutionId") Long institutionId);
+
+    // Freshness of results derived from appointments, read from the database so every instance agrees
+    @Query("select new edu.saspsproject.repository.projection.AppointmentDataVersion(max(a.updatedAt), count(a)) " +
+            "from Appointment a")
+    AppointmentDataVersion findDataVersion();
+
+    // Every counter of the in-memory statistics in one pass over the table
+    @Query("select a.institutionId as institutionId, a.serviceType as serviceType, a.status as status, " +
+            "extract(date from a.appointmentTime) as day, count(a) as total from Appointment a " +
+            "group by a.institutionId, a.serviceType, a.status, extract(date from a.appointmentTime)")
+    List<AppointmentStatsBucket> findStatsBuckets();
+
+    // Days whose appointments changed in (after, until], served by the (updated_at, id) index
+    @Query("select distinct extract(date from a.appointmentTime) from Appointment a " +
+            "where a.updatedAt > :after and a.updatedAt <= :until")
+    List<LocalDate> findDaysChangedBetween(@Param("after") LocalDateTime after, @Param("until") LocalDateTime until);
+
+    @Query("select a.institutionId as institutionId, a.serviceType as serviceType, a.status as status, " +
+            "extract(date from a.appointmentTime) as day, count(a) as total from Appointment a " +
+            "where a.appointmentTime >= :from and a.appointmentTime < :to " +
+            "group by a.institutionId, a.serviceType, a.status, extract(date from a.appointmentTime)")
+    List<AppointmentStatsBucket> findStatsBuckets(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Keyset pages in id order
+    List<Appointment> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // Per-status totals of one user and how many are after the given time, over idx_appointments_user_time_id
+    @Query("select a.status as status, count(a) as total, " +
+            "sum(case when a.appointmentTime > :now then 1 else 0 end) as upcoming " +
+            "from Appointment a where a.userId = :userId group by a.status")
+    List<UserStatusCount> countByStatusForUser(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+}
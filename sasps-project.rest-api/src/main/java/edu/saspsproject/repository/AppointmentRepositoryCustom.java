@@ -0,0 +1,42 @@
+package edu.saspsproject.repository;
+
+import edu.saspsproject.dto.request.AppointmentExportFilter;
+import edu.saspsproject.dto.request.AppointmentSearchCriteria;
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.repository.projection.AppointmentChange;
+import edu.saspsproject.repository.projection.AppointmentExportRow;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Queries built at runtime or tuned beyond what derived queries allow, implemented on the EntityManager
+public interface AppointmentRepositoryCustom {
+
+    // Forward-only read of the matching appointments ordered by id, must be consumed inside a transaction
+    Stream<AppointmentExportRow> streamExportRows(AppointmentExportFilter filter);
+
+    long countExportRows(AppointmentExportFilter filter);
+
+    /**
+     * Position of the last row of the next delta page: the {@code limit}-th row changed after
+     * {@code after} and before {@code until}, or the last such row if there are fewer.
+     */
+    Optional<KeysetCursor> findDeltaBoundary(KeysetCursor after, LocalDateTime until, int limit);
+
+    // Rows changed in (after, upTo], ordered by (updatedAt, id); must be consumed inside a transaction
+    Stream<AppointmentExportRow> streamChangedRows(KeysetCursor after, KeysetCursor upTo);
+
+    // Up to limit appointments matching the criteria after the cursor, ordered by (appointmentTime, id)
+    List<Appointment> search(AppointmentSearchCriteria criteria, KeysetCursor after, int limit);
+
+    // Up to limit appointments of the user before the cursor, latest first
+    List<Appointment> findUserHistory(Long userId, KeysetCursor before, int limit);
+
+    // Cancels the user's active appointments after the given time in one statement, must run inside a transaction
+    List<AppointmentChange> cancelFutureAppointmentsOfUser(Long userId, LocalDateTime after, LocalDateTime now);
+
+    // Deletes every appointment of the user in one statement, must run inside a transaction
+    List<AppointmentChange> deleteAppointmentsOfUser(Long userId);
+}
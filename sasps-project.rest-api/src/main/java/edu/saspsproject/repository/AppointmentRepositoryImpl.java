@@ -0,0 +1,242 @@
+package edu.saspsproject.repository;
+
+import edu.saspsproject.dto.request.AppointmentExportFilter;
+import edu.saspsproject.dto.request.AppointmentSearchCriteria;
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.repository.projection.AppointmentChange;
+import edu.saspsproject.repository.projection.AppointmentExportRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class AppointmentRepositoryImpl implements AppointmentRepositoryCustom {
+
+    // Rows fetched from the database cursor per round trip
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<AppointmentExportRow> streamExportRows(AppointmentExportFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AppointmentExportRow> query = cb.createQuery(AppointmentExportRow.class);
+        Root<Appointment> appointment = query.from(Appointment.class);
+        Join<Appointment, Institution> institution = appointment.join("institution", JoinType.LEFT);
+
+        query.select(cb.construct(AppointmentExportRow.class,
+                        appointment.get("id"),
+                        appointment.get("title"),
+                        institution.get("name"),
+                        appointment.get("serviceType"),
+                        appointment.get("appointmentTime"),
+                        appointment.get("status"),
+                        appointment.get("priorityLevel"),
+                        appointment.get("estimatedDuration"),
+                        appointment.get("updatedAt")))
+                .where(predicates(cb, appointment, filter))
+                .orderBy(cb.asc(appointment.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public long countExportRows(AppointmentExportFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Appointment> appointment = query.from(Appointment.class);
+        query.select(cb.count(appointment)).where(predicates(cb, appointment, filter));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public Optional<KeysetCursor> findDeltaBoundary(KeysetCursor after, LocalDateTime until, int limit) {
+        String changedAfter = "from Appointment a where (a.updatedAt, a.id) > (:afterTime, :afterId) and a.updatedAt < :until ";
+        // The limit-th row, found by skipping along idx_appointments_updated_at_id
+        List<Object[]> boundary = entityManager.createQuery(
+                        "select a.updatedAt, a.id " + changedAfter + "order by a.updatedAt, a.id", Object[].class)
+                .setParameter("afterTime", after.time())
+                .setParameter("afterId", after.id())
+                .setParameter("until", until)
+                .setFirstResult(limit - 1)
+                .setMaxResults(1)
+                .getResultList();
+        if (boundary.isEmpty()) {
+            // Fewer rows than the limit: the page ends with the last changed row
+            boundary = entityManager.createQuery(
+                            "select a.updatedAt, a.id " + changedAfter + "order by a.updatedAt desc, a.id desc", Object[].class)
+                    .setParameter("afterTime", after.time())
+                    .setParameter("afterId", after.id())
+                    .setParameter("until", until)
+                    .setMaxResults(1)
+                    .getResultList();
+        }
+        return boundary.stream()
+                .findFirst()
+                .map(row -> new KeysetCursor((LocalDateTime) row[0], (Long) row[1]));
+    }
+
+    @Override
+    public Stream<AppointmentExportRow> streamChangedRows(KeysetCursor after, KeysetCursor upTo) {
+        return entityManager.createQuery(
+                        "select new edu.saspsproject.repository.projection.AppointmentExportRow(" +
+                                "a.id, a.title, i.name, a.serviceType, a.appointmentTime, a.status, a.priorityLevel, " +
+                                "a.estimatedDuration, a.updatedAt) " +
+                                "from Appointment a left join a.institution i " +
+                                "where (a.updatedAt, a.id) > (:afterTime, :afterId) " +
+                                "and (a.updatedAt, a.id) <= (:upToTime, :upToId) " +
+                                "order by a.updatedAt, a.id", AppointmentExportRow.class)
+                .setParameter("afterTime", after.time())
+                .setParameter("afterId", after.id())
+                .setParameter("upToTime", upTo.time())
+                .setParameter("upToId", upTo.id())
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public List<Appointment> search(AppointmentSearchCriteria criteria, KeysetCursor after, int limit) {
+        // Only the given criteria become conditions, so the planner can pick the matching composite index
+        StringBuilder jpql = new StringBuilder("select a from Appointment a " +
+                "where (a.appointmentTime, a.id) > (:afterTime, :afterId)");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("afterTime", after.time());
+        parameters.put("afterId", after.id());
+
+        if (criteria.institutionId() != null) {
+            jpql.append(" and a.institutionId = :institutionId");
+            parameters.put("institutionId", criteria.institutionId());
+        }
+        if (criteria.countyId() != null) {
+            jpql.append(" and a.institutionId in (select i.id from Institution i where i.county.id = :countyId)");
+            parameters.put("countyId", criteria.countyId());
+        }
+        if (criteria.status() != null) {
+            jpql.append(" and a.status = :status");
+            parameters.put("status", criteria.status());
+        }
+        if (criteria.serviceType() != null) {
+            jpql.append(" and a.serviceType = :serviceType");
+            parameters.put("serviceType", criteria.serviceType());
+        }
+        if (criteria.priorityLevel() != null) {
+            jpql.append(" and a.priorityLevel = :priorityLevel");
+            parameters.put("priorityLevel", criteria.priorityLevel());
+        }
+        if (criteria.startDate() != null) {
+            jpql.append(" and a.appointmentTime >= :startTime");
+            parameters.put("startTime", criteria.startDate().atStartOfDay());
+        }
+        if (criteria.endDate() != null) {
+            jpql.append(" and a.appointmentTime < :endTime");
+            parameters.put("endTime", criteria.endDate().plusDays(1).atStartOfDay());
+        }
+        if (criteria.userId() != null) {
+            jpql.append(" and a.userId = :userId");
+            parameters.put("userId", criteria.userId());
+        }
+        jpql.append(" order by a.appointmentTime, a.id");
+
+        TypedQuery<Appointment> query = entityManager.createQuery(jpql.toString(), Appointment.class)
+                .setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Appointment> findUserHistory(Long userId, KeysetCursor before, int limit) {
+        // Walks idx_appointments_user_time_id backwards
+        return entityManager.createQuery(
+                        "select a from Appointment a where a.userId = :userId " +
+                                "and (a.appointmentTime, a.id) < (:beforeTime, :beforeId) " +
+                                "order by a.appointmentTime desc, a.id desc", Appointment.class)
+                .setParameter("userId", userId)
+                .setParameter("beforeTime", before.time())
+                .setParameter("beforeId", before.id())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<AppointmentChange> cancelFutureAppointmentsOfUser(Long userId, LocalDateTime after, LocalDateTime now) {
+        // The locked subquery keeps the previous status, which RETURNING alone cannot see
+        List<?> rows = entityManager.createNativeQuery(
+                        "update appointments a set status = 'CANCELLED', active_slot = null, updated_at = :now " +
+                                "from (select id, status from appointments " +
+                                "where user_id = :userId and appointment_time > :after and status <> 'CANCELLED' " +
+                                "for update) previous " +
+                                "where a.id = previous.id " +
+                                "returning a.id, a.institution_id, a.user_id, a.appointment_time, a.service_type, previous.status")
+                .setParameter("userId", userId)
+                .setParameter("after", after)
+                .setParameter("now", now)
+                .getResultList();
+        return toChanges(rows);
+    }
+
+    @Override
+    public List<AppointmentChange> deleteAppointmentsOfUser(Long userId) {
+        List<?> rows = entityManager.createNativeQuery(
+                        "delete from appointments where user_id = :userId " +
+                                "returning id, institution_id, user_id, appointment_time, service_type, status")
+                .setParameter("userId", userId)
+                .getResultList();
+        return toChanges(rows);
+    }
+
+    private static List<AppointmentChange> toChanges(List<?> rows) {
+        List<AppointmentChange> changes = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            changes.add(new AppointmentChange(
+                    ((Number) columns[0]).longValue(),
+                    ((Number) columns[1]).longValue(),
+                    ((Number) columns[2]).longValue(),
+                    toLocalDateTime(columns[3]),
+                    columns[4] == null ? null : Appointment.ServiceType.valueOf((String) columns[4]),
+                    Appointment.Status.valueOf((String) columns[5])));
+        }
+        return changes;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof java.sql.Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private Predicate[] predicates(CriteriaBuilder cb, Root<Appointment> appointment, AppointmentExportFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.startDate() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(appointment.get("appointmentTime"), filter.startDate().atStartOfDay()));
+        }
+        if (filter.endDate() != null) {
+            predicates.add(cb.lessThan(appointment.get("appointmentTime"), filter.endDate().plusDays(1).atStartOfDay()));
+        }
+        if (filter.institutionId() != null) {
+            predicates.add(cb.equal(appointment.get("institutionId"), filter.institutionId()));
+        }
+        if (filter.status() != null) {
+            predicates.add(cb.equal(appointment.get("status"), filter.status()));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+}
@@ -0,0 +1,37 @@
+package edu.saspsproject.repository;
+
+import edu.saspsproject.model.DailyAppointmentStats;
+import edu.saspsproject.repository.projection.DailyStatsRow;
+import edu.saspsproject.repository.projection.RollupSpan;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyAppointmentStatsRepository extends JpaRepository<DailyAppointmentStats, Long> {
+
+    @Modifying
+    @Query("delete from DailyAppointmentStats d where d.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+
+    @Query("select d.day as day, d.status as status, d.serviceType as serviceType, sum(d.total) as total " +
+            "from DailyAppointmentStats d where d.day >= :from and d.day <= :to " +
+            "group by d.day, d.status, d.serviceType order by d.day")
+    List<DailyStatsRow> findDailyTotals(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select d.day as day, d.status as status, d.serviceType as serviceType, sum(d.total) as total " +
+            "from DailyAppointmentStats d where d.institutionId = :institutionId and d.day >= :from and d.day <= :to " +
+            "group by d.day, d.status, d.serviceType order by d.day")
+    List<DailyStatsRow> findDailyTotals(@Param("institutionId") Long institutionId,
+                                        @Param("from") LocalDate from,
+                                        @Param("to") LocalDate to);
+
+    @Query("select sum(d.total) as total, min(d.day) as firstDay, max(d.day) as lastDay " +
+            "from DailyAppointmentStats d where d.institutionId = :institutionId and d.total > 0")
+    RollupSpan findSpan(@Param("institutionId") Long institutionId);
+}
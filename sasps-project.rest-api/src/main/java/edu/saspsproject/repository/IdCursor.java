@@ -0,0 +1,27 @@
+package edu.saspsproject.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by id, handed to clients as an opaque string. The next page
+ * starts strictly after this id in the direction of the listing.
+ */
+public record IdCursor(long id) {
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Null or blank means the start of the listing, which depends on its direction
+    public static IdCursor decode(String cursor, long start) {
+        if (cursor == null || cursor.isBlank()) {
+            return new IdCursor(start);
+        }
+        try {
+            return new IdCursor(Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -2,6 +2,8 @@ package edu.saspsproject.repository;
 
 import edu.saspsproject.model.Institution;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -9,4 +11,10 @@ public interface InstitutionRepository extends JpaRepository<Institution, Long>
 
     List<Institution> findByType(Institution.InstitutionType type);
     List<Institution> findByCountyIdOrCountyIdIsNull(Long countyId);
+
+    // Same visibility rule as findByCountyIdOrCountyIdIsNull, restricted to one institution type
+    @Query("select i from Institution i left join i.county c " +
+            "where i.type = :type and (c.id = :countyId or c is null)")
+    List<Institution> findByTypeInCounty(@Param("type") Institution.InstitutionType type,
+                                         @Param("countyId") Long countyId);
 }
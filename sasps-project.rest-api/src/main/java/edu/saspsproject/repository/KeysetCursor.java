@@ -0,0 +1,42 @@
+package edu.saspsproject.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (time, id), handed to clients as an opaque string.
+ * The next page starts strictly after this position, so rows sharing a timestamp are neither
+ * skipped nor repeated.
+ */
+public record KeysetCursor(LocalDateTime time, long id) {
+
+    // Position before every row
+    public static final KeysetCursor START = new KeysetCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+    // Position after every row, the start of descending listings
+    public static final KeysetCursor END = new KeysetCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Null or blank means the start of the listing
+    public static KeysetCursor decode(String cursor) {
+        return decode(cursor, START);
+    }
+
+    public static KeysetCursor decode(String cursor, KeysetCursor start) {
+        if (cursor == null || cursor.isBlank()) {
+            return start;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
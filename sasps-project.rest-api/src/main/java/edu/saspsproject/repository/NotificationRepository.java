@@ -1,10 +1,20 @@
 package edu.saspsproject.repository;
 
 import edu.saspsproject.model.Notification;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,4 +31,36 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     // For admin dashboard
     List<Notification> findAllByOrderBySentAtDesc();
     List<Notification> findByStatusOrderBySentAtDesc(Notification.NotificationStatus status);
+
+    // Keyset pages, newest first
+    List<Notification> findByIdLessThanOrderByIdDesc(Long beforeId, Limit limit);
+    List<Notification> findByUserIdAndIdLessThanOrderByIdDesc(Long userId, Long beforeId, Limit limit);
+
+    // Emails due for another attempt, locked FOR UPDATE SKIP LOCKED like the outbox events
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select n from Notification n where n.status in :statuses and n.nextAttemptAt <= :now order by n.nextAttemptAt, n.id")
+    List<Notification> findDueForDelivery(@Param("statuses") Collection<Notification.NotificationStatus> statuses,
+                                          @Param("now") LocalDateTime now,
+                                          Pageable pageable);
+
+    // Puts dead letters created in the range back in the retry queue with a fresh attempt budget
+    @Modifying
+    @Query("update Notification n set n.status = :failed, n.attempts = 0, n.nextAttemptAt = :now "
+            + "where n.status = :deadLetter and n.createdAt >= :from and n.createdAt < :to")
+    int requeueDeadLetters(@Param("deadLetter") Notification.NotificationStatus deadLetter,
+                           @Param("failed") Notification.NotificationStatus failed,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to,
+                           @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update Notification n set n.status = :failed, n.attempts = 0, n.nextAttemptAt = :now "
+            + "where n.status = :deadLetter and n.type = :type and n.createdAt >= :from and n.createdAt < :to")
+    int requeueDeadLetters(@Param("deadLetter") Notification.NotificationStatus deadLetter,
+                           @Param("failed") Notification.NotificationStatus failed,
+                           @Param("type") Notification.NotificationType type,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to,
+                           @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,53 @@
+package edu.saspsproject.repository;
+
+import edu.saspsproject.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Locks the returned rows FOR UPDATE SKIP LOCKED (timeout -2), so concurrent dispatchers
+    // never pick the same events and never wait on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OutboxEvent e where e.status = :status and e.nextAttemptAt <= :now order by e.id")
+    List<OutboxEvent> findDueForDispatch(@Param("status") OutboxEvent.Status status,
+                                         @Param("now") LocalDateTime now,
+                                         Pageable pageable);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.processedAt = :processedAt, e.lastError = null where e.id = :id")
+    int markProcessed(@Param("id") Long id,
+                      @Param("status") OutboxEvent.Status status,
+                      @Param("processedAt") LocalDateTime processedAt);
+
+    // Leaves the event pending, it is claimed again once its lease runs out
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1, e.lastError = :error where e.id = :id")
+    int recordFailure(@Param("id") Long id, @Param("error") String error);
+
+    // Sets the event aside once it has failed maxAttempts times
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.processedAt = :processedAt " +
+           "where e.id = :id and e.attempts >= :maxAttempts")
+    int markExhausted(@Param("id") Long id,
+                      @Param("maxAttempts") int maxAttempts,
+                      @Param("status") OutboxEvent.Status status,
+                      @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.status = :status and e.processedAt < :before")
+    int deleteProcessedBefore(@Param("status") OutboxEvent.Status status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,9 @@
+package edu.saspsproject.repository;
+
+import edu.saspsproject.model.RollupWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RollupWatermarkRepository extends JpaRepository<RollupWatermark, String> {
+}
@@ -1,6 +1,7 @@
 package edu.saspsproject.repository;
 
 import edu.saspsproject.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -14,4 +15,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByEmailNotificationsEnabled(Boolean enabled);
     List<User> findByCounty(String county);
     List<User> findByCity(String city);
+
+    // Keyset pages in id order
+    List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+    List<User> findByActiveAndIdGreaterThanOrderByIdAsc(Boolean active, Long afterId, Limit limit);
+    List<User> findByCountyAndIdGreaterThanOrderByIdAsc(String county, Long afterId, Limit limit);
+
+    // Announcement recipients of a county, one keyset page at a time
+    List<User> findByCountyAndActiveTrueAndEmailNotificationsEnabledTrueAndIdGreaterThanOrderByIdAsc(
+            String county, Long afterId, Limit limit);
 }
\ No newline at end of file
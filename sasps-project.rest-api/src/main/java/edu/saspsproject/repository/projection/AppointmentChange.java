@@ -0,0 +1,14 @@
+package edu.saspsproject.repository.projection;
+
+import edu.saspsproject.model.Appointment;
+
+import java.time.LocalDateTime;
+
+// Appointment touched by a bulk statement, with its status from before the statement
+public record AppointmentChange(Long id,
+                                Long institutionId,
+                                Long userId,
+                                LocalDateTime appointmentTime,
+                                Appointment.ServiceType serviceType,
+                                Appointment.Status previousStatus) {
+}
@@ -0,0 +1,7 @@
+package edu.saspsproject.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Latest change time and row count of the appointments table: any insert, update or delete moves one of them
+public record AppointmentDataVersion(LocalDateTime lastUpdatedAt, long total) {
+}
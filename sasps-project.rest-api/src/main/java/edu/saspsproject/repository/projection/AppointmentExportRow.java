@@ -0,0 +1,17 @@
+package edu.saspsproject.repository.projection;
+
+import edu.saspsproject.model.Appointment;
+
+import java.time.LocalDateTime;
+
+// One exported appointment with its institution name, read in the same query
+public record AppointmentExportRow(Long id,
+                                   String title,
+                                   String institutionName,
+                                   Appointment.ServiceType serviceType,
+                                   LocalDateTime appointmentTime,
+                                   Appointment.Status status,
+                                   Appointment.PriorityLevel priorityLevel,
+                                   Double estimatedDuration,
+                                   LocalDateTime updatedAt) {
+}
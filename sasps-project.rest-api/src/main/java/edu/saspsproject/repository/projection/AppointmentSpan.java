@@ -0,0 +1,12 @@
+package edu.saspsproject.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Number of appointments and the time of the first and last one, null when there are none
+public interface AppointmentSpan {
+    long getTotal();
+
+    LocalDateTime getFirstAppointment();
+
+    LocalDateTime getLastAppointment();
+}
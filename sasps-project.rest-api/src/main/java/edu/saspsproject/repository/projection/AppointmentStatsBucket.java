@@ -0,0 +1,18 @@
+package edu.saspsproject.repository.projection;
+
+import edu.saspsproject.model.Appointment;
+
+import java.time.LocalDate;
+
+// Number of appointments sharing institution, service type, status and day
+public interface AppointmentStatsBucket {
+    Long getInstitutionId();
+
+    Appointment.ServiceType getServiceType();
+
+    Appointment.Status getStatus();
+
+    LocalDate getDay();
+
+    long getTotal();
+}
@@ -0,0 +1,8 @@
+package edu.saspsproject.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Booked time of an active appointment, without loading the whole entity
+public interface BookedSlot {
+    LocalDateTime getAppointmentTime();
+}
@@ -0,0 +1,16 @@
+package edu.saspsproject.repository.projection;
+
+import edu.saspsproject.model.Appointment;
+
+import java.time.LocalDate;
+
+// Rolled-up appointments of a day by status and service type, summed over the selected institutions
+public interface DailyStatsRow {
+    LocalDate getDay();
+
+    Appointment.Status getStatus();
+
+    Appointment.ServiceType getServiceType();
+
+    long getTotal();
+}
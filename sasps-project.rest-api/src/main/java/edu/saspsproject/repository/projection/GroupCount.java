@@ -0,0 +1,8 @@
+package edu.saspsproject.repository.projection;
+
+// Row of a GROUP BY count: the grouping value and the number of rows in the group
+public interface GroupCount<K> {
+    K getGroupKey();
+
+    long getTotal();
+}
@@ -0,0 +1,10 @@
+package edu.saspsproject.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Booked time of an active appointment, tagged with its institution for multi-institution reads
+public interface InstitutionBookedSlot {
+    Long getInstitutionId();
+
+    LocalDateTime getAppointmentTime();
+}
@@ -0,0 +1,12 @@
+package edu.saspsproject.repository.projection;
+
+import java.time.LocalDate;
+
+// Rolled-up appointment count and the first and last day with appointments, null when there are none
+public interface RollupSpan {
+    Long getTotal();
+
+    LocalDate getFirstDay();
+
+    LocalDate getLastDay();
+}
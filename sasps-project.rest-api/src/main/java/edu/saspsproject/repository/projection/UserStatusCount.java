@@ -0,0 +1,12 @@
+package edu.saspsproject.repository.projection;
+
+import edu.saspsproject.model.Appointment;
+
+// Appointments of one user with a given status, and how many of them are still ahead
+public interface UserStatusCount {
+    Appointment.Status getStatus();
+
+    long getTotal();
+
+    long getUpcoming();
+}
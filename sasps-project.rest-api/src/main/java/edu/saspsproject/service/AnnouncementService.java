@@ -0,0 +1,286 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.AnnouncementJob;
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.model.User;
+import edu.saspsproject.repository.AnnouncementJobRepository;
+import edu.saspsproject.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * County announcements as background fan-out jobs. A job pages through the county's active users
+ * that accept emails in id order. Each page's emails are stored unsent in the same transaction as
+ * its in-app notifications and the job's cursor, then sent in batches with bounded parallelism;
+ * those a stopped run did not get to send are sent by the delivery retrier, so resuming from the
+ * cursor neither skips nor repeats any. An email only goes out twice when an instance dies between
+ * sending it and recording it as sent. The instance running a job holds a lease on it
+ * (app.announcement.lease-ms), renewed with every page; jobs without a live lease, left by a
+ * crashed instance or released after a failed run, are claimed again from their cursor by the
+ * periodic sweep. Claims go through the job's version, so two instances never run the same job.
+ * A job is only marked failed after app.announcement.max-failures runs in a row failed, and can
+ * then be resumed by hand.
+ */
+@Slf4j
+@Service
+public class AnnouncementService {
+
+    private final AnnouncementJobRepository announcementJobRepository;
+    private final UserRepository userRepository;
+    private final NotificationService notificationService;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor announcementExecutor;
+    private final ExecutorService announcementMailExecutor;
+    private final int pageSize;
+    private final int mailBatchSize;
+    private final long leaseMillis;
+    private final int maxFailures;
+
+    // Identifies this instance as the owner of the leases it takes
+    private final String instanceId = UUID.randomUUID().toString();
+    // Jobs queued or running on this instance, so the sweep does not schedule them twice
+    private final Set<Long> scheduledJobs = ConcurrentHashMap.newKeySet();
+
+    public AnnouncementService(AnnouncementJobRepository announcementJobRepository,
+                               UserRepository userRepository,
+                               NotificationService notificationService,
+                               EmailService emailService,
+                               TransactionTemplate transactionTemplate,
+                               ThreadPoolExecutor announcementExecutor,
+                               ExecutorService announcementMailExecutor,
+                               @Value("${app.announcement.page-size:1000}") int pageSize,
+                               @Value("${app.announcement.mail-batch-size:50}") int mailBatchSize,
+                               @Value("${app.announcement.lease-ms:300000}") long leaseMillis,
+                               @Value("${app.announcement.max-failures:5}") int maxFailures) {
+        this.announcementJobRepository = announcementJobRepository;
+        this.userRepository = userRepository;
+        this.notificationService = notificationService;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.announcementExecutor = announcementExecutor;
+        this.announcementMailExecutor = announcementMailExecutor;
+        this.pageSize = pageSize;
+        this.mailBatchSize = mailBatchSize;
+        this.leaseMillis = leaseMillis;
+        this.maxFailures = maxFailures;
+    }
+
+    public AnnouncementJob submit(String county, String message) {
+        if (county == null || county.isBlank() || message == null || message.isBlank()) {
+            throw new IllegalArgumentException("County and message are required");
+        }
+        AnnouncementJob job = announcementJobRepository.save(AnnouncementJob.builder()
+                .county(county)
+                .message(message)
+                .status(AnnouncementJob.Status.QUEUED)
+                .createdAt(LocalDateTime.now())
+                .build());
+        schedule(job.getId());
+        log.info("Queued announcement job {} for county {}", job.getId(), county);
+        return job;
+    }
+
+    /**
+     * Puts a failed or stalled job back in the queue with a fresh failure budget; it continues
+     * from its cursor. Completed jobs and jobs another run holds a live lease on are refused.
+     */
+    public AnnouncementJob resume(Long jobId) {
+        AnnouncementJob job = transactionTemplate.execute(status -> {
+            AnnouncementJob found = announcementJobRepository.findById(jobId)
+                    .orElseThrow(() -> new RuntimeException("Announcement job not found"));
+            LocalDateTime now = LocalDateTime.now();
+            if (found.getStatus() == AnnouncementJob.Status.COMPLETED) {
+                throw new IllegalArgumentException("Announcement job is already completed");
+            }
+            if (isLeased(found, now)) {
+                throw new IllegalStateException("Announcement job is running");
+            }
+            found.setStatus(AnnouncementJob.Status.QUEUED);
+            found.setFailures(0);
+            found.setUpdatedAt(now);
+            return announcementJobRepository.save(found);
+        });
+        schedule(jobId);
+        log.info("Resumed announcement job {} from user {}", jobId, job.getLastUserId());
+        return job;
+    }
+
+    public Optional<AnnouncementJob> getJob(Long jobId) {
+        return announcementJobRepository.findById(jobId);
+    }
+
+    // Jobs nobody holds a lease on continue from their cursor, at startup and after a failed run
+    @Scheduled(fixedDelayString = "${app.announcement.resume-interval-ms:60000}")
+    public void resumeUnfinishedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int resumed = 0;
+        for (AnnouncementJob job : announcementJobRepository.findByStatusInOrderByIdAsc(
+                List.of(AnnouncementJob.Status.QUEUED, AnnouncementJob.Status.RUNNING))) {
+            if (!isLeased(job, now) && schedule(job.getId())) {
+                resumed++;
+            }
+        }
+        if (resumed > 0) {
+            log.info("Resuming {} announcement jobs", resumed);
+        }
+    }
+
+    private boolean schedule(Long jobId) {
+        if (!scheduledJobs.add(jobId)) {
+            return false;
+        }
+        announcementExecutor.execute(() -> {
+            try {
+                run(jobId);
+            } finally {
+                scheduledJobs.remove(jobId);
+            }
+        });
+        return true;
+    }
+
+    private void run(Long jobId) {
+        AnnouncementJob job = claim(jobId);
+        if (job == null) {
+            return;
+        }
+        try {
+            List<User> page;
+            do {
+                page = userRepository.findByCountyAndActiveTrueAndEmailNotificationsEnabledTrueAndIdGreaterThanOrderByIdAsc(
+                        job.getCounty(), job.getLastUserId(), Limit.of(pageSize));
+                if (!page.isEmpty()) {
+                    job = deliverPage(job, page);
+                }
+            } while (page.size() == pageSize);
+
+            job.setStatus(AnnouncementJob.Status.COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+            job.setUpdatedAt(job.getCompletedAt());
+            job.setLeaseOwner(null);
+            job.setLeaseUntil(null);
+            announcementJobRepository.save(job);
+            log.info("Announcement job {} reached {} users in county {}", jobId, job.getRecipientsProcessed(), job.getCounty());
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Announcement job {} was taken over by another instance after its lease ran out", jobId);
+        } catch (RuntimeException e) {
+            recordFailure(jobId, e);
+        }
+    }
+
+    // Takes the lease on the job; null when it is finished, leased by another instance or claimed concurrently
+    private AnnouncementJob claim(Long jobId) {
+        try {
+            return transactionTemplate.execute(status -> {
+                AnnouncementJob job = announcementJobRepository.findById(jobId).orElse(null);
+                LocalDateTime now = LocalDateTime.now();
+                if (job == null || job.getStatus() == AnnouncementJob.Status.COMPLETED
+                        || job.getStatus() == AnnouncementJob.Status.FAILED
+                        || (isLeased(job, now) && !instanceId.equals(job.getLeaseOwner()))) {
+                    return null;
+                }
+                if (job.getStartedAt() == null) {
+                    job.setStartedAt(now);
+                }
+                job.setStatus(AnnouncementJob.Status.RUNNING);
+                job.setLeaseOwner(instanceId);
+                job.setLeaseUntil(now.plus(leaseMillis, ChronoUnit.MILLIS));
+                job.setUpdatedAt(now);
+                return announcementJobRepository.save(job);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            log.info("Announcement job {} was claimed by another instance", jobId);
+            return null;
+        }
+    }
+
+    // Releases the lease so the sweep retries the job from its committed cursor, until it failed too often
+    private void recordFailure(Long jobId, RuntimeException error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                AnnouncementJob job = announcementJobRepository.findById(jobId).orElse(null);
+                if (job == null || !instanceId.equals(job.getLeaseOwner())) {
+                    return;
+                }
+                job.setFailures(job.getFailures() + 1);
+                job.setLastError(error.getMessage());
+                job.setUpdatedAt(LocalDateTime.now());
+                job.setLeaseOwner(null);
+                job.setLeaseUntil(null);
+                if (job.getFailures() >= maxFailures) {
+                    job.setStatus(AnnouncementJob.Status.FAILED);
+                    log.error("Announcement job {} failed {} times, giving up: {}", jobId, job.getFailures(), error.getMessage());
+                } else {
+                    log.warn("Announcement job {} failed (run {}), it will be resumed: {}", jobId, job.getFailures(), error.getMessage());
+                }
+                announcementJobRepository.save(job);
+            });
+        } catch (RuntimeException e) {
+            // The lease runs out on its own, the job is resumed then
+            log.error("Could not record the failure of announcement job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private static boolean isLeased(AnnouncementJob job, LocalDateTime now) {
+        return job.getLeaseUntil() != null && job.getLeaseUntil().isAfter(now);
+    }
+
+    // The page's emails are stored with its notifications and the cursor, then sent after the commit
+    private AnnouncementJob deliverPage(AnnouncementJob job, List<User> page) {
+        String message = job.getMessage();
+        List<User> recipients = page.stream().filter(user -> user.getEmail() != null).toList();
+        job.setLastUserId(page.get(page.size() - 1).getId());
+        job.setRecipientsProcessed(job.getRecipientsProcessed() + page.size());
+        job.setFailures(0);
+        job.setUpdatedAt(LocalDateTime.now());
+        job.setLeaseUntil(job.getUpdatedAt().plus(leaseMillis, ChronoUnit.MILLIS));
+        PageCommit commit = transactionTemplate.execute(status -> {
+            List<Notification> emails = emailService.queueAnnouncementEmails(recipients, job.getCounty(), message);
+            notificationService.createNotifications(page, message, Notification.NotificationType.ANNOUNCEMENT);
+            return new PageCommit(announcementJobRepository.save(job), emails);
+        });
+
+        // Each batch goes over one pooled SMTP connection, the batches of a page are sent in parallel
+        List<Notification> emails = commit.emails();
+        List<CompletableFuture<Integer>> deliveries = new ArrayList<>();
+        for (int from = 0; from < emails.size(); from += mailBatchSize) {
+            List<Notification> batch = emails.subList(from, Math.min(from + mailBatchSize, emails.size()));
+            deliveries.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return emailService.sendQueuedEmails(batch);
+                } catch (RuntimeException e) {
+                    // Still pending, the delivery retrier sends them once their lease runs out
+                    log.warn("Failed to send announcement {} to {} users: {}", job.getId(), batch.size(), e.getMessage());
+                    return batch.size();
+                }
+            }, announcementMailExecutor));
+        }
+        long failed = deliveries.stream().mapToLong(CompletableFuture::join).sum();
+
+        AnnouncementJob committed = commit.job();
+        committed.setEmailsSent(committed.getEmailsSent() + emails.size() - failed);
+        committed.setEmailsFailed(committed.getEmailsFailed() + failed);
+        return announcementJobRepository.save(committed);
+    }
+
+    private record PageCommit(AnnouncementJob job, List<Notification> emails) {
+    }
+}
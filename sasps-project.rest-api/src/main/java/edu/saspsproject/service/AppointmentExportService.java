@@ -0,0 +1,303 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.dto.request.AppointmentExportFilter;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.KeysetCursor;
+import edu.saspsproject.repository.projection.AppointmentExportRow;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Writes appointment exports straight to an output stream. Rows are read through a database cursor
+ * and written as they arrive, so memory use does not depend on the number of appointments.
+ */
+@Slf4j
+@Service
+public class AppointmentExportService {
+
+    private static final String CSV_HEADER = "ID,Title,Institution,Service Type,Date Time,Status,Priority Level,Duration";
+    // Rows written between two flushes of the response
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final AppointmentRepository appointmentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int deltaLagSeconds;
+
+    public AppointmentExportService(AppointmentRepository appointmentRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.export.delta-lag-seconds:60}") int deltaLagSeconds) {
+        this.appointmentRepository = appointmentRepository;
+        this.deltaLagSeconds = deltaLagSeconds;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // A page of the delta export: rows changed in (after, upTo]; upTo is null when nothing changed
+    public record DeltaPage(KeysetCursor after, KeysetCursor upTo, boolean hasMore) {
+        public KeysetCursor nextCursor() {
+            return upTo != null ? upTo : after;
+        }
+    }
+
+    // Returns the number of exported appointments
+    public long writeCsv(AppointmentExportFilter filter, OutputStream outputStream) {
+        filter.validate();
+        Long count = readOnlyTransaction.execute(status -> {
+            try (Stream<AppointmentExportRow> rows = appointmentRepository.streamExportRows(filter)) {
+                return writeCsvRows(rows, outputStream, false);
+            }
+        });
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Picks the rows of the next delta page: at most {@code limit} rows changed after the cursor.
+     * Changes younger than the configured lag are left for the next page, since a transaction
+     * that is still running may commit an older updatedAt than rows already visible.
+     */
+    public DeltaPage planDelta(KeysetCursor after, int limit) {
+        LocalDateTime until = LocalDateTime.now().minusSeconds(deltaLagSeconds);
+        Optional<KeysetCursor> upTo = appointmentRepository.findDeltaBoundary(after, until, limit);
+        boolean hasMore = upTo.isPresent() && appointmentRepository.findDeltaBoundary(upTo.get(), until, 1).isPresent();
+        return new DeltaPage(after, upTo.orElse(null), hasMore);
+    }
+
+    // Writes the rows of a planned delta page, with their last change time as an extra column
+    public long writeDeltaCsv(DeltaPage page, OutputStream outputStream) {
+        if (page.upTo() == null) {
+            return writeCsvRows(Stream.empty(), outputStream, true);
+        }
+        Long count = readOnlyTransaction.execute(status -> {
+            try (Stream<AppointmentExportRow> rows = appointmentRepository.streamChangedRows(page.after(), page.upTo())) {
+                return writeCsvRows(rows, outputStream, true);
+            }
+        });
+        return count != null ? count : 0;
+    }
+
+    private long writeCsvRows(Stream<AppointmentExportRow> rows, OutputStream outputStream, boolean withUpdatedAt) {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write(CSV_HEADER);
+            if (withUpdatedAt) {
+                writer.write(",Updated At");
+            }
+            writer.write('\n');
+            // The header goes out before the first row is fetched
+            writer.flush();
+
+            long written = 0;
+            Iterator<AppointmentExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                AppointmentExportRow row = iterator.next();
+                writeCsvRow(writer, row);
+                if (withUpdatedAt) {
+                    writer.write(',');
+                    writer.write(String.valueOf(row.updatedAt()));
+                }
+                writer.write('\n');
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+            return written;
+        } catch (IOException e) {
+            // Usually the client went away
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the PDF report of the matching appointments. Page content is buffered in a temporary
+     * file rather than on the heap and the document is saved straight to {@code outputStream}.
+     * Returns the number of reported appointments.
+     */
+    public long writePdf(AppointmentExportFilter filter, OutputStream outputStream) {
+        filter.validate();
+        Long count = readOnlyTransaction.execute(status -> {
+            long total = appointmentRepository.countExportRows(filter);
+            try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+                 Stream<AppointmentExportRow> rows = appointmentRepository.streamExportRows(filter)) {
+                PdfReportWriter report = new PdfReportWriter(document);
+                report.writeHeader(filter, total);
+                Iterator<AppointmentExportRow> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    report.writeRow(iterator.next());
+                }
+                report.close();
+                document.save(outputStream);
+                return total;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return count != null ? count : 0;
+    }
+
+    private void writeCsvRow(Writer writer, AppointmentExportRow row) throws IOException {
+        writer.write(String.valueOf(row.id()));
+        writer.write(',');
+        writeCsvField(writer, row.title());
+        writer.write(',');
+        writeCsvField(writer, row.institutionName());
+        writer.write(',');
+        writer.write(String.valueOf(row.serviceType()));
+        writer.write(',');
+        writer.write(String.valueOf(row.appointmentTime()));
+        writer.write(',');
+        writer.write(String.valueOf(row.status()));
+        writer.write(',');
+        writer.write(String.valueOf(row.priorityLevel()));
+        writer.write(',');
+        writer.write(String.valueOf(row.estimatedDuration()));
+    }
+
+    // Quotes free text only when it would break the row
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+        } else if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+        } else {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    // Lays out report rows page by page, keeping only the current page's content stream open
+    private static final class PdfReportWriter {
+        private static final float TOP = 750;
+        private static final float BOTTOM = 50;
+        private static final float ROW_HEIGHT = 12;
+        private static final Pattern DIACRITICS = Pattern.compile("\\p{M}");
+
+        private final PDDocument document;
+        private PDPageContentStream contentStream;
+        private float yPosition;
+
+        PdfReportWriter(PDDocument document) throws IOException {
+            this.document = document;
+            newPage();
+        }
+
+        void writeHeader(AppointmentExportFilter filter, long total) throws IOException {
+            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 16);
+            text(50, yPosition, "Appointments Report");
+
+            contentStream.setFont(PDType1Font.HELVETICA, 10);
+            text(50, 730, "Generated: " + LocalDateTime.now());
+            text(50, 715, "Total appointments: " + total);
+            float filterLine = 700;
+            if (filter.startDate() != null || filter.endDate() != null) {
+                text(50, filterLine, "Period: " + (filter.startDate() != null ? filter.startDate() : "...")
+                        + " - " + (filter.endDate() != null ? filter.endDate() : "..."));
+                filterLine -= 12;
+            }
+            if (filter.institutionId() != null) {
+                text(50, filterLine, "Institution: " + filter.institutionId());
+                filterLine -= 12;
+            }
+            if (filter.status() != null) {
+                text(50, filterLine, "Status: " + filter.status());
+                filterLine -= 12;
+            }
+
+            yPosition = filterLine - 10;
+            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 9);
+            contentStream.beginText();
+            contentStream.newLineAtOffset(50, yPosition);
+            contentStream.showText("ID");
+            contentStream.newLineAtOffset(30, 0);
+            contentStream.showText("Title");
+            contentStream.newLineAtOffset(120, 0);
+            contentStream.showText("Institution");
+            contentStream.newLineAtOffset(100, 0);
+            contentStream.showText("Date");
+            contentStream.newLineAtOffset(80, 0);
+            contentStream.showText("Status");
+            contentStream.endText();
+
+            yPosition -= 15;
+            contentStream.moveTo(50, yPosition);
+            contentStream.lineTo(550, yPosition);
+            contentStream.stroke();
+
+            yPosition -= 15;
+            contentStream.setFont(PDType1Font.HELVETICA, 8);
+        }
+
+        void writeRow(AppointmentExportRow row) throws IOException {
+            if (yPosition < BOTTOM) {
+                contentStream.close();
+                newPage();
+                contentStream.setFont(PDType1Font.HELVETICA, 8);
+            }
+
+            contentStream.beginText();
+            contentStream.newLineAtOffset(50, yPosition);
+            contentStream.showText(String.valueOf(row.id()));
+            contentStream.newLineAtOffset(30, 0);
+            contentStream.showText(truncate(row.title(), 15));
+            contentStream.newLineAtOffset(120, 0);
+            contentStream.showText(truncate(row.institutionName(), 12));
+            contentStream.newLineAtOffset(100, 0);
+            contentStream.showText(row.appointmentTime() != null ? row.appointmentTime().toString().substring(0, 16) : "");
+            contentStream.newLineAtOffset(80, 0);
+            contentStream.showText(String.valueOf(row.status()));
+            contentStream.endText();
+
+            yPosition -= ROW_HEIGHT;
+        }
+
+        void close() throws IOException {
+            contentStream.close();
+        }
+
+        private void newPage() throws IOException {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            yPosition = TOP;
+        }
+
+        private void text(float x, float y, String text) throws IOException {
+            contentStream.beginText();
+            contentStream.newLineAtOffset(x, y);
+            contentStream.showText(text);
+            contentStream.endText();
+        }
+
+        // The standard fonts only cover WinAnsi, so Romanian diacritics are reduced to their base letter
+        private static String truncate(String value, int length) {
+            if (value == null) {
+                return "";
+            }
+            String plain = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+            return plain.length() > length ? plain.substring(0, length) + "..." : plain;
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package edu.saspsproject.service;
 
 import edu.saspsproject.dto.request.AppointmentRequest;
+import edu.saspsproject.dto.request.AppointmentSearchCriteria;
+import edu.saspsproject.dto.request.SlotHoldRequest;
 import edu.saspsproject.dto.response.*;
 import edu.saspsproject.model.Appointment;
 import edu.saspsproject.model.Institution;
+import edu.saspsproject.model.OutboxEvent;
 import edu.saspsproject.model.User;
 import edu.saspsproject.repository.AppointmentRepository;
 import edu.saspsproject.repository.CountyRepository;
+import edu.saspsproject.repository.IdCursor;
 import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.KeysetCursor;
+import edu.saspsproject.repository.KeysetPage;
 import edu.saspsproject.repository.UserRepository;
+import edu.saspsproject.repository.projection.AppointmentSpan;
+import edu.saspsproject.repository.projection.GroupCount;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,9 +38,22 @@ public class AppointmentService {
     private final AppointmentRepository appointmentRepository;
     private final InstitutionRepository institutionRepository;
     private final UserRepository userRepository;
-    private final NotificationService notificationService;
     private final CountyRepository countyRepository;
-    private final EmailService emailService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final SlotOccupancyIndex slotOccupancyIndex;
+    private final ForkJoinPool availabilityPool;
+    private final SlotReservationEngine slotReservationEngine;
+    private final SlotHoldRegistry slotHoldRegistry;
+    private final AppointmentStatsRegistry appointmentStatsRegistry;
+    private final DailyStatsRollupService dailyStatsRollupService;
+
+    // Number of days shown in the availability calendar
+    private static final int AVAILABILITY_DAYS = 14;
+    // Longest date range accepted by the county-wide availability query
+    private static final int MAX_COUNTY_AVAILABILITY_DAYS = 31;
+    // Largest number of results returned by the earliest slot search
+    private static final int MAX_EARLIEST_SLOTS = 100;
 
     public Long saveAppointment(AppointmentRequest request) {
         // Complex validation logic, hardcoded without Validator pattern
@@ -39,6 +65,9 @@ public class AppointmentService {
         // Business rules validation, hardcoded without Strategy pattern
         validateBusinessRules(request, institution);
 
+        // Reject taken slots before touching the user
+        slotReservationEngine.ensureAvailable(request.getInstitutionId(), request.getAppointmentTime(), request.getHoldToken());
+
         User user = findOrCreateUser(request);
 
         // Create appointment with complex logic, no Factory pattern
@@ -50,11 +79,16 @@ public class AppointmentService {
         // Set priority and status based on complex rules, no Strategy pattern
         setPriorityAndStatus(appointment);
 
-        // Save in DB
-        Appointment saved = appointmentRepository.save(appointment);
-
-        // Send different notifications based on institution type, hardcoded without Adapter pattern
-        sendNotifications(saved);
+        // Save in DB, atomically with respect to other bookings of the same slot.
+        // Notifications go through the outbox, written in the same transaction
+        Appointment saved = slotReservationEngine.reserve(appointment.getInstitutionId(), appointment.getAppointmentTime(),
+                request.getHoldToken(), () -> transactionTemplate.execute(status -> {
+                    // Flushed right away so a concurrent booking of the slot fails here, not at commit
+                    Appointment booked = appointmentRepository.saveAndFlush(appointment);
+                    outboxService.record(OutboxEvent.EventType.APPOINTMENT_BOOKED, booked, null);
+                    return booked;
+                }));
+        appointmentStatsRegistry.created(saved);
 
         return saved.getId();
     }
@@ -125,6 +159,7 @@ public class AppointmentService {
         appointment.setPriorityLevel(parsePriorityLevel(request.getPriorityLevel()));
         appointment.setDocumentRequired(request.getDocumentRequired());
         appointment.setReminderSent(false);
+        appointment.setActiveSlot(true);
         appointment.setCreatedAt(now);
         appointment.setUpdatedAt(now);
 
@@ -177,75 +212,204 @@ public class AppointmentService {
         }
     }
 
-    private void sendNotifications(Appointment appointment) {
-        // Hardcoded notification logic, should use Adapter pattern in v2
-        notificationService.sendConfirmation(appointment);
-        
-        // Tightly coupled email sending, no event-driven architecture
+    public AvailabilityResponse getAvailability(Long institutionId, Optional<LocalDate> startDate) {
+        SlotTemplate template = slotOccupancyIndex.template(institutionId);
+        LocalDate firstDay = startDate.orElseGet(() -> LocalDate.now().plusDays(1));
+
+        // Only the rendered window is read from the database, and only the first time
+        List<BitSet> freeByDay = slotOccupancyIndex.freeSlots(institutionId, firstDay, AVAILABILITY_DAYS);
+
+        clearHeldSlots(institutionId, template, firstDay, freeByDay);
+
+        return new AvailabilityResponse(institutionId, toSlotTimes(template, firstDay, freeByDay));
+    }
+
+    // Same window as getAvailability, encoded as one free-slot mask per day
+    public CompactAvailabilityResponse getCompactAvailability(Long institutionId, Optional<LocalDate> startDate) {
+        SlotTemplate template = slotOccupancyIndex.template(institutionId);
+        LocalDate firstDay = startDate.orElseGet(() -> LocalDate.now().plusDays(1));
+        List<BitSet> freeByDay = slotOccupancyIndex.freeSlots(institutionId, firstDay, AVAILABILITY_DAYS);
+        clearHeldSlots(institutionId, template, firstDay, freeByDay);
+        clearUnbookableSlots(template, firstDay, freeByDay);
+
+        int maskLength = (template.slotCount() + 7) / 8;
+        List<byte[]> masks = freeByDay.stream()
+                .map(free -> Arrays.copyOf(free.toByteArray(), maskLength))
+                .toList();
+        return new CompactAvailabilityResponse(institutionId, firstDay, template.openingTime(),
+                template.intervalMinutes(), template.slotCount(), masks);
+    }
+
+    // Availability of every institution of a county, computed from one set-based query
+    public List<AvailabilityResponse> getCountyAvailability(Long countyId, Optional<LocalDate> startDate, Optional<LocalDate> endDate) {
+        LocalDate firstDay = startDate.orElseGet(() -> LocalDate.now().plusDays(1));
+        LocalDate lastDay = endDate.orElseGet(() -> firstDay.plusDays(AVAILABILITY_DAYS - 1));
+        long days = ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+        if (days < 1 || days > MAX_COUNTY_AVAILABILITY_DAYS) {
+            throw new IllegalArgumentException("Date range must cover between 1 and " + MAX_COUNTY_AVAILABILITY_DAYS + " days");
+        }
+
+        List<Institution> institutions = institutionRepository.findByCountyIdOrCountyIdIsNull(countyId);
+        slotOccupancyIndex.preload(institutions, firstDay, (int) days);
+
         try {
-            User user = userRepository.findById(appointment.getUserId()).orElse(null);
-            if (user != null && user.getEmailNotificationsEnabled()) {
-                Institution institution = institutionRepository.findById(appointment.getInstitutionId()).orElse(null);
-                String institutionName = institution != null ? institution.getName() : "Instituție necunoscută";
-                emailService.sendAppointmentConfirmationEmail(user, appointment, institutionName);
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to send confirmation email: " + e.getMessage());
+            return availabilityPool.submit(() -> institutions.parallelStream()
+                    .map(institution -> {
+                        SlotTemplate template = slotOccupancyIndex.template(institution);
+                        List<BitSet> freeByDay = slotOccupancyIndex.freeSlots(institution, firstDay, (int) days);
+                        clearHeldSlots(institution.getId(), template, firstDay, freeByDay);
+                        return new AvailabilityResponse(institution.getId(), toSlotTimes(template, firstDay, freeByDay));
+                    })
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing county availability", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to compute county availability", e.getCause());
         }
     }
 
-    public AvailabilityResponse getAvailability(Long institutionId, Optional<LocalDate> startDate) {
-        Institution institution = institutionRepository.findById(institutionId)
-                .orElseThrow(() -> new IllegalArgumentException("Institution not found"));
+    /**
+     * Returns the {@code limit} earliest free slots across all institutions of the given type,
+     * optionally restricted to a county. Each institution contributes a lazy cursor over its free
+     * slots and the cursors are merged through a priority queue, so the search stops as soon as
+     * enough slots are found.
+     */
+    public List<EarliestSlotResponse> findEarliestSlots(String institutionType, Optional<Long> countyId, int limit) {
+        Institution.InstitutionType type;
+        try {
+            type = Institution.InstitutionType.valueOf(institutionType.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid institution type: " + institutionType);
+        }
+        if (limit < 1 || limit > MAX_EARLIEST_SLOTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_EARLIEST_SLOTS);
+        }
 
-        // Generate slots based on institution-specific rules, hardcoded
-        List<LocalDateTime> allSlots = generateAvailableSlots(institution, startDate);
+        List<Institution> institutions = countyId
+                .map(id -> institutionRepository.findByTypeInCounty(type, id))
+                .orElseGet(() -> institutionRepository.findByType(type));
 
-        // Get all booked slots
-        Set<LocalDateTime> bookedSlots = appointmentRepository.findByInstitutionId(institutionId)
-                .stream()
-                .map(Appointment::getAppointmentTime)
-                .collect(Collectors.toSet());
+        LocalDate firstDay = LocalDate.now();
+        slotOccupancyIndex.preload(institutions, firstDay, AVAILABILITY_DAYS);
 
-        // Filter available slots
-        List<LocalDateTime> availableSlots = allSlots.stream()
-                .filter(slot -> slot.isAfter(LocalDateTime.now().plusHours(2)))
-                .filter(slot -> !bookedSlots.contains(slot))
-                .collect(Collectors.toList());
+        LocalDateTime earliest = LocalDateTime.now().plusHours(2);
+        PriorityQueue<SlotCursor> queue = new PriorityQueue<>(Math.max(1, institutions.size()));
+        for (Institution institution : institutions) {
+            SlotCursor cursor = new SlotCursor(institution, firstDay, earliest);
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
 
-        return new AvailabilityResponse(institutionId, availableSlots);
+        List<EarliestSlotResponse> result = new ArrayList<>(limit);
+        while (result.size() < limit && !queue.isEmpty()) {
+            SlotCursor cursor = queue.poll();
+            result.add(new EarliestSlotResponse(cursor.institution.getId(), cursor.institution.getName(), cursor.current));
+            // Nothing past the last requested slot is read
+            if (result.size() < limit && cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return result;
     }
 
-    private List<LocalDateTime> generateAvailableSlots(Institution institution, Optional<LocalDate> startDateRequest) {
-        List<LocalDateTime> slots = new ArrayList<>();
-        LocalDate startDate = startDateRequest.orElseGet(() -> LocalDate.now().plusDays(1));
+    // Walks the free slots of one institution in time order, one day bitmap at a time
+    private final class SlotCursor implements Comparable<SlotCursor> {
+        private final Institution institution;
+        private final SlotTemplate template;
+        private final LocalDate firstDay;
+        private final LocalDateTime earliest;
+        private int day = -1;
+        private BitSet free;
+        private int slot;
+        private LocalDateTime current;
+
+        private SlotCursor(Institution institution, LocalDate firstDay, LocalDateTime earliest) {
+            this.institution = institution;
+            this.template = slotOccupancyIndex.template(institution);
+            this.firstDay = firstDay;
+            this.earliest = earliest;
+        }
 
-        for (int day = 0; day < 14; day++) {
-            LocalDate currentDate = startDate.plusDays(day);
+        boolean advance() {
+            while (true) {
+                if (free != null) {
+                    slot = free.nextSetBit(slot + 1);
+                    if (slot >= 0) {
+                        current = template.slotAt(firstDay.plusDays(day), slot);
+                        if (current.isAfter(earliest) && !slotHoldRegistry.isHeldByOther(institution.getId(), current, null)) {
+                            return true;
+                        }
+                        continue;
+                    }
+                }
+                if (++day >= AVAILABILITY_DAYS) {
+                    return false;
+                }
+                free = slotOccupancyIndex.freeSlots(institution, firstDay.plusDays(day), 1).get(0);
+                slot = -1;
+            }
+        }
 
-            boolean weekend = currentDate.getDayOfWeek().getValue() == 6
-                    || currentDate.getDayOfWeek().getValue() == 7;
+        @Override
+        public int compareTo(SlotCursor other) {
+            int byTime = current.compareTo(other.current);
+            return byTime != 0 ? byTime : institution.getId().compareTo(other.institution.getId());
+        }
+    }
 
-            // Skip weekends for government institutions, hardcoded logic
-            if (weekend && (institution.getType() == Institution.InstitutionType.PRIMARIA
-                    || institution.getType() == Institution.InstitutionType.ANAF)) {
-                continue;
+    private List<LocalDateTime> toSlotTimes(SlotTemplate template, LocalDate firstDay, List<BitSet> freeByDay) {
+        clearUnbookableSlots(template, firstDay, freeByDay);
+        List<LocalDateTime> slotTimes = new ArrayList<>();
+        for (int day = 0; day < freeByDay.size(); day++) {
+            LocalDate currentDate = firstDay.plusDays(day);
+            BitSet free = freeByDay.get(day);
+            for (int slot = free.nextSetBit(0); slot >= 0; slot = free.nextSetBit(slot + 1)) {
+                slotTimes.add(template.slotAt(currentDate, slot));
             }
+        }
+        return slotTimes;
+    }
 
-            LocalTime currentTime = institution.getOpeningTime();
-            while (currentTime.isBefore(institution.getClosingTime())) {
-                slots.add(LocalDateTime.of(currentDate, currentTime));
+    // Slots held by a booking form in progress are not offered to anyone else
+    private void clearHeldSlots(Long institutionId, SlotTemplate template, LocalDate firstDay, List<BitSet> freeByDay) {
+        for (LocalDateTime held : slotHoldRegistry.heldSlots(institutionId)) {
+            long day = ChronoUnit.DAYS.between(firstDay, held.toLocalDate());
+            int slot = template.slotIndexOf(held.toLocalTime());
+            if (day >= 0 && day < freeByDay.size() && slot >= 0) {
+                freeByDay.get((int) day).clear(slot);
+            }
+        }
+    }
 
-                // Different slot intervals based on institution type,- hardcoded
-                if (institution.getType() == Institution.InstitutionType.ANAF) {
-                    currentTime = currentTime.plusMinutes(45);
-                } else {
-                    currentTime = currentTime.plusMinutes(30);
+    // Slots starting less than 2 hours from now cannot be booked anymore
+    private void clearUnbookableSlots(SlotTemplate template, LocalDate firstDay, List<BitSet> freeByDay) {
+        LocalDateTime earliest = LocalDateTime.now().plusHours(2);
+        for (int day = 0; day < freeByDay.size(); day++) {
+            LocalDate currentDate = firstDay.plusDays(day);
+            if (currentDate.isAfter(earliest.toLocalDate())) {
+                break;
+            }
+            BitSet free = freeByDay.get(day);
+            for (int slot = free.nextSetBit(0); slot >= 0; slot = free.nextSetBit(slot + 1)) {
+                if (!template.slotAt(currentDate, slot).isAfter(earliest)) {
+                    free.clear(slot);
                 }
             }
         }
+    }
 
-        return slots;
+    public SlotHoldResponse holdSlot(SlotHoldRequest request) {
+        if (request.getInstitutionId() == null || request.getAppointmentTime() == null) {
+            throw new IllegalArgumentException("Institution ID and appointment time are required");
+        }
+        SlotHoldRegistry.Hold hold = slotHoldRegistry.hold(request.getInstitutionId(), request.getAppointmentTime(), request.getTtlSeconds());
+        return new SlotHoldResponse(hold.token(), hold.institutionId(), hold.appointmentTime(), hold.expiresAt());
+    }
+
+    public void releaseHold(String holdToken) {
+        slotHoldRegistry.release(holdToken);
     }
 
     // Additional methods that show complexity without patterns
@@ -263,75 +427,77 @@ public class AppointmentService {
         return institutionRepository.findByCountyIdOrCountyIdIsNull(countyId).stream().map(institution -> new InstitutionResponse(institution.getId(), institution.getName(), institution.getType().toString())).collect(Collectors.toList());
     }
 
-    public List<Appointment> getAllAppointments() {
-        return appointmentRepository.findAll();
+    // Appointments in id order, one keyset page at a time
+    public KeysetPage<Appointment> getAllAppointments(String cursor, int size) {
+        KeysetPage.checkSize(size);
+        IdCursor after = IdCursor.decode(cursor, 0);
+        return KeysetPage.of(appointmentRepository.findByIdGreaterThanOrderByIdAsc(after.id(), Limit.of(size + 1)),
+                size, appointment -> new IdCursor(appointment.getId()).encode());
     }
 
     public Map<String, Object> getGlobalStats() {
-        List<Appointment> all = appointmentRepository.findAll();
+        Optional<Map<String, Object>> counted = appointmentStatsRegistry.globalStats();
+        if (counted.isPresent()) {
+            Map<String, Object> stats = counted.get();
+            stats.put("totalInstitutions", institutionRepository.count());
+            return stats;
+        }
+
+        // Counters not seeded yet, aggregate in the database
         Map<String, Object> stats = new HashMap<>();
 
-        stats.put("totalAppointments", all.size());
+        Map<Appointment.Status, Long> byStatus = toMap(appointmentRepository.countByStatus());
+        stats.put("totalAppointments", byStatus.values().stream().mapToLong(Long::longValue).sum());
         stats.put("totalInstitutions", institutionRepository.count());
-
-        // Group by institution
-        Map<Long, Long> byInstitution = all.stream()
-                .collect(Collectors.groupingBy(
-                        Appointment::getInstitutionId,
-                        Collectors.counting()
-                ));
-        stats.put("appointmentsByInstitution", byInstitution);
-
-        // Group by service type
-        Map<Appointment.ServiceType, Long> byService = all.stream()
-                .filter(a -> a.getServiceType() != null)
-                .collect(Collectors.groupingBy(
-                        Appointment::getServiceType,
-                        Collectors.counting()
-                ));
-        stats.put("appointmentsByService", byService);
+        stats.put("appointmentsByInstitution", toMap(appointmentRepository.countByInstitution()));
+        stats.put("appointmentsByService", toMap(appointmentRepository.countByServiceType()));
+        stats.put("appointmentsByStatus", byStatus);
 
         return stats;
     }
 
     public Map<String, Object> getInstitutionStats(Long institutionId) {
-        List<Appointment> appointments = appointmentRepository.findByInstitutionId(institutionId);
+        Optional<Map<String, Object>> counted = appointmentStatsRegistry.institutionStats(institutionId);
+        if (counted.isPresent()) {
+            Map<String, Object> stats = counted.get();
+            Institution institution = institutionRepository.findById(institutionId).orElse(null);
+            stats.put("institutionId", institutionId);
+            stats.put("institutionName", institution != null ? institution.getName() : "Unknown");
+            dailyStatsRollupService.averagePerDay(institutionId)
+                    .ifPresent(average -> stats.put("averageAppointmentsPerDay", average));
+            return stats;
+        }
+
+        AppointmentSpan span = appointmentRepository.findAppointmentSpan(institutionId);
         Institution institution = institutionRepository.findById(institutionId).orElse(null);
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("institutionId", institutionId);
         stats.put("institutionName", institution != null ? institution.getName() : "Unknown");
-        stats.put("totalAppointments", appointments.size());
-
-        // Group by service type for this institution
-        Map<Appointment.ServiceType, Long> byService = appointments.stream()
-                .filter(a -> a.getServiceType() != null)
-                .collect(Collectors.groupingBy(
-                        Appointment::getServiceType,
-                        Collectors.counting()
-                ));
-        stats.put("appointmentsByService", byService);
-
-        // Calculate average appointments per day
-        if (!appointments.isEmpty()) {
-            LocalDate firstDate = appointments.stream()
-                    .map(a -> a.getAppointmentTime().toLocalDate())
-                    .min(LocalDate::compareTo)
-                    .orElse(LocalDate.now());
-
-            LocalDate lastDate = appointments.stream()
-                    .map(a -> a.getAppointmentTime().toLocalDate())
-                    .max(LocalDate::compareTo)
-                    .orElse(LocalDate.now());
-
-            long daysBetween = Math.max(1, firstDate.until(lastDate).getDays() + 1);
-            double avgPerDay = (double) appointments.size() / daysBetween;
-            stats.put("averageAppointmentsPerDay", avgPerDay);
+        stats.put("totalAppointments", span.getTotal());
+        stats.put("appointmentsByService", toMap(appointmentRepository.countByServiceType(institutionId)));
+        stats.put("appointmentsByStatus", toMap(appointmentRepository.countByStatus(institutionId)));
+
+        // Average over the days between the first and the last appointment, both included,
+        // taken from the daily rollup unless it has not covered the institution yet
+        OptionalDouble rolledUpAverage = dailyStatsRollupService.averagePerDay(institutionId);
+        if (rolledUpAverage.isPresent()) {
+            stats.put("averageAppointmentsPerDay", rolledUpAverage.getAsDouble());
+        } else if (span.getTotal() > 0) {
+            long days = ChronoUnit.DAYS.between(span.getFirstAppointment().toLocalDate(),
+                    span.getLastAppointment().toLocalDate()) + 1;
+            stats.put("averageAppointmentsPerDay", (double) span.getTotal() / days);
         }
 
         return stats;
     }
 
+    private static <K> Map<K, Long> toMap(List<GroupCount<K>> counts) {
+        Map<K, Long> map = new HashMap<>();
+        counts.forEach(count -> map.put(count.getGroupKey(), count.getTotal()));
+        return map;
+    }
+
     public List<Appointment> getAppointmentsByDate(String dateString) {
         LocalDate date;
         try {
@@ -340,16 +506,33 @@ public class AppointmentService {
             throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
         }
 
-        return appointmentRepository.findAll().stream()
-                .filter(a -> a.getAppointmentTime().toLocalDate().equals(date))
-                .collect(Collectors.toList());
+        return appointmentRepository.findByAppointmentTimeInRange(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
     }
 
     public List<Appointment> getAppointmentsByService(String serviceType) {
-        Appointment.ServiceType parsed = parseServiceType(serviceType);
-        return appointmentRepository.findAll().stream()
-                .filter(a -> parsed == a.getServiceType())
-                .collect(Collectors.toList());
+        return appointmentRepository.findByServiceType(parseServiceType(serviceType));
+    }
+
+    /**
+     * One keyset page of the appointments matching every given criterion, ordered by
+     * (appointmentTime, id). A customer email, when given, is resolved to its user first.
+     */
+    public KeysetPage<Appointment> searchAppointments(AppointmentSearchCriteria criteria, String email, String cursor, int size) {
+        criteria.validate();
+        KeysetPage.checkSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        if (email != null && !email.isBlank()) {
+            Long userId = userRepository.findByEmail(email).map(User::getId).orElse(null);
+            if (userId == null || (criteria.userId() != null && !criteria.userId().equals(userId))) {
+                return new KeysetPage<>(List.of(), null);
+            }
+            criteria = new AppointmentSearchCriteria(criteria.institutionId(), criteria.countyId(), criteria.status(),
+                    criteria.serviceType(), criteria.priorityLevel(), criteria.startDate(), criteria.endDate(), userId);
+        }
+
+        return KeysetPage.of(appointmentRepository.search(criteria, after, size + 1), size,
+                appointment -> new KeysetCursor(appointment.getAppointmentTime(), appointment.getId()).encode());
     }
 
     public List<CountyResponse> getAllCounties() {
@@ -360,67 +543,44 @@ public class AppointmentService {
     public void cancelAppointment(Long appointmentId, String reason) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
-        
+
+        Appointment.Status previousStatus = appointment.getStatus();
         appointment.setStatus(Appointment.Status.CANCELLED);
+        appointment.setActiveSlot(null);
         appointment.setUpdatedAt(LocalDateTime.now());
-        appointmentRepository.save(appointment);
-
-        // Hardcoded notification sending, no event system
-        try {
-            User user = userRepository.findById(appointment.getUserId()).orElse(null);
-            if (user != null && user.getEmailNotificationsEnabled()) {
-                Institution institution = institutionRepository.findById(appointment.getInstitutionId()).orElse(null);
-                String institutionName = institution != null ? institution.getName() : "Instituție necunoscută";
-                emailService.sendAppointmentCancellationEmail(user, appointment, institutionName, reason);
-            }
-            
-            notificationService.createNotification(
-                appointment.getUserId(),
-                "Programarea dumneavoastră a fost anulată" + (reason != null ? ": " + reason : ""),
-                "CANCELLATION"
-            );
-        } catch (Exception e) {
-            System.err.println("Failed to send cancellation notifications: " + e.getMessage());
-        }
+        saveWithEvent(appointment, previousStatus, OutboxEvent.EventType.APPOINTMENT_CANCELLED, reason);
+        slotOccupancyIndex.markFree(appointment.getInstitutionId(), appointment.getAppointmentTime());
     }
 
     // Confirm appointment
     public void confirmAppointment(Long appointmentId) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
-        
+
+        Appointment.Status previousStatus = appointment.getStatus();
         appointment.setStatus(Appointment.Status.CONFIRMED);
         appointment.setUpdatedAt(LocalDateTime.now());
-        appointmentRepository.save(appointment);
-
-        try {
-            notificationService.createNotification(
-                appointment.getUserId(),
-                "Programarea dumneavoastră a fost confirmată",
-                "CONFIRMATION"
-            );
-        } catch (Exception e) {
-            System.err.println("Failed to send confirmation notification: " + e.getMessage());
-        }
+        saveWithEvent(appointment, previousStatus, OutboxEvent.EventType.APPOINTMENT_CONFIRMED, null);
     }
 
     // Complete appointment
     public void completeAppointment(Long appointmentId) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
-        
+
+        Appointment.Status previousStatus = appointment.getStatus();
         appointment.setStatus(Appointment.Status.COMPLETED);
         appointment.setUpdatedAt(LocalDateTime.now());
-        appointmentRepository.save(appointment);
+        saveWithEvent(appointment, previousStatus, OutboxEvent.EventType.APPOINTMENT_COMPLETED, null);
+    }
 
-        try {
-            notificationService.createNotification(
-                appointment.getUserId(),
-                "Programarea dumneavoastră a fost finalizată",
-                "COMPLETION"
-            );
-        } catch (Exception e) {
-            System.err.println("Failed to send completion notification: " + e.getMessage());
-        }
+    // Saves the appointment and records its notification event in one transaction
+    private void saveWithEvent(Appointment appointment, Appointment.Status previousStatus,
+                               OutboxEvent.EventType eventType, String payload) {
+        transactionTemplate.executeWithoutResult(status -> {
+            appointmentRepository.save(appointment);
+            outboxService.record(eventType, appointment, payload);
+        });
+        appointmentStatsRegistry.statusChanged(appointment, previousStatus);
     }
 }
@@ -0,0 +1,213 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.projection.AppointmentChange;
+import edu.saspsproject.repository.projection.AppointmentStatsBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appointment counters by institution, service type, status and day, kept in memory so the
+ * statistics endpoints never scan the appointments table. Seeded from one GROUP BY query at
+ * startup, then updated by the services after each committed change. A change committed while
+ * the counters are being rebuilt may be counted once too often or not at all; the scheduled
+ * reconciliation (app.stats.reconcile-cron, hourly by default) rebuilds them from the database to
+ * correct such drift. Until the first rebuild is done the statistics are empty and callers query
+ * the database instead.
+ */
+@Slf4j
+@Component
+public class AppointmentStatsRegistry {
+
+    private final AppointmentRepository appointmentRepository;
+
+    // Replaced as a whole by a rebuild, null until the first one is done
+    private volatile Snapshot snapshot;
+
+    public AppointmentStatsRegistry(AppointmentRepository appointmentRepository) {
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    public void created(Appointment appointment) {
+        apply(appointment, appointment.getStatus(), 1);
+    }
+
+    public void statusChanged(Appointment appointment, Appointment.Status previousStatus) {
+        statusChanged(appointment.getInstitutionId(), previousStatus, appointment.getStatus());
+    }
+
+    // For bulk statements, which report the changed rows instead of entities
+    public void statusChanged(Long institutionId, Appointment.Status previousStatus, Appointment.Status status) {
+        if (previousStatus == status) {
+            return;
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        for (Counters counters : current.countersOf(institutionId)) {
+            if (previousStatus != null) {
+                counters.status(previousStatus).decrement();
+            }
+            if (status != null) {
+                counters.status(status).increment();
+            }
+        }
+    }
+
+    public void deleted(Appointment appointment) {
+        apply(appointment, appointment.getStatus(), -1);
+    }
+
+    public void deleted(AppointmentChange change) {
+        apply(change.institutionId(), change.serviceType(), change.previousStatus(), change.appointmentTime().toLocalDate(), -1);
+    }
+
+    // Same shape as the statistics computed from the database, empty until the counters are seeded
+    public Optional<Map<String, Object>> globalStats() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalAppointments", current.global.total.sum());
+        Map<Long, Long> byInstitution = new HashMap<>();
+        current.byInstitution.forEach((institutionId, counters) -> {
+            long total = counters.total.sum();
+            if (total > 0) {
+                byInstitution.put(institutionId, total);
+            }
+        });
+        stats.put("appointmentsByInstitution", byInstitution);
+        stats.put("appointmentsByService", sums(current.global.byService));
+        stats.put("appointmentsByStatus", sums(current.global.byStatus));
+        return Optional.of(stats);
+    }
+
+    public Optional<Map<String, Object>> institutionStats(Long institutionId) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        Counters counters = current.byInstitution.getOrDefault(institutionId, new Counters());
+        Map<String, Object> stats = new HashMap<>();
+        long total = counters.total.sum();
+        stats.put("totalAppointments", total);
+        stats.put("appointmentsByService", sums(counters.byService));
+        stats.put("appointmentsByStatus", sums(counters.byStatus));
+        if (total > 0) {
+            stats.put("averageAppointmentsPerDay", (double) total / counters.activeDaySpan());
+        }
+        return Optional.of(stats);
+    }
+
+    private void apply(Appointment appointment, Appointment.Status status, long delta) {
+        apply(appointment.getInstitutionId(), appointment.getServiceType(), status,
+                appointment.getAppointmentTime().toLocalDate(), delta);
+    }
+
+    private void apply(Long institutionId, Appointment.ServiceType serviceType, Appointment.Status status, LocalDate day, long delta) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // The seed will read the change from the database
+            return;
+        }
+        for (Counters counters : current.countersOf(institutionId)) {
+            counters.add(serviceType, status, day, delta);
+        }
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        List<AppointmentStatsBucket> buckets = appointmentRepository.findStatsBuckets();
+        Snapshot rebuilt = new Snapshot();
+        for (AppointmentStatsBucket bucket : buckets) {
+            for (Counters counters : rebuilt.countersOf(bucket.getInstitutionId())) {
+                counters.add(bucket.getServiceType(), bucket.getStatus(), bucket.getDay(), bucket.getTotal());
+            }
+        }
+        snapshot = rebuilt;
+        log.info("Rebuilt appointment statistics from {} buckets in {} ms", buckets.size(), System.currentTimeMillis() - started);
+    }
+
+    private static <K> Map<K, Long> sums(Map<K, LongAdder> adders) {
+        Map<K, Long> sums = new HashMap<>();
+        adders.forEach((key, adder) -> {
+            long sum = adder.sum();
+            if (sum > 0) {
+                sums.put(key, sum);
+            }
+        });
+        return sums;
+    }
+
+    private static final class Snapshot {
+        private final Counters global = new Counters();
+        private final Map<Long, Counters> byInstitution = new ConcurrentHashMap<>();
+
+        // The global counters and the institution's own
+        Counters[] countersOf(Long institutionId) {
+            return new Counters[]{global, byInstitution.computeIfAbsent(institutionId, id -> new Counters())};
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder total = new LongAdder();
+        private final Map<Appointment.ServiceType, LongAdder> byService = new ConcurrentHashMap<>();
+        private final Map<Appointment.Status, LongAdder> byStatus = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<LocalDate, LongAdder> byDay = new ConcurrentSkipListMap<>();
+
+        void add(Appointment.ServiceType serviceType, Appointment.Status status, LocalDate day, long delta) {
+            total.add(delta);
+            if (serviceType != null) {
+                byService.computeIfAbsent(serviceType, type -> new LongAdder()).add(delta);
+            }
+            if (status != null) {
+                status(status).add(delta);
+            }
+            if (day != null) {
+                byDay.computeIfAbsent(day, d -> new LongAdder()).add(delta);
+            }
+        }
+
+        LongAdder status(Appointment.Status status) {
+            return byStatus.computeIfAbsent(status, s -> new LongAdder());
+        }
+
+        // Days from the first to the last day with appointments, both included
+        long activeDaySpan() {
+            LocalDate first = byDay.entrySet().stream()
+                    .filter(entry -> entry.getValue().sum() > 0).map(Map.Entry::getKey).findFirst().orElse(null);
+            LocalDate last = byDay.descendingMap().entrySet().stream()
+                    .filter(entry -> entry.getValue().sum() > 0).map(Map.Entry::getKey).findFirst().orElse(null);
+            if (first == null || last == null) {
+                return 1;
+            }
+            return ChronoUnit.DAYS.between(first, last) + 1;
+        }
+    }
+}
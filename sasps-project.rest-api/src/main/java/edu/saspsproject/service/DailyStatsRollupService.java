@@ -0,0 +1,179 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.dto.response.DailyStatsResponse;
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.DailyAppointmentStats;
+import edu.saspsproject.model.RollupWatermark;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.DailyAppointmentStatsRepository;
+import edu.saspsproject.repository.RollupWatermarkRepository;
+import edu.saspsproject.repository.projection.DailyStatsRow;
+import edu.saspsproject.repository.projection.RollupSpan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Appointment counts per day, institution, service type and status kept in daily_appointment_stats,
+ * so trend charts over several years read a few rows per day instead of the appointments table.
+ * The scheduled refresh recomputes only the days of the appointments changed since its watermark
+ * (their updatedAt), each day in its own transaction, and then moves the watermark forward.
+ * Hard deletes leave no updatedAt behind: their days are reported with {@link #markDirty} and kept
+ * in memory until the next refresh, so a restart in between leaves those days stale until they
+ * change again.
+ */
+@Slf4j
+@Service
+public class DailyStatsRollupService {
+
+    private static final String WATERMARK_NAME = "daily_appointment_stats";
+    private static final LocalDateTime INITIAL_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+    // Longest date range accepted by the daily statistics query, about ten years
+    private static final int MAX_DAILY_STATS_DAYS = 3660;
+    // Range returned when the caller gives no start date
+    private static final int DEFAULT_DAILY_STATS_DAYS = 30;
+
+    private final AppointmentRepository appointmentRepository;
+    private final DailyAppointmentStatsRepository dailyStatsRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int lagSeconds;
+
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    public DailyStatsRollupService(AppointmentRepository appointmentRepository,
+                                   DailyAppointmentStatsRepository dailyStatsRepository,
+                                   RollupWatermarkRepository watermarkRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${app.rollup.lag-seconds:60}") int lagSeconds) {
+        this.appointmentRepository = appointmentRepository;
+        this.dailyStatsRepository = dailyStatsRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.lagSeconds = lagSeconds;
+    }
+
+    // Days whose appointments were removed from the table, recomputed by the next refresh
+    public void markDirty(Collection<LocalDate> days) {
+        dirtyDays.addAll(days);
+    }
+
+    @Scheduled(cron = "${app.rollup.cron:0 */10 * * * *}")
+    public void refresh() {
+        // Changes younger than the lag may still belong to uncommitted transactions
+        LocalDateTime until = LocalDateTime.now().minusSeconds(lagSeconds);
+        RollupWatermark watermark = watermarkRepository.findById(WATERMARK_NAME)
+                .orElseGet(() -> new RollupWatermark(WATERMARK_NAME, INITIAL_WATERMARK, null));
+        if (!until.isAfter(watermark.getWatermark())) {
+            return;
+        }
+
+        Set<LocalDate> days = new TreeSet<>();
+        for (LocalDate day : List.copyOf(dirtyDays)) {
+            dirtyDays.remove(day);
+            days.add(day);
+        }
+        try {
+            days.addAll(appointmentRepository.findDaysChangedBetween(watermark.getWatermark(), until));
+            for (LocalDate day : days) {
+                transactionTemplate.executeWithoutResult(status -> rollUp(day));
+            }
+        } catch (RuntimeException e) {
+            // The watermark stays put, so changed days are found again; deleted ones must be kept
+            dirtyDays.addAll(days);
+            throw e;
+        }
+
+        watermark.setWatermark(until);
+        watermark.setLastRunAt(LocalDateTime.now());
+        watermarkRepository.save(watermark);
+        if (!days.isEmpty()) {
+            log.info("Rolled up appointment statistics of {} days, watermark at {}", days.size(), until);
+        }
+    }
+
+    // Days rolled up so far, null before the first refresh
+    public LocalDateTime rolledUpUntil() {
+        return watermarkRepository.findById(WATERMARK_NAME).map(RollupWatermark::getWatermark).orElse(null);
+    }
+
+    /**
+     * Average number of appointments per day between the institution's first and last rolled-up
+     * day, both included; empty when nothing was rolled up for the institution yet.
+     */
+    public OptionalDouble averagePerDay(Long institutionId) {
+        RollupSpan span = dailyStatsRepository.findSpan(institutionId);
+        if (span.getTotal() == null || span.getTotal() == 0) {
+            return OptionalDouble.empty();
+        }
+        long days = ChronoUnit.DAYS.between(span.getFirstDay(), span.getLastDay()) + 1;
+        return OptionalDouble.of((double) span.getTotal() / days);
+    }
+
+    public DailyStatsResponse getDailyStats(Long institutionId, Optional<LocalDate> startDate, Optional<LocalDate> endDate) {
+        LocalDate to = endDate.orElse(LocalDate.now());
+        LocalDate from = startDate.orElse(to.minusDays(DEFAULT_DAILY_STATS_DAYS - 1));
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAILY_STATS_DAYS) {
+            throw new IllegalArgumentException("Date range cannot exceed " + MAX_DAILY_STATS_DAYS + " days");
+        }
+
+        List<DailyStatsRow> rows = institutionId == null
+                ? dailyStatsRepository.findDailyTotals(from, to)
+                : dailyStatsRepository.findDailyTotals(institutionId, from, to);
+
+        // Days without appointments have no rows and are left out
+        Map<LocalDate, Map<Appointment.Status, Long>> byStatus = new TreeMap<>();
+        Map<LocalDate, Map<Appointment.ServiceType, Long>> byService = new TreeMap<>();
+        for (DailyStatsRow row : rows) {
+            Map<Appointment.Status, Long> statuses = byStatus.computeIfAbsent(row.getDay(), day -> new EnumMap<>(Appointment.Status.class));
+            Map<Appointment.ServiceType, Long> services = byService.computeIfAbsent(row.getDay(), day -> new EnumMap<>(Appointment.ServiceType.class));
+            if (row.getStatus() != null) {
+                statuses.merge(row.getStatus(), row.getTotal(), Long::sum);
+            }
+            if (row.getServiceType() != null) {
+                services.merge(row.getServiceType(), row.getTotal(), Long::sum);
+            }
+        }
+        List<DailyStatsResponse.Day> days = byStatus.entrySet().stream()
+                .map(entry -> new DailyStatsResponse.Day(entry.getKey(),
+                        entry.getValue().values().stream().mapToLong(Long::longValue).sum(),
+                        entry.getValue(),
+                        byService.get(entry.getKey())))
+                .toList();
+        return new DailyStatsResponse(institutionId, from, to, rolledUpUntil(), days);
+    }
+
+    private void rollUp(LocalDate day) {
+        dailyStatsRepository.deleteByDay(day);
+        List<DailyAppointmentStats> rows = appointmentRepository
+                .findStatsBuckets(day.atStartOfDay(), day.plusDays(1).atStartOfDay()).stream()
+                .map(bucket -> DailyAppointmentStats.builder()
+                        .day(day)
+                        .institutionId(bucket.getInstitutionId())
+                        .serviceType(bucket.getServiceType())
+                        .status(bucket.getStatus())
+                        .total(bucket.getTotal())
+                        .build())
+                .toList();
+        dailyStatsRepository.saveAll(rows);
+    }
+}
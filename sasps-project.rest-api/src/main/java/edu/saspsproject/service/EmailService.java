@@ -1,238 +1,155 @@
 package edu.saspsproject.service;
 
 import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Notification;
 import edu.saspsproject.model.User;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
 
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
- * Email service without design patterns, intentionally duplicating code
- * for baseline comparison with pattern-based implementation
+ * Email service. Every email is rendered from the Thymeleaf templates in templates/email, which
+ * share one layout with the static styles, header and footer; the engine parses each template once
+ * and caches it. Texts follow the user's preferred language. Every
+ * email is recorded as an EMAIL notification and sent by {@link NotificationDeliveryService},
+ * which retries failed sends.
  */
 @Service
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private static final DateTimeFormatter APPOINTMENT_TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final Locale DEFAULT_LOCALE = Locale.forLanguageTag("ro");
 
-    @Value("${app.mail.from}")
-    private String fromEmail;
+    private final NotificationDeliveryService notificationDeliveryService;
+    private final ITemplateEngine templateEngine;
+    private final MessageSource messageSource;
 
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(NotificationDeliveryService notificationDeliveryService,
+                        ITemplateEngine templateEngine, MessageSource messageSource) {
+        this.notificationDeliveryService = notificationDeliveryService;
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
     }
 
-    // Duplicated code, no template method pattern
     public void sendAppointmentConfirmationEmail(User user, Appointment appointment, String institutionName) {
-        if (user.getEmail() == null || !user.getEmailNotificationsEnabled()) {
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(user.getEmail());
-            helper.setSubject("Confirmare programare, SASPS");
-
-            // Hardcoded HTML, no template engine usage
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-            String htmlContent = "<!DOCTYPE html><html><head><style>"
-                    + "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }"
-                    + ".container { max-width: 600px; margin: 0 auto; padding: 20px; }"
-                    + ".header { background-color: #4CAF50; color: white; padding: 20px; text-align: center; }"
-                    + ".content { padding: 20px; background-color: #f9f9f9; }"
-                    + ".details { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #4CAF50; }"
-                    + ".footer { text-align: center; padding: 20px; font-size: 12px; color: #666; }"
-                    + "</style></head><body><div class='container'>"
-                    + "<div class='header'><h1>Programare confirmată</h1></div>"
-                    + "<div class='content'>"
-                    + "<p>Bună " + user.getName() + ",</p>"
-                    + "<p>Programarea dumneavoastră a fost confirmată cu succes!</p>"
-                    + "<div class='details'>"
-                    + "<h3>Detalii programare:</h3>"
-                    + "<p><strong>Instituție:</strong> " + institutionName + "</p>"
-                    + "<p><strong>Data și ora:</strong> " + appointment.getAppointmentTime().format(formatter) + "</p>"
-                    + "<p><strong>Serviciu:</strong> " + appointment.getServiceType() + "</p>"
-                    + "<p><strong>Prioritate:</strong> " + appointment.getPriorityLevel() + "</p>"
-                    + "</div>"
-                    + "<p>Vă rugăm să ajungeți cu 10 minute înainte de ora programării.</p>"
-                    + "<p>Veți primi un reminder cu 24 de ore înainte de programare.</p>"
-                    + "</div>"
-                    + "<div class='footer'>"
-                    + "<p>Acest email a fost generat automat. Vă rugăm să nu răspundeți.</p>"
-                    + "<p>&copy; 2025 SASPS, Sistem de Agendat la Servicii Publice</p>"
-                    + "</div></div></body></html>";
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-            System.out.println("Confirmation email sent to: " + user.getEmail());
-        } catch (MessagingException e) {
-            System.err.println("Failed to send confirmation email: " + e.getMessage());
-            e.printStackTrace();
-        }
+        Map<String, Object> variables = appointmentVariables(user, appointment, institutionName);
+        variables.put("priority", appointment.getPriorityLevel());
+        sendTemplatedEmail(user, appointment, Notification.NotificationType.CONFIRMATION, "confirmation", variables);
     }
 
-    // More duplicated code, no strategy pattern
     public void sendAppointmentReminderEmail(User user, Appointment appointment, String institutionName) {
-        if (user.getEmail() == null || !user.getEmailNotificationsEnabled()) {
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(user.getEmail());
-            helper.setSubject("Reminder: Programare mâine, SASPS");
-
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-            String htmlContent = "<!DOCTYPE html><html><head><style>"
-                    + "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }"
-                    + ".container { max-width: 600px; margin: 0 auto; padding: 20px; }"
-                    + ".header { background-color: #FF9800; color: white; padding: 20px; text-align: center; }"
-                    + ".content { padding: 20px; background-color: #f9f9f9; }"
-                    + ".details { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #FF9800; }"
-                    + ".warning { background-color: #fff3cd; padding: 10px; border-radius: 5px; margin: 10px 0; }"
-                    + ".footer { text-align: center; padding: 20px; font-size: 12px; color: #666; }"
-                    + "</style></head><body><div class='container'>"
-                    + "<div class='header'><h1>🔔 Reminder Programare</h1></div>"
-                    + "<div class='content'>"
-                    + "<p>Bună " + user.getName() + ",</p>"
-                    + "<div class='warning'>"
-                    + "<p><strong>Atenție!</strong> Aveți o programare mâine!</p>"
-                    + "</div>"
-                    + "<div class='details'>"
-                    + "<h3>Detalii programare:</h3>"
-                    + "<p><strong>Instituție:</strong> " + institutionName + "</p>"
-                    + "<p><strong>Data și ora:</strong> " + appointment.getAppointmentTime().format(formatter) + "</p>"
-                    + "<p><strong>Serviciu:</strong> " + appointment.getServiceType() + "</p>"
-                    + "</div>"
-                    + "<p><strong>Documente necesare:</strong></p>"
-                    + "<ul>"
-                    + "<li>Carte de identitate</li>"
-                    + "<li>Documente specifice serviciului solicitat</li>"
-                    + "</ul>"
-                    + "<p>Vă rugăm să ajungeți cu 10 minute înainte!</p>"
-                    + "</div>"
-                    + "<div class='footer'>"
-                    + "<p>Acest email a fost generat automat. Vă rugăm să nu răspundeți.</p>"
-                    + "<p>&copy; 2025 SASPS</p>"
-                    + "</div></div></body></html>";
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-            System.out.println("Reminder email sent to: " + user.getEmail());
-        } catch (MessagingException e) {
-            System.err.println("Failed to send reminder email: " + e.getMessage());
-            e.printStackTrace();
-        }
+        sendTemplatedEmail(user, appointment, Notification.NotificationType.REMINDER, "reminder",
+                appointmentVariables(user, appointment, institutionName));
     }
 
-    // Even more duplication, no builder pattern
     public void sendAppointmentCancellationEmail(User user, Appointment appointment, String institutionName, String reason) {
-        if (user.getEmail() == null || !user.getEmailNotificationsEnabled()) {
-            return;
-        }
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(user.getEmail());
-            helper.setSubject("Programare anulată, SASPS");
-
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-            String htmlContent = "<!DOCTYPE html><html><head><style>"
-                    + "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }"
-                    + ".container { max-width: 600px; margin: 0 auto; padding: 20px; }"
-                    + ".header { background-color: #f44336; color: white; padding: 20px; text-align: center; }"
-                    + ".content { padding: 20px; background-color: #f9f9f9; }"
-                    + ".details { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #f44336; }"
-                    + ".footer { text-align: center; padding: 20px; font-size: 12px; color: #666; }"
-                    + "</style></head><body><div class='container'>"
-                    + "<div class='header'><h1>Programare anulată</h1></div>"
-                    + "<div class='content'>"
-                    + "<p>Bună " + user.getName() + ",</p>"
-                    + "<p>Programarea dumneavoastră a fost anulată.</p>"
-                    + "<div class='details'>"
-                    + "<h3>Detalii programare anulată:</h3>"
-                    + "<p><strong>Instituție:</strong> " + institutionName + "</p>"
-                    + "<p><strong>Data și ora:</strong> " + appointment.getAppointmentTime().format(formatter) + "</p>"
-                    + "<p><strong>Serviciu:</strong> " + appointment.getServiceType() + "</p>"
-                    + "<p><strong>Motiv:</strong> " + (reason != null ? reason : "Nu a fost specificat") + "</p>"
-                    + "</div>"
-                    + "<p>Puteți face o nouă programare accesând platforma SASPS.</p>"
-                    + "</div>"
-                    + "<div class='footer'>"
-                    + "<p>Acest email a fost generat automat. Vă rugăm să nu răspundeți.</p>"
-                    + "<p>&copy; 2025 SASPS</p>"
-                    + "</div></div></body></html>";
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-            System.out.println("Cancellation email sent to: " + user.getEmail());
-        } catch (MessagingException e) {
-            System.err.println("Failed to send cancellation email: " + e.getMessage());
-            e.printStackTrace();
-        }
+        Map<String, Object> variables = appointmentVariables(user, appointment, institutionName);
+        variables.put("reason", reason);
+        sendTemplatedEmail(user, appointment, Notification.NotificationType.CANCELLATION, "cancellation", variables);
     }
 
-    // Welcome email, more duplication
     public void sendWelcomeEmail(User user) {
-        if (user.getEmail() == null) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", user.getName());
+        sendTemplatedEmail(user, null, Notification.NotificationType.WELCOME, "welcome", variables);
+    }
+
+    // Renders templates/email/<template>.html and the email.<template>.subject text in the user's language
+    private void sendTemplatedEmail(User user, Appointment appointment, Notification.NotificationType type,
+                                    String template, Map<String, Object> variables) {
+        Locale locale = localeOf(user);
+        String subject = messageSource.getMessage("email." + template + ".subject", null, locale);
+        Notification notification = Notification.builder()
+                .userId(user.getId())
+                .appointmentId(appointment != null ? appointment.getId() : null)
+                .institutionId(appointment != null ? appointment.getInstitutionId() : null)
+                .recipientEmail(user.getEmail())
+                .type(type)
+                .subject(subject)
+                .message(subject)
+                .build();
+        // Welcome emails go out even to users who turned the other emails off
+        boolean optedOut = type != Notification.NotificationType.WELCOME && !Boolean.TRUE.equals(user.getEmailNotificationsEnabled());
+        if (user.getEmail() == null || optedOut) {
+            notificationDeliveryService.skip(notification);
             return;
         }
+        notification.setBody(templateEngine.process("email/" + template, new Context(locale, variables)));
+        notificationDeliveryService.deliver(notification);
+    }
 
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(user.getEmail());
-            helper.setSubject("Bun venit la SASPS!");
-
-            String htmlContent = "<!DOCTYPE html><html><head><style>"
-                    + "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }"
-                    + ".container { max-width: 600px; margin: 0 auto; padding: 20px; }"
-                    + ".header { background-color: #2196F3; color: white; padding: 20px; text-align: center; }"
-                    + ".content { padding: 20px; background-color: #f9f9f9; }"
-                    + ".features { background-color: white; padding: 15px; margin: 10px 0; }"
-                    + ".footer { text-align: center; padding: 20px; font-size: 12px; color: #666; }"
-                    + "</style></head><body><div class='container'>"
-                    + "<div class='header'><h1>Bun venit!</h1></div>"
-                    + "<div class='content'>"
-                    + "<p>Bună " + user.getName() + ",</p>"
-                    + "<p>Bine ați venit la SASPS, Sistemul de Agendat la Servicii Publice!</p>"
-                    + "<div class='features'>"
-                    + "<h3>Ce puteți face cu SASPS:</h3>"
-                    + "<ul>"
-                    + "<li>Programări online la instituțiile publice</li>"
-                    + "<li>Notificări automate prin email</li>"
-                    + "<li>Remindere înaintea programărilor</li>"
-                    + "<li>Gestionarea programărilor active</li>"
-                    + "</ul>"
-                    + "</div>"
-                    + "<p>Vă mulțumim că ați ales SASPS!</p>"
-                    + "</div>"
-                    + "<div class='footer'>"
-                    + "<p>&copy; 2025 SASPS</p>"
-                    + "</div></div></body></html>";
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-            System.out.println("Welcome email sent to: " + user.getEmail());
-        } catch (MessagingException e) {
-            System.err.println("Failed to send welcome email: " + e.getMessage());
-            e.printStackTrace();
-        }
+    private static Map<String, Object> appointmentVariables(User user, Appointment appointment, String institutionName) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", user.getName());
+        variables.put("institution", institutionName);
+        variables.put("time", appointment.getAppointmentTime().format(APPOINTMENT_TIME_FORMAT));
+        variables.put("service", appointment.getServiceType());
+        return variables;
+    }
+
+    // Texts missing from the user's language fall back to the Romanian defaults
+    private static Locale localeOf(User user) {
+        String language = user.getPreferredLanguage();
+        return language == null || language.isBlank() ? DEFAULT_LOCALE : Locale.forLanguageTag(language);
+    }
+
+    // Export completion email, sent by the background export jobs
+    public void sendExportCompletedEmail(String to, ExportJob job) {
+        boolean completed = job.getStatus() == ExportJob.Status.COMPLETED;
+        String subject = messageSource.getMessage(
+                completed ? "email.export.completed.subject" : "email.export.failed.subject", null, DEFAULT_LOCALE);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("completed", completed);
+        variables.put("id", job.getId());
+        variables.put("format", job.getFormat());
+        variables.put("rows", job.getRowCount());
+        variables.put("downloadPath", "/api/appointment/export/jobs/" + job.getId() + "/download");
+        variables.put("error", job.getError());
+
+        notificationDeliveryService.deliver(Notification.builder()
+                .recipientEmail(to)
+                .type(Notification.NotificationType.EXPORT)
+                .subject(subject)
+                .message(subject)
+                .body(templateEngine.process("email/export", new Context(DEFAULT_LOCALE, variables)))
+                .build());
+    }
+
+    // Renders a county announcement for each user and stores the emails unsent in the caller's transaction
+    public List<Notification> queueAnnouncementEmails(List<User> users, String county, String text) {
+        List<Notification> notifications = users.stream()
+                .map(user -> {
+                    Locale locale = localeOf(user);
+                    String subject = messageSource.getMessage("email.announcement.subject", new Object[]{county}, locale);
+                    return Notification.builder()
+                            .userId(user.getId())
+                            .recipientEmail(user.getEmail())
+                            .type(Notification.NotificationType.ANNOUNCEMENT)
+                            .subject(subject)
+                            .message(text)
+                            .body(announcementHtml(user, text, locale))
+                            .build();
+                })
+                .toList();
+        return notificationDeliveryService.enqueue(notifications);
+    }
+
+    // Sends queued emails over pooled connections, returns how many could not be sent yet
+    public int sendQueuedEmails(List<Notification> notifications) {
+        return notificationDeliveryService.send(notifications);
+    }
+
+    private String announcementHtml(User user, String text, Locale locale) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", user.getName());
+        variables.put("text", text);
+        return templateEngine.process("email/announcement", new Context(locale, variables));
     }
 }
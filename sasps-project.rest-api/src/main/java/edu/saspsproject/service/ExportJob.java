@@ -0,0 +1,81 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.dto.request.AppointmentExportFilter;
+import edu.saspsproject.repository.projection.AppointmentDataVersion;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+// State of one background export, shared between the worker writing it and the threads polling it
+@Getter
+public class ExportJob {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        PDF("application/pdf", "pdf");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final Format format;
+    private final AppointmentExportFilter filter;
+    // Appointments version the export reflects
+    private final AppointmentDataVersion dataVersion;
+    private final String notifyEmail;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Path file;
+    private volatile long rowCount;
+    private volatile String error;
+    private volatile LocalDateTime completedAt;
+
+    ExportJob(String id, Format format, AppointmentExportFilter filter, AppointmentDataVersion dataVersion, String notifyEmail) {
+        this.id = id;
+        this.format = format;
+        this.filter = filter;
+        this.dataVersion = dataVersion;
+        this.notifyEmail = notifyEmail;
+    }
+
+    void markRunning() {
+        status = Status.RUNNING;
+    }
+
+    void markCompleted(Path file, long rowCount) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.COMPLETED;
+    }
+
+    void markFailed(String error) {
+        this.error = error;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    public String fileName() {
+        return "appointments-" + id + "." + format.extension();
+    }
+}
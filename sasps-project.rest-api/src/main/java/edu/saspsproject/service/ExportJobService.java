@@ -0,0 +1,155 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.dto.request.AppointmentExportFilter;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.projection.AppointmentDataVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Runs appointment exports in the background on a bounded executor and keeps the results on local
+ * disk. A finished export is reused for identical requests (same format and filters) until the
+ * appointments change, as seen by the table's latest updated_at and row count, so changes made
+ * through other instances are noticed too. A change committed with an older updated_at than one
+ * already visible is only noticed once the result expires.
+ * Jobs and their files live on the instance that ran them: status polls and downloads must reach
+ * the same node.
+ */
+@Slf4j
+@Service
+public class ExportJobService {
+
+    private record CacheKey(ExportJob.Format format, AppointmentExportFilter filter, AppointmentDataVersion dataVersion) {
+    }
+
+    private final AppointmentExportService appointmentExportService;
+    private final AppointmentRepository appointmentRepository;
+    private final EmailService emailService;
+    private final ThreadPoolExecutor exportExecutor;
+    private final Path exportDirectory;
+    private final int retentionMinutes;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<CacheKey, ExportJob> resultCache = new ConcurrentHashMap<>();
+
+    public ExportJobService(AppointmentExportService appointmentExportService,
+                            AppointmentRepository appointmentRepository,
+                            EmailService emailService,
+                            ThreadPoolExecutor exportExecutor,
+                            @Value("${app.export.directory:${java.io.tmpdir}/sasps-exports}") String exportDirectory,
+                            @Value("${app.export.retention-minutes:60}") int retentionMinutes) throws IOException {
+        this.appointmentExportService = appointmentExportService;
+        this.appointmentRepository = appointmentRepository;
+        this.emailService = emailService;
+        this.exportExecutor = exportExecutor;
+        this.exportDirectory = Files.createDirectories(Path.of(exportDirectory));
+        this.retentionMinutes = retentionMinutes;
+    }
+
+    /**
+     * Returns the job producing the requested export, starting one unless an identical export of
+     * the current data is already done or in progress. Throws IllegalStateException when the
+     * export queue is full.
+     */
+    public ExportJob submit(ExportJob.Format format, AppointmentExportFilter filter, String notifyEmail) {
+        filter.validate();
+        CacheKey key = new CacheKey(format, filter, appointmentRepository.findDataVersion());
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), format, filter, key.dataVersion(), notifyEmail);
+        ExportJob existing = resultCache.putIfAbsent(key, job);
+        if (existing != null) {
+            log.info("Reusing export job {} for {} export", existing.getId(), format);
+            return existing;
+        }
+
+        jobs.put(job.getId(), job);
+        try {
+            exportExecutor.execute(() -> run(job, key));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            resultCache.remove(key, job);
+            throw new IllegalStateException("Too many exports in progress, try again later");
+        }
+        return job;
+    }
+
+    public Optional<ExportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    // Drops results older than the retention period and cache entries of outdated data
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpiredJobs() {
+        AppointmentDataVersion currentVersion = appointmentRepository.findDataVersion();
+        resultCache.entrySet().removeIf(entry -> !entry.getKey().dataVersion().equals(currentVersion)
+                && entry.getValue().getStatus() != ExportJob.Status.QUEUED
+                && entry.getValue().getStatus() != ExportJob.Status.RUNNING);
+
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            if (job.getCompletedAt() == null || job.getCompletedAt().isAfter(cutoff)) {
+                return false;
+            }
+            resultCache.values().remove(job);
+            deleteQuietly(job.getFile());
+            return true;
+        });
+    }
+
+    private void run(ExportJob job, CacheKey key) {
+        job.markRunning();
+        Path target = exportDirectory.resolve(job.fileName());
+        Path partial = exportDirectory.resolve(job.fileName() + ".part");
+        try {
+            long rows;
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                rows = job.getFormat() == ExportJob.Format.PDF
+                        ? appointmentExportService.writePdf(job.getFilter(), outputStream)
+                        : appointmentExportService.writeCsv(job.getFilter(), outputStream);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.markCompleted(target, rows);
+            log.info("Export job {} wrote {} appointments to {}", job.getId(), rows, target);
+        } catch (IOException | RuntimeException e) {
+            log.error("Export job {} failed: {}", job.getId(), e.getMessage());
+            deleteQuietly(partial);
+            job.markFailed(e.getMessage());
+            resultCache.remove(key, job);
+        }
+
+        if (job.getNotifyEmail() != null && !job.getNotifyEmail().isBlank()) {
+            try {
+                emailService.sendExportCompletedEmail(job.getNotifyEmail(), job);
+            } catch (RuntimeException e) {
+                log.error("Failed to send completion email of export job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}: {}", file, e.getMessage());
+        }
+    }
+}
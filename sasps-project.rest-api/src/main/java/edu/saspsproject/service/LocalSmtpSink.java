@@ -0,0 +1,134 @@
+package edu.saspsproject.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process SMTP server on the loopback interface that accepts and discards every message, for
+ * load tests and local runs without a real mail provider. Enabled with app.mail.local-sink.enabled;
+ * {@link MailDeliveryEngine} then delivers to it instead of spring.mail.host. Speaks just enough
+ * SMTP for Jakarta Mail: no TLS and no authentication.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.mail.local-sink.enabled", havingValue = "true")
+public class LocalSmtpSink {
+
+    private final int configuredPort;
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private final AtomicLong connectionsAccepted = new AtomicLong();
+
+    private ServerSocket serverSocket;
+    private ExecutorService connectionExecutor;
+
+    public LocalSmtpSink(@Value("${app.mail.local-sink.port:0}") int configuredPort) {
+        this.configuredPort = configuredPort;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(configuredPort, 100, InetAddress.getLoopbackAddress());
+        AtomicInteger threadNumber = new AtomicInteger();
+        connectionExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-sink-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        connectionExecutor.execute(this::acceptConnections);
+        log.info("Local SMTP sink listening on port {}", port());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        serverSocket.close();
+        connectionExecutor.shutdownNow();
+        log.info("Local SMTP sink received {} messages over {} connections", messagesReceived.get(), connectionsAccepted.get());
+    }
+
+    public String host() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long messagesReceived() {
+        return messagesReceived.get();
+    }
+
+    public long connectionsAccepted() {
+        return connectionsAccepted.get();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionsAccepted.incrementAndGet();
+                connectionExecutor.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                // Closed by stop()
+                return;
+            } catch (IOException e) {
+                log.warn("Local SMTP sink failed to accept a connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost SMTP sink ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase(Locale.ROOT) : line.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250 8BITMIME");
+                    case "HELO", "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        // The message ends with a line holding a single dot, dot-stuffed lines are skipped alike
+                        do {
+                            line = in.readLine();
+                        } while (line != null && !line.equals("."));
+                        messagesReceived.incrementAndGet();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Local SMTP sink connection closed: {}", e.getMessage());
+        }
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
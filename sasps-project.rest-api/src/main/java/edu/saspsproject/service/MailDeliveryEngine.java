@@ -0,0 +1,254 @@
+package edu.saspsproject.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends mail over a pool of long-lived, authenticated SMTP connections instead of opening one per
+ * message as {@link JavaMailSenderImpl} does. At most app.mail.pool.size connections are open; idle
+ * ones are closed after app.mail.pool.idle-timeout-ms. A batch is sent over one connection, and at
+ * most app.mail.per-provider-concurrency batches are in flight per recipient
+ * domain, so one large provider cannot take every connection or trip its own rate limits. An idle
+ * connection is checked (one NOOP) when it is borrowed, not before every message; a message failing
+ * on a connection that broke during the batch is retried once on another one.
+ */
+@Slf4j
+@Component
+public class MailDeliveryEngine {
+
+    private record PooledTransport(Transport transport, long lastUsedMillis) {
+    }
+
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int perProviderConcurrency;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+
+    // One permit per connection in use, idle ones wait in the deque with the most recently used first
+    private final Semaphore connections;
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Map<String, Semaphore> providers = new ConcurrentHashMap<>();
+
+    public MailDeliveryEngine(JavaMailSenderImpl mailSender,
+                              ObjectProvider<LocalSmtpSink> localSmtpSink,
+                              @Value("${app.mail.pool.size:8}") int poolSize,
+                              @Value("${app.mail.per-provider-concurrency:4}") int perProviderConcurrency,
+                              @Value("${app.mail.pool.borrow-timeout-ms:30000}") long borrowTimeoutMillis,
+                              @Value("${app.mail.pool.idle-timeout-ms:60000}") long idleTimeoutMillis) {
+        LocalSmtpSink sink = localSmtpSink.getIfAvailable();
+        if (sink != null) {
+            // Plain SMTP to the in-process sink, whatever the configured provider requires
+            this.session = Session.getInstance(new Properties());
+            this.protocol = "smtp";
+            this.host = sink.host();
+            this.port = sink.port();
+            this.username = null;
+            this.password = null;
+        } else {
+            this.session = mailSender.getSession();
+            this.protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+            this.host = mailSender.getHost();
+            this.port = mailSender.getPort();
+            this.username = mailSender.getUsername();
+            this.password = mailSender.getPassword();
+        }
+        this.connections = new Semaphore(poolSize);
+        this.perProviderConcurrency = perProviderConcurrency;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Sends the messages grouped by recipient domain, each group over one pooled connection,
+     * and returns the messages that could not be sent with the reason. A group that cannot get
+     * a connection in time fails as a whole.
+     */
+    public Map<MimeMessage, String> sendBatch(List<MimeMessage> messages) {
+        Map<String, List<MimeMessage>> byProvider = new LinkedHashMap<>();
+        for (MimeMessage message : messages) {
+            byProvider.computeIfAbsent(providerOf(message), provider -> new ArrayList<>()).add(message);
+        }
+        // MimeMessage keeps identity equality, so each message is its own key
+        Map<MimeMessage, String> failed = new LinkedHashMap<>();
+        byProvider.forEach((provider, group) -> {
+            try {
+                sendToProvider(provider, group, failed);
+            } catch (MailSendException e) {
+                group.forEach(message -> failed.putIfAbsent(message, e.getMessage()));
+            }
+        });
+        return failed;
+    }
+
+    // Closes connections left unused for longer than the idle timeout
+    @Scheduled(fixedDelayString = "${app.mail.pool.idle-timeout-ms:60000}")
+    public void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        // The least recently used connections sit at the tail
+        PooledTransport oldest;
+        while ((oldest = idle.peekLast()) != null && oldest.lastUsedMillis() < cutoff) {
+            if (idle.removeLastOccurrence(oldest)) {
+                close(oldest.transport());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            close(pooled.transport());
+        }
+    }
+
+    private void sendToProvider(String provider, List<MimeMessage> messages, Map<MimeMessage, String> failed) {
+        Semaphore providerPermits = providers.computeIfAbsent(provider, p -> new Semaphore(perProviderConcurrency));
+        acquire(providerPermits, "provider " + provider);
+        try {
+            acquire(connections, "an SMTP connection");
+            Transport transport = null;
+            try {
+                for (MimeMessage message : messages) {
+                    transport = sendMessage(transport, message, failed);
+                }
+            } finally {
+                if (transport != null) {
+                    idle.offerFirst(new PooledTransport(transport, System.currentTimeMillis()));
+                }
+                connections.release();
+            }
+        } finally {
+            providerPermits.release();
+        }
+    }
+
+    // Returns the connection to keep using, null when none could be opened
+    private Transport sendMessage(Transport transport, MimeMessage message, Map<MimeMessage, String> failed) {
+        try {
+            if (message.getSentDate() == null) {
+                message.setSentDate(new Date());
+            }
+            message.saveChanges();
+        } catch (MessagingException e) {
+            log.warn("Failed to prepare message to {}: {}", recipientsOf(message), e.getMessage());
+            failed.put(message, e.getMessage());
+            return transport;
+        }
+
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                if (transport == null) {
+                    transport = borrowTransport();
+                }
+                transport.sendMessage(message, message.getAllRecipients());
+                return transport;
+            } catch (SendFailedException e) {
+                // Rejected recipients, the connection itself is fine
+                log.warn("Message to {} was rejected: {}", recipientsOf(message), e.getMessage());
+                failed.put(message, e.getMessage());
+                return transport;
+            } catch (MessagingException e) {
+                // The connection may be broken: drop it and retry once on a fresh one
+                close(transport);
+                transport = null;
+                if (attempt == 2) {
+                    log.warn("Failed to send message to {}: {}", recipientsOf(message), e.getMessage());
+                    failed.put(message, e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    // Reuses an idle connection when it is still open, otherwise opens a new one
+    private Transport borrowTransport() throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.transport().isConnected()) {
+                return pooled.transport();
+            }
+            close(pooled.transport());
+        }
+        Transport transport = session.getTransport(protocol);
+        transport.connect(host, port, username, password);
+        log.debug("Opened SMTP connection to {}:{}", host, port);
+        return transport;
+    }
+
+    private void acquire(Semaphore semaphore, String what) {
+        try {
+            if (!semaphore.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MailSendException("Timed out waiting for " + what);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for " + what);
+        }
+    }
+
+    private static String providerOf(MimeMessage message) {
+        try {
+            Address[] recipients = message.getAllRecipients();
+            if (recipients != null && recipients.length > 0 && recipients[0] instanceof InternetAddress address) {
+                String email = address.getAddress();
+                int at = email.lastIndexOf('@');
+                if (at >= 0) {
+                    return email.substring(at + 1).toLowerCase(Locale.ROOT);
+                }
+            }
+        } catch (MessagingException e) {
+            // Grouped with the other messages without a usable recipient
+        }
+        return "";
+    }
+
+    private static String recipientsOf(MimeMessage message) {
+        try {
+            Address[] recipients = message.getAllRecipients();
+            return recipients == null ? "nobody" : InternetAddress.toString(recipients);
+        } catch (MessagingException e) {
+            return "unknown recipients";
+        }
+    }
+
+    private static void close(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.repository.NotificationRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delivers EMAIL notifications and keeps their status in the notifications table, which doubles
+ * as the retry queue. A notification is stored PENDING before its first attempt, with a next attempt
+ * one lease ahead, so the retrier only takes it over when the sending instance dies before recording
+ * the outcome. Callers whose emails must commit with their own changes store them in their
+ * transaction with {@link #enqueue} and {@link #send} them after the commit. Failed sends are
+ * retried with exponential backoff and jitter and dead-lettered after
+ * app.notifications.delivery.max-attempts attempts. Retries go out at no more than
+ * app.notifications.delivery.retry-rate-per-second, so a backlog built up during an SMTP outage
+ * drains gradually once the server is back instead of hitting it all at once.
+ */
+@Slf4j
+@Service
+public class NotificationDeliveryService {
+
+    private static final List<Notification.NotificationStatus> RETRYABLE =
+            List.of(Notification.NotificationStatus.PENDING, Notification.NotificationStatus.FAILED);
+
+    private final NotificationRepository notificationRepository;
+    private final JavaMailSender mailSender;
+    private final MailDeliveryEngine mailDeliveryEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long pendingLeaseMillis;
+    private final int batchSize;
+    private final double retryRatePerSecond;
+
+    @Value("${app.mail.from}")
+    private String fromEmail;
+
+    // Token bucket for retries, holding at most one second worth of permits
+    private double retryPermits;
+    private long lastRefillNanos = System.nanoTime();
+
+    public NotificationDeliveryService(NotificationRepository notificationRepository,
+                                       JavaMailSender mailSender,
+                                       MailDeliveryEngine mailDeliveryEngine,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${app.notifications.delivery.max-attempts:8}") int maxAttempts,
+                                       @Value("${app.notifications.delivery.base-delay-ms:30000}") long baseDelayMillis,
+                                       @Value("${app.notifications.delivery.max-delay-ms:3600000}") long maxDelayMillis,
+                                       @Value("${app.notifications.delivery.pending-lease-ms:300000}") long pendingLeaseMillis,
+                                       @Value("${app.notifications.delivery.batch-size:50}") int batchSize,
+                                       @Value("${app.notifications.delivery.retry-rate-per-second:20}") double retryRatePerSecond) {
+        this.notificationRepository = notificationRepository;
+        this.mailSender = mailSender;
+        this.mailDeliveryEngine = mailDeliveryEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.pendingLeaseMillis = pendingLeaseMillis;
+        this.batchSize = batchSize;
+        this.retryRatePerSecond = retryRatePerSecond;
+    }
+
+    // Sends one email notification now, a failure is recorded and retried rather than thrown
+    public void deliver(Notification notification) {
+        deliverAll(List.of(notification));
+    }
+
+    // Sends the email notifications over pooled connections and returns how many failed
+    public int deliverAll(List<Notification> notifications) {
+        return send(enqueue(notifications));
+    }
+
+    /**
+     * Stores the email notifications PENDING without sending them, joining the caller's
+     * transaction so they commit together with the caller's changes. They are sent by
+     * {@link #send} after the commit, or by the retrier once their lease has run out.
+     */
+    public List<Notification> enqueue(List<Notification> notifications) {
+        LocalDateTime lease = LocalDateTime.now().plus(pendingLeaseMillis, ChronoUnit.MILLIS);
+        for (Notification notification : notifications) {
+            notification.setMethod(Notification.NotificationMethod.EMAIL);
+            if (notification.getRecipientEmail() == null) {
+                notification.setStatus(Notification.NotificationStatus.SKIPPED);
+            } else {
+                notification.setStatus(Notification.NotificationStatus.PENDING);
+                notification.setNextAttemptAt(lease);
+            }
+        }
+        return transactionTemplate.execute(status -> notificationRepository.saveAll(notifications));
+    }
+
+    // Sends the pending notifications among the stored ones and records the outcome, returns how many failed
+    public int send(List<Notification> notifications) {
+        int failed = attempt(notifications.stream()
+                .filter(notification -> notification.getStatus() == Notification.NotificationStatus.PENDING)
+                .toList());
+        transactionTemplate.executeWithoutResult(status -> notificationRepository.saveAll(notifications));
+        return failed;
+    }
+
+    // Records an email that was not sent because the user has no address or turned emails off
+    public void skip(Notification notification) {
+        notification.setMethod(Notification.NotificationMethod.EMAIL);
+        notification.setStatus(Notification.NotificationStatus.SKIPPED);
+        transactionTemplate.executeWithoutResult(status -> notificationRepository.save(notification));
+    }
+
+    // Retries due emails batch by batch within the rate limit, no transaction is open while SMTP is talked to
+    @Scheduled(fixedDelayString = "${app.notifications.delivery.poll-interval-ms:5000}")
+    public void retryDue() {
+        int permits;
+        int retried;
+        do {
+            permits = acquireRetryPermits(batchSize);
+            if (permits == 0) {
+                return;
+            }
+            int limit = permits;
+            List<Notification> due = transactionTemplate.execute(status -> claimDue(limit));
+            retried = due == null ? 0 : due.size();
+            releaseRetryPermits(permits - retried);
+            if (retried == 0) {
+                return;
+            }
+            int failed = attempt(due);
+            for (Notification notification : due) {
+                transactionTemplate.executeWithoutResult(status -> notificationRepository.save(notification));
+            }
+            log.info("Retried {} email notifications, {} failed again", retried, failed);
+        } while (retried == permits);
+    }
+
+    // Locks due emails and pushes them one lease ahead, so other retriers skip them once this commits
+    private List<Notification> claimDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> due = notificationRepository.findDueForDelivery(RETRYABLE, now, PageRequest.of(0, limit));
+        LocalDateTime lease = now.plus(pendingLeaseMillis, ChronoUnit.MILLIS);
+        due.forEach(notification -> notification.setNextAttemptAt(lease));
+        return due;
+    }
+
+    /**
+     * Puts the dead letters created in [from, to), optionally of one type only, back in the
+     * retry queue with a fresh attempt budget; they are resent by the rate limited retrier.
+     */
+    public int replayDeadLetters(LocalDateTime from, LocalDateTime to, Notification.NotificationType type) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Start must be before end");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Integer replayed = transactionTemplate.execute(status -> type == null
+                ? notificationRepository.requeueDeadLetters(Notification.NotificationStatus.DEAD_LETTER,
+                        Notification.NotificationStatus.FAILED, from, to, now)
+                : notificationRepository.requeueDeadLetters(Notification.NotificationStatus.DEAD_LETTER,
+                        Notification.NotificationStatus.FAILED, type, from, to, now));
+        log.info("Replaying {} dead-lettered notifications created between {} and {}", replayed, from, to);
+        return replayed;
+    }
+
+    // Sends the notifications and updates their status in place, returns how many failed
+    private int attempt(List<Notification> notifications) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<MimeMessage, Notification> byMessage = new LinkedHashMap<>();
+        int failed = 0;
+        for (Notification notification : notifications) {
+            try {
+                byMessage.put(toMimeMessage(notification), notification);
+            } catch (MessagingException | RuntimeException e) {
+                recordFailure(notification, e.getMessage(), now);
+                failed++;
+            }
+        }
+        if (byMessage.isEmpty()) {
+            return failed;
+        }
+
+        Map<MimeMessage, String> errors;
+        try {
+            errors = mailDeliveryEngine.sendBatch(List.copyOf(byMessage.keySet()));
+        } catch (MailException e) {
+            errors = new LinkedHashMap<>();
+            for (MimeMessage message : byMessage.keySet()) {
+                errors.put(message, e.getMessage());
+            }
+        }
+        for (Map.Entry<MimeMessage, Notification> entry : byMessage.entrySet()) {
+            Notification notification = entry.getValue();
+            if (errors.containsKey(entry.getKey())) {
+                recordFailure(notification, errors.get(entry.getKey()), now);
+                failed++;
+            } else {
+                notification.setAttempts(notification.getAttempts() + 1);
+                notification.setStatus(Notification.NotificationStatus.SENT);
+                notification.setSentAt(now);
+                notification.setNextAttemptAt(null);
+                notification.setLastError(null);
+            }
+        }
+        return failed;
+    }
+
+    private void recordFailure(Notification notification, String error, LocalDateTime now) {
+        int attempts = notification.getAttempts() + 1;
+        notification.setAttempts(attempts);
+        notification.setLastError(error);
+        if (attempts >= maxAttempts) {
+            notification.setStatus(Notification.NotificationStatus.DEAD_LETTER);
+            notification.setNextAttemptAt(null);
+            log.error("Dead-lettered notification {} to {} after {} attempts: {}",
+                    notification.getId(), notification.getRecipientEmail(), attempts, error);
+        } else {
+            long delayMillis = backoffMillis(attempts);
+            notification.setStatus(Notification.NotificationStatus.FAILED);
+            notification.setNextAttemptAt(now.plus(delayMillis, ChronoUnit.MILLIS));
+            log.warn("Notification {} failed (attempt {}), retrying in {}s: {}",
+                    notification.getId(), attempts, delayMillis / 1000, error);
+        }
+    }
+
+    // Base delay doubled per attempt up to the maximum, half of it random so retries do not line up
+    private long backoffMillis(int attempts) {
+        long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempts - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private MimeMessage toMimeMessage(Notification notification) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(notification.getRecipientEmail());
+        helper.setSubject(notification.getSubject());
+        helper.setText(notification.getBody(), true);
+        return message;
+    }
+
+    private synchronized int acquireRetryPermits(int wanted) {
+        long now = System.nanoTime();
+        double capacity = Math.max(1, retryRatePerSecond);
+        retryPermits = Math.min(capacity, retryPermits + (now - lastRefillNanos) / 1e9 * retryRatePerSecond);
+        lastRefillNanos = now;
+        int granted = (int) Math.min(wanted, Math.floor(retryPermits));
+        retryPermits -= granted;
+        return granted;
+    }
+
+    private synchronized void releaseRetryPermits(int unused) {
+        retryPermits = Math.min(Math.max(1, retryRatePerSecond), retryPermits + unused);
+    }
+}
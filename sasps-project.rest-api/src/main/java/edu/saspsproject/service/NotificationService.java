@@ -4,23 +4,36 @@ import edu.saspsproject.model.Appointment;
 import edu.saspsproject.model.Institution;
 import edu.saspsproject.model.Notification;
 import edu.saspsproject.model.User;
+import edu.saspsproject.repository.IdCursor;
+import edu.saspsproject.repository.KeysetPage;
 import edu.saspsproject.repository.NotificationRepository;
 import edu.saspsproject.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
 
 @Service
 @Slf4j
 public class NotificationService {
     private final UserRepository userRepository;
     private final NotificationRepository notificationRepository;
+    private final NotificationWriter notificationWriter;
+    private final NotificationDeliveryService notificationDeliveryService;
 
-    public NotificationService(UserRepository userRepository, NotificationRepository notificationRepository) {
+    public NotificationService(UserRepository userRepository,
+                               NotificationRepository notificationRepository,
+                               NotificationWriter notificationWriter,
+                               NotificationDeliveryService notificationDeliveryService) {
         this.userRepository = userRepository;
         this.notificationRepository = notificationRepository;
+        this.notificationWriter = notificationWriter;
+        this.notificationDeliveryService = notificationDeliveryService;
     }
 
     public void sendConfirmation(Appointment appointment) {
@@ -230,12 +243,11 @@ public class NotificationService {
                 .orElse("Customer");
     }
 
-    // Simple notification creation - NOW with database storage!
-    // No event system, just direct database insert - baseline approach
+    // Queues an in-app notification for the batched writer, the recipient is resolved there;
+    // emails are recorded separately by EmailService as EMAIL notifications with their own status
     public void createNotification(Long userId, String message, String type) {
-        log.info("Creating notification for user {}: [{}] {}", userId, type, message);
+        log.debug("Creating notification for user {}: [{}] {}", userId, type, message);
         
-        // Create and save notification entity - hardcoded logic
         Notification notification = new Notification();
         notification.setUserId(userId);
         notification.setMessage(message);
@@ -249,33 +261,56 @@ public class NotificationService {
             default -> notification.setType(Notification.NotificationType.ANNOUNCEMENT);
         }
         
-        notification.setMethod(Notification.NotificationMethod.EMAIL);
+        // In-app notifications are delivered once written
+        notification.setMethod(Notification.NotificationMethod.NONE);
         notification.setStatus(Notification.NotificationStatus.SENT);
         notification.setSentAt(LocalDateTime.now());
         
-        // Get user email - hardcoded lookup
-        User user = userRepository.findById(userId).orElse(null);
-        if (user != null) {
-            notification.setRecipientEmail(user.getEmail());
-            notification.setRecipientPhone(user.getPhone());
-        }
-        
-        notificationRepository.save(notification);
-        System.out.println(String.format("[NOTIFICATION][%s] Saved to DB - User %d: %s", type, userId, message));
+        notificationWriter.enqueue(notification);
     }
-    
-    // Get all notifications for a user
-    public java.util.List<Notification> getUserNotifications(Long userId) {
-        return notificationRepository.findByUserId(userId);
+
+    // Same in-app notification for many users in one batched insert, the users are already loaded by the caller
+    public void createNotifications(Collection<User> users, String message, Notification.NotificationType type) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = users.stream()
+                .map(user -> Notification.builder()
+                        .userId(user.getId())
+                        .recipientEmail(user.getEmail())
+                        .recipientPhone(user.getPhone())
+                        .message(message)
+                        .type(type)
+                        .method(Notification.NotificationMethod.NONE)
+                        .status(Notification.NotificationStatus.SENT)
+                        .sentAt(now)
+                        .build())
+                .toList();
+        notificationRepository.saveAll(notifications);
+        log.info("Created {} {} notifications", notifications.size(), type);
+    }
+
+    // Notifications of a user, newest first, one keyset page at a time
+    public KeysetPage<Notification> getUserNotifications(Long userId, String cursor, int size) {
+        KeysetPage.checkSize(size);
+        IdCursor before = IdCursor.decode(cursor, Long.MAX_VALUE);
+        return KeysetPage.of(notificationRepository.findByUserIdAndIdLessThanOrderByIdDesc(userId, before.id(), Limit.of(size + 1)),
+                size, notification -> new IdCursor(notification.getId()).encode());
     }
     
-    // Get all notifications (admin only)
-    public java.util.List<Notification> getAllNotifications() {
-        return notificationRepository.findAllByOrderBySentAtDesc();
+    // All notifications (admin only), newest first, one keyset page at a time
+    public KeysetPage<Notification> getAllNotifications(String cursor, int size) {
+        KeysetPage.checkSize(size);
+        IdCursor before = IdCursor.decode(cursor, Long.MAX_VALUE);
+        return KeysetPage.of(notificationRepository.findByIdLessThanOrderByIdDesc(before.id(), Limit.of(size + 1)),
+                size, notification -> new IdCursor(notification.getId()).encode());
     }
     
     // Get notifications by status
     public java.util.List<Notification> getNotificationsByStatus(Notification.NotificationStatus status) {
         return notificationRepository.findByStatusOrderBySentAtDesc(status);
     }
+
+    // Dead-lettered emails created on the given days go back to the retry queue (admin only)
+    public int replayDeadLetters(LocalDate startDate, LocalDate endDate, Notification.NotificationType type) {
+        return notificationDeliveryService.replayDeadLetters(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), type);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.model.User;
+import edu.saspsproject.repository.NotificationRepository;
+import edu.saspsproject.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous writer for notification rows. Producers enqueue into a bounded queue and return;
+ * a single writer thread inserts the rows in JDBC batches once app.notifications.batch-size rows
+ * are waiting or app.notifications.flush-interval-ms has passed since the first one. When the queue
+ * is full producers wait up to app.notifications.enqueue-timeout-ms and then get an
+ * IllegalStateException. A batch that fails is retried with backoff until it is written, nothing
+ * is dropped; while it fails producers write their own rows and see the exception. The queue is
+ * drained before the context closes; rows enqueued after that are written by the caller. Producers
+ * check and offer under the read side of a lock that stop() takes to switch the writer off, so no
+ * row can land in the queue once the writer has exited.
+ */
+@Slf4j
+@Component
+public class NotificationWriter implements SmartLifecycle {
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Notification> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long enqueueTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+
+    // Held for reading while enqueueing, for writing while the writer is switched off
+    private final ReentrantReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    // Set while the writer thread is retrying a batch it could not write
+    private volatile boolean writeFailing;
+    private Thread writerThread;
+
+    public NotificationWriter(NotificationRepository notificationRepository,
+                              UserRepository userRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${app.notifications.queue-capacity:10000}") int queueCapacity,
+                              @Value("${app.notifications.batch-size:500}") int batchSize,
+                              @Value("${app.notifications.flush-interval-ms:200}") long flushIntervalMillis,
+                              @Value("${app.notifications.enqueue-timeout-ms:1000}") long enqueueTimeoutMillis,
+                              @Value("${app.notifications.shutdown-timeout-ms:30000}") long shutdownTimeoutMillis) {
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    /**
+     * Queues a notification for insertion. Recipient email and phone left null are filled in
+     * from the user when the batch is written. When the writer is stopped or cannot write, the
+     * notification is inserted right away and a failure is thrown to the caller.
+     */
+    public void enqueue(Notification notification) {
+        acceptLock.readLock().lock();
+        try {
+            if (running && !writeFailing) {
+                offer(notification);
+                return;
+            }
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        insert(List.of(notification));
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        writerThread = new Thread(this::run, "notification-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        // Waits for producers in the middle of an offer, later ones write synchronously
+        acceptLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        if (writerThread == null) {
+            return;
+        }
+        try {
+            // The writer only exits once everything queued is written, however long that takes
+            writerThread.join(shutdownTimeoutMillis);
+            while (writerThread.isAlive()) {
+                log.error("Notification writer still retrying after {} ms, {} notifications queued",
+                        shutdownTimeoutMillis, queue.size());
+                writerThread.join(shutdownTimeoutMillis);
+            }
+            drainRemaining();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while the notification writer drained, {} notifications still queued", queue.size());
+        }
+        writerThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stopped after the web server and the schedulers, so it drains what they enqueued last
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE + 1000;
+    }
+
+    private void run() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Notification first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    Notification next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Only stop() ends the loop, the queue must still be drained
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void offer(Notification notification) {
+        if (queue.offer(notification)) {
+            return;
+        }
+        try {
+            // Queue full: slow the producer down instead of growing without bound
+            if (!queue.offer(notification, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Notification queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing notification");
+        }
+    }
+
+    // Whatever the writer thread left behind, e.g. when it died on an unexpected error
+    private void drainRemaining() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    // Retries until every row is in. A rejected row does not hold back the others: they are then
+    // written one per transaction and only the rejected ones are retried
+    private void write(List<Notification> batch) {
+        List<Notification> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insert(pending);
+                log.debug("Wrote {} notifications", pending.size());
+                writeFailing = false;
+                return;
+            } catch (DataIntegrityViolationException e) {
+                pending.forEach(notification -> notification.setId(null));
+                pending = insertEach(pending);
+                if (pending.isEmpty()) {
+                    writeFailing = false;
+                    return;
+                }
+                log.error("{} notifications rejected, retrying (attempt {}): {}", pending.size(), attempt, e.getMessage());
+            } catch (RuntimeException e) {
+                log.warn("Writing {} notifications failed, retrying (attempt {}): {}", pending.size(), attempt, e.getMessage());
+            }
+            writeFailing = true;
+            // Ids handed out by the failed attempt are discarded, the retry inserts fresh rows
+            pending.forEach(notification -> notification.setId(null));
+            sleepBeforeRetry(attempt);
+        }
+    }
+
+    // The rows that could not be written
+    private List<Notification> insertEach(List<Notification> rows) {
+        List<Notification> rejected = new ArrayList<>();
+        for (Notification notification : rows) {
+            try {
+                insert(List.of(notification));
+            } catch (RuntimeException e) {
+                rejected.add(notification);
+            }
+        }
+        return rejected;
+    }
+
+    private void insert(List<Notification> rows) {
+        fillRecipients(rows);
+        transactionTemplate.executeWithoutResult(status -> notificationRepository.saveAll(rows));
+    }
+
+    // One lookup for all the users of the batch instead of one per notification
+    private void fillRecipients(List<Notification> batch) {
+        Set<Long> userIds = batch.stream()
+                .filter(notification -> notification.getRecipientEmail() == null && notification.getUserId() != null)
+                .map(Notification::getUserId)
+                .collect(Collectors.toSet());
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        for (Notification notification : batch) {
+            User user = notification.getRecipientEmail() == null ? users.get(notification.getUserId()) : null;
+            if (user != null) {
+                notification.setRecipientEmail(user.getEmail());
+                notification.setRecipientPhone(user.getPhone());
+            }
+        }
+    }
+
+    private static void sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(Math.min(100L << Math.min(attempt, 20), MAX_RETRY_DELAY_MILLIS));
+        } catch (InterruptedException e) {
+            // Rows are never given up, an interrupt only cuts the wait short
+        }
+    }
+}
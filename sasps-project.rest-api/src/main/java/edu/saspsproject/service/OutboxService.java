@@ -0,0 +1,194 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.model.OutboxEvent;
+import edu.saspsproject.model.User;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.OutboxEventRepository;
+import edu.saspsproject.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for appointment side effects. Events are written in the transaction that
+ * changes the appointment and delivered by a scheduled dispatcher, so request latency does not
+ * depend on the mail server. A batch is claimed in a short transaction (FOR UPDATE SKIP LOCKED,
+ * pushing the events one lease ahead) and each event is then delivered outside of any transaction
+ * and marked sent on its own, so no row lock is held while talking to SMTP. Delivery is at least
+ * once: an event whose instance dies before marking it is picked up again when the lease runs out.
+ * Email failures are retried by {@link NotificationDeliveryService}; an event only fails here when
+ * the side effect could not even be recorded, and is then retried after the lease as well, up to
+ * app.outbox.max-attempts times. After that it is set aside as DEAD_LETTER and logged.
+ */
+@Slf4j
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final UserRepository userRepository;
+    private final InstitutionRepository institutionRepository;
+    private final EmailService emailService;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long claimLeaseMillis;
+    private final int retentionDays;
+    private final int maxAttempts;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         AppointmentRepository appointmentRepository,
+                         UserRepository userRepository,
+                         InstitutionRepository institutionRepository,
+                         EmailService emailService,
+                         NotificationService notificationService,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${app.outbox.batch-size:100}") int batchSize,
+                         @Value("${app.outbox.claim-lease-ms:300000}") long claimLeaseMillis,
+                         @Value("${app.outbox.retention-days:7}") int retentionDays,
+                         @Value("${app.outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.userRepository = userRepository;
+        this.institutionRepository = institutionRepository;
+        this.emailService = emailService;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.claimLeaseMillis = claimLeaseMillis;
+        this.retentionDays = retentionDays;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // Must join the transaction of the appointment change, otherwise the event could outlive a rollback
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(OutboxEvent.EventType eventType, Appointment appointment, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAppointmentId(appointment.getId());
+        event.setUserId(appointment.getUserId());
+        event.setPayload(payload);
+        outboxEventRepository.save(event);
+    }
+
+    // Drains due events batch by batch
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void dispatchPending() {
+        int dispatched;
+        do {
+            dispatched = dispatchBatch();
+        } while (dispatched == batchSize);
+    }
+
+    // Sent events are only kept for troubleshooting
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeSentEvents() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteProcessedBefore(OutboxEvent.Status.SENT, before));
+        log.info("Purged {} sent outbox events older than {}", deleted, before);
+    }
+
+    private int dispatchBatch() {
+        List<OutboxEvent> events = transactionTemplate.execute(status -> claimBatch());
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        // One lookup per table for the whole batch
+        Map<Long, Appointment> appointments = appointmentRepository.findAllById(
+                        events.stream().map(OutboxEvent::getAppointmentId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Appointment::getId, Function.identity()));
+        Map<Long, User> users = userRepository.findAllById(
+                        events.stream().map(OutboxEvent::getUserId).filter(id -> id != null).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        Set<Long> institutionIds = appointments.values().stream()
+                .map(Appointment::getInstitutionId).collect(Collectors.toSet());
+        Map<Long, Institution> institutions = institutionRepository.findAllById(institutionIds)
+                .stream().collect(Collectors.toMap(Institution::getId, Function.identity()));
+
+        for (OutboxEvent event : events) {
+            Appointment appointment = appointments.get(event.getAppointmentId());
+            try {
+                if (appointment != null) {
+                    deliver(event, appointment, users.get(event.getUserId()), institutions.get(appointment.getInstitutionId()));
+                }
+            } catch (Exception e) {
+                recordFailure(event, e);
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.markProcessed(event.getId(), OutboxEvent.Status.SENT, LocalDateTime.now()));
+        }
+        log.debug("Dispatched {} outbox events", events.size());
+        return events.size();
+    }
+
+    private void recordFailure(OutboxEvent event, Exception e) {
+        Integer exhausted = transactionTemplate.execute(status -> {
+            outboxEventRepository.recordFailure(event.getId(), e.getMessage());
+            return outboxEventRepository.markExhausted(event.getId(), maxAttempts,
+                    OutboxEvent.Status.DEAD_LETTER, LocalDateTime.now());
+        });
+        if (exhausted != null && exhausted > 0) {
+            log.error("Outbox event {} ({} of appointment {}) failed {} times, giving up: {}",
+                    event.getId(), event.getEventType(), event.getAppointmentId(), maxAttempts, e.getMessage());
+        } else {
+            log.warn("Outbox event {} failed, retrying after its lease: {}", event.getId(), e.getMessage());
+        }
+    }
+
+    // Locks due events and pushes them one lease ahead, so other dispatchers skip them once this commits
+    private List<OutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.findDueForDispatch(
+                OutboxEvent.Status.PENDING, now, PageRequest.of(0, batchSize));
+        LocalDateTime leaseEnd = now.plus(claimLeaseMillis, ChronoUnit.MILLIS);
+        events.forEach(event -> event.setNextAttemptAt(leaseEnd));
+        return events;
+    }
+
+    private void deliver(OutboxEvent event, Appointment appointment, User user, Institution institution) {
+        boolean emailEnabled = user != null && Boolean.TRUE.equals(user.getEmailNotificationsEnabled());
+        String institutionName = institution != null ? institution.getName() : "Instituție necunoscută";
+
+        switch (event.getEventType()) {
+            case APPOINTMENT_BOOKED -> {
+                notificationService.sendConfirmation(appointment);
+                if (emailEnabled) {
+                    emailService.sendAppointmentConfirmationEmail(user, appointment, institutionName);
+                }
+            }
+            case APPOINTMENT_CANCELLED -> {
+                String reason = event.getPayload();
+                if (emailEnabled) {
+                    emailService.sendAppointmentCancellationEmail(user, appointment, institutionName, reason);
+                }
+                notificationService.createNotification(
+                        appointment.getUserId(),
+                        "Programarea dumneavoastră a fost anulată" + (reason != null ? ": " + reason : ""),
+                        "CANCELLATION");
+            }
+            case APPOINTMENT_CONFIRMED -> notificationService.createNotification(
+                    appointment.getUserId(), "Programarea dumneavoastră a fost confirmată", "CONFIRMATION");
+            case APPOINTMENT_COMPLETED -> notificationService.createNotification(
+                    appointment.getUserId(), "Programarea dumneavoastră a fost finalizată", "COMPLETION");
+        }
+    }
+}
@@ -53,12 +53,9 @@ public class ReminderService {
         LocalDateTime reminderTimeEnd = reminderTimeStart.plusHours(1);
 
         // Hardcoded query logic - no specification pattern
-        List<Appointment> upcomingAppointments = appointmentRepository.findAll().stream()
-                .filter(apt -> apt.getAppointmentTime().isAfter(reminderTimeStart) 
-                        && apt.getAppointmentTime().isBefore(reminderTimeEnd))
-                .filter(apt -> apt.getStatus() == Appointment.Status.CONFIRMED 
-                        || apt.getStatus() == Appointment.Status.PENDING)
-                .toList();
+        List<Appointment> upcomingAppointments = appointmentRepository.findByAppointmentTimeBetweenAndStatusIn(
+                reminderTimeStart, reminderTimeEnd,
+                List.of(Appointment.Status.CONFIRMED, Appointment.Status.PENDING));
 
         System.out.println("Found " + upcomingAppointments.size() + " appointments needing reminders");
 
@@ -0,0 +1,11 @@
+package edu.saspsproject.service;
+
+import java.time.LocalDateTime;
+
+// Thrown when the requested slot is already booked by another appointment
+public class SlotConflictException extends RuntimeException {
+
+    public SlotConflictException(Long institutionId, LocalDateTime appointmentTime) {
+        super("Slot " + appointmentTime + " of institution " + institutionId + " is already booked");
+    }
+}
@@ -0,0 +1,174 @@
+package edu.saspsproject.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Short-lived, in-memory slot holds taken while a citizen fills in the booking form.
+ * Holds are stored in concurrent maps (claimed with CAS) and expired by a hashed timer wheel
+ * with one-second ticks; readers also ignore holds past their deadline, so a late tick
+ * never keeps a slot blocked. Nothing is written to the database.
+ */
+@Slf4j
+@Component
+public class SlotHoldRegistry {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 512;
+
+    public record Hold(String token, Long institutionId, LocalDateTime appointmentTime, long expiresAtMillis) {
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+
+        public Instant expiresAt() {
+            return Instant.ofEpochMilli(expiresAtMillis);
+        }
+    }
+
+    private final SlotOccupancyIndex slotOccupancyIndex;
+    private final int defaultTtlSeconds;
+    private final int maxTtlSeconds;
+
+    private final Map<String, Hold> holdsByToken = new ConcurrentHashMap<>();
+    private final Map<Long, Map<LocalDateTime, Hold>> holdsByInstitution = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Hold>[] wheel;
+    // Only touched by the scheduler thread
+    private long processedTick = System.currentTimeMillis() / TICK_MILLIS;
+
+    @SuppressWarnings("unchecked")
+    public SlotHoldRegistry(SlotOccupancyIndex slotOccupancyIndex,
+                            @Value("${app.hold.default-ttl-seconds:120}") int defaultTtlSeconds,
+                            @Value("${app.hold.max-ttl-seconds:600}") int maxTtlSeconds) {
+        this.slotOccupancyIndex = slotOccupancyIndex;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.maxTtlSeconds = maxTtlSeconds;
+        this.wheel = new ConcurrentLinkedQueue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public Hold hold(Long institutionId, LocalDateTime appointmentTime, Integer ttlSeconds) {
+        int ttl = ttlSeconds == null ? defaultTtlSeconds : ttlSeconds;
+        if (ttl < 1 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("Hold duration must be between 1 and " + maxTtlSeconds + " seconds");
+        }
+        if (slotOccupancyIndex.template(institutionId).slotIndexOf(appointmentTime.toLocalTime()) < 0) {
+            throw new IllegalArgumentException("Appointment time is not a valid slot");
+        }
+        if (!appointmentTime.isAfter(LocalDateTime.now().plusHours(2))) {
+            throw new IllegalArgumentException("Slot can no longer be booked");
+        }
+        if (!slotOccupancyIndex.isFree(institutionId, appointmentTime)) {
+            throw new SlotConflictException(institutionId, appointmentTime);
+        }
+
+        long now = System.currentTimeMillis();
+        Hold hold = new Hold(UUID.randomUUID().toString(), institutionId, appointmentTime, now + ttl * 1000L);
+        Map<LocalDateTime, Hold> institutionHolds = holdsByInstitution.computeIfAbsent(institutionId, id -> new ConcurrentHashMap<>());
+
+        Hold existing = institutionHolds.putIfAbsent(appointmentTime, hold);
+        if (existing != null) {
+            // Take over an expired hold the wheel has not swept yet, otherwise the slot is taken
+            if (!existing.isExpired(now) || !institutionHolds.replace(appointmentTime, existing, hold)) {
+                throw new SlotConflictException(institutionId, appointmentTime);
+            }
+            holdsByToken.remove(existing.token(), existing);
+        }
+
+        holdsByToken.put(hold.token(), hold);
+        wheel[bucketOf(hold.expiresAtMillis())].add(hold);
+        return hold;
+    }
+
+    // True when the slot is held by a live hold whose token differs from the given one
+    public boolean isHeldByOther(Long institutionId, LocalDateTime appointmentTime, String token) {
+        Map<LocalDateTime, Hold> institutionHolds = holdsByInstitution.get(institutionId);
+        if (institutionHolds == null) {
+            return false;
+        }
+        Hold hold = institutionHolds.get(appointmentTime);
+        return hold != null && !hold.isExpired(System.currentTimeMillis()) && !hold.token().equals(token);
+    }
+
+    // Slot times currently held for an institution
+    public Collection<LocalDateTime> heldSlots(Long institutionId) {
+        Map<LocalDateTime, Hold> institutionHolds = holdsByInstitution.get(institutionId);
+        if (institutionHolds == null || institutionHolds.isEmpty()) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<LocalDateTime> held = new ArrayList<>();
+        institutionHolds.values().forEach(hold -> {
+            if (!hold.isExpired(now)) {
+                held.add(hold.appointmentTime());
+            }
+        });
+        return held;
+    }
+
+    public void release(String token) {
+        Hold hold = holdsByToken.remove(token);
+        if (hold != null) {
+            removeFromInstitution(hold);
+        }
+    }
+
+    // Advances the wheel up to the current tick, expiring the holds whose deadline has passed
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public void expireHolds() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / TICK_MILLIS;
+        // After a long pause one full turn of the wheel visits every bucket
+        long fromTick = Math.max(processedTick + 1, currentTick - WHEEL_SIZE + 1);
+
+        int expired = 0;
+        List<Hold> pending = new ArrayList<>();
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            ConcurrentLinkedQueue<Hold> bucket = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+            for (Hold hold = bucket.poll(); hold != null; hold = bucket.poll()) {
+                if (hold.isExpired(now)) {
+                    holdsByToken.remove(hold.token(), hold);
+                    removeFromInstitution(hold);
+                    expired++;
+                } else {
+                    // Deadline is one or more turns of the wheel away
+                    pending.add(hold);
+                }
+            }
+            pending.forEach(hold -> wheel[bucketOf(hold.expiresAtMillis())].add(hold));
+            pending.clear();
+        }
+        processedTick = currentTick;
+
+        if (expired > 0) {
+            log.debug("Expired {} slot holds", expired);
+        }
+    }
+
+    private void removeFromInstitution(Hold hold) {
+        Map<LocalDateTime, Hold> institutionHolds = holdsByInstitution.get(hold.institutionId());
+        if (institutionHolds != null) {
+            institutionHolds.remove(hold.appointmentTime(), hold);
+        }
+    }
+
+    private int bucketOf(long expiresAtMillis) {
+        // Rounded up so a hold is never swept before its deadline
+        long tick = (expiresAtMillis + TICK_MILLIS - 1) / TICK_MILLIS;
+        return (int) (tick & (WHEEL_SIZE - 1));
+    }
+}
@@ -0,0 +1,270 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.projection.BookedSlot;
+import edu.saspsproject.repository.projection.InstitutionBookedSlot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory slot occupancy per institution and day, one bit per slot of the institution's {@link SlotTemplate}.
+ * Days are loaded from the database the first time they are queried (one range query per missing window)
+ * and are then kept up to date by the booking operations, so repeated availability reads do not touch
+ * the appointments table. Only days from today to {@link #CACHED_DAYS} ahead stay in memory: queries for
+ * other days are answered from the database every time, so arbitrary start dates cannot grow the index.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlotOccupancyIndex {
+
+    // Two months ahead covers every availability window the UI renders
+    static final int CACHED_DAYS = 62;
+
+    private final InstitutionRepository institutionRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    private final ConcurrentHashMap<Long, InstitutionSlots> institutions = new ConcurrentHashMap<>();
+
+    public SlotTemplate template(Long institutionId) {
+        return slots(institutionId).template;
+    }
+
+    public SlotTemplate template(Institution institution) {
+        return slots(institution).template;
+    }
+
+    /**
+     * Returns a copy of the free slots of each day in [firstDay, firstDay + days),
+     * bit {@code i} set meaning slot {@code i} is free.
+     */
+    public List<BitSet> freeSlots(Long institutionId, LocalDate firstDay, int days) {
+        return freeSlots(institutionId, slots(institutionId), firstDay, days);
+    }
+
+    public List<BitSet> freeSlots(Institution institution, LocalDate firstDay, int days) {
+        return freeSlots(institution.getId(), slots(institution), firstDay, days);
+    }
+
+    /**
+     * Loads the given window for many institutions with a single set-based query,
+     * so that the following per-institution reads are served from memory.
+     */
+    public void preload(Collection<Institution> candidates, LocalDate firstDay, int days) {
+        Map<Long, InstitutionSlots> missing = new HashMap<>();
+        Map<Long, Long> versions = new HashMap<>();
+        for (Institution institution : candidates) {
+            InstitutionSlots slots = slots(institution);
+            synchronized (slots) {
+                if (!slots.isLoaded(firstDay, days)) {
+                    missing.put(institution.getId(), slots);
+                    versions.put(institution.getId(), slots.version);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<InstitutionBookedSlot>> bookedByInstitution = appointmentRepository
+                .findActiveBookedSlots(missing.keySet(), firstDay.atStartOfDay(), firstDay.plusDays(days).atStartOfDay())
+                .stream()
+                .collect(Collectors.groupingBy(InstitutionBookedSlot::getInstitutionId));
+
+        missing.forEach((institutionId, slots) -> {
+            synchronized (slots) {
+                // A booking changed in between, the query result may be stale for this institution:
+                // leave it to the regular per-institution load
+                if (slots.version != versions.get(institutionId)) {
+                    return;
+                }
+                bookedByInstitution.getOrDefault(institutionId, List.of())
+                        .forEach(slot -> slots.set(slot.getAppointmentTime(), true));
+                for (int day = 0; day < days; day++) {
+                    slots.loadedDays.add(firstDay.plusDays(day));
+                }
+                slots.retainCachedDays(LocalDate.now());
+            }
+        });
+        log.debug("Preloaded {} institutions between {} and {}", missing.size(), firstDay, firstDay.plusDays(days));
+    }
+
+    public BitSet freeSlots(Long institutionId, LocalDate date) {
+        return freeSlots(institutionId, date, 1).get(0);
+    }
+
+    public boolean isFree(Long institutionId, LocalDateTime time) {
+        InstitutionSlots slots = slots(institutionId);
+        int slot = slots.template.slotIndexOf(time.toLocalTime());
+        if (slot < 0) {
+            return true;
+        }
+        synchronized (slots) {
+            ensureLoaded(institutionId, slots, time.toLocalDate(), 1);
+            BitSet day = slots.booked.get(time.toLocalDate());
+            boolean free = day == null || !day.get(slot);
+            slots.retainCachedDays(LocalDate.now());
+            return free;
+        }
+    }
+
+    public void markBooked(Long institutionId, LocalDateTime time) {
+        InstitutionSlots slots = institutions.get(institutionId);
+        // Institutions not loaded yet will see the booking when they are loaded
+        if (slots != null) {
+            synchronized (slots) {
+                slots.set(time, true);
+                slots.version++;
+            }
+        }
+    }
+
+    public void markFree(Long institutionId, LocalDateTime time) {
+        InstitutionSlots slots = institutions.get(institutionId);
+        if (slots != null) {
+            synchronized (slots) {
+                slots.set(time, false);
+                slots.version++;
+            }
+        }
+    }
+
+    // Drop an institution so it is reloaded with its current schedule on next access
+    public void evict(Long institutionId) {
+        institutions.remove(institutionId);
+    }
+
+    // Days that fell out of the cached window overnight are dropped
+    @Scheduled(cron = "0 5 0 * * *")
+    public void pruneExpiredDays() {
+        LocalDate today = LocalDate.now();
+        institutions.values().forEach(slots -> {
+            synchronized (slots) {
+                slots.retainCachedDays(today);
+            }
+        });
+    }
+
+    private List<BitSet> freeSlots(Long institutionId, InstitutionSlots slots, LocalDate firstDay, int days) {
+        synchronized (slots) {
+            ensureLoaded(institutionId, slots, firstDay, days);
+            List<BitSet> result = new ArrayList<>(days);
+            for (int day = 0; day < days; day++) {
+                result.add(slots.freeSlots(firstDay.plusDays(day)));
+            }
+            slots.retainCachedDays(LocalDate.now());
+            return result;
+        }
+    }
+
+    private InstitutionSlots slots(Long institutionId) {
+        return institutions.computeIfAbsent(institutionId, id -> {
+            Institution institution = institutionRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Institution not found"));
+            return new InstitutionSlots(SlotTemplate.of(institution));
+        });
+    }
+
+    private InstitutionSlots slots(Institution institution) {
+        return institutions.computeIfAbsent(institution.getId(), id -> new InstitutionSlots(SlotTemplate.of(institution)));
+    }
+
+    // Must be called while holding the lock of slots, so bookings cannot interleave with a load
+    private void ensureLoaded(Long institutionId, InstitutionSlots slots, LocalDate firstDay, int days) {
+        LocalDate missingFrom = null;
+        for (int day = 0; day <= days; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            boolean missing = day < days && !slots.loadedDays.contains(date);
+            if (missing && missingFrom == null) {
+                missingFrom = date;
+            } else if (!missing && missingFrom != null) {
+                load(institutionId, slots, missingFrom, date);
+                missingFrom = null;
+            }
+        }
+    }
+
+    private void load(Long institutionId, InstitutionSlots slots, LocalDate from, LocalDate to) {
+        List<BookedSlot> booked = appointmentRepository.findActiveBookedSlots(
+                institutionId, from.atStartOfDay(), to.atStartOfDay());
+        booked.forEach(slot -> slots.set(slot.getAppointmentTime(), true));
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            slots.loadedDays.add(date);
+        }
+        log.debug("Loaded {} booked slots for institution {} between {} and {}", booked.size(), institutionId, from, to);
+    }
+
+    private static final class InstitutionSlots {
+        private final SlotTemplate template;
+        private final Map<LocalDate, BitSet> booked = new HashMap<>();
+        private final Set<LocalDate> loadedDays = new HashSet<>();
+        // Incremented by every booking change, used to detect races with bulk loads
+        private long version;
+
+        private InstitutionSlots(SlotTemplate template) {
+            this.template = template;
+        }
+
+        void set(LocalDateTime time, boolean value) {
+            int slot = template.slotIndexOf(time.toLocalTime());
+            if (slot < 0) {
+                // Off-grid times never collide with a generated slot
+                return;
+            }
+            if (value) {
+                booked.computeIfAbsent(time.toLocalDate(), date -> new BitSet(template.slotCount())).set(slot);
+            } else {
+                BitSet day = booked.get(time.toLocalDate());
+                if (day != null) {
+                    day.clear(slot);
+                }
+            }
+        }
+
+        boolean isLoaded(LocalDate firstDay, int days) {
+            for (int day = 0; day < days; day++) {
+                if (!loadedDays.contains(firstDay.plusDays(day))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        BitSet freeSlots(LocalDate date) {
+            BitSet free = new BitSet(template.slotCount());
+            if (!template.isOpenOn(date)) {
+                return free;
+            }
+            free.set(0, template.slotCount());
+            BitSet day = booked.get(date);
+            if (day != null) {
+                free.andNot(day);
+            }
+            return free;
+        }
+
+        // Drops the days outside [today, today + CACHED_DAYS), they are reloaded when queried again
+        void retainCachedDays(LocalDate today) {
+            LocalDate end = today.plusDays(CACHED_DAYS);
+            booked.keySet().removeIf(day -> day.isBefore(today) || !day.isBefore(end));
+            loadedDays.removeIf(day -> day.isBefore(today) || !day.isBefore(end));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Makes booking a slot atomic. Attempts on the same (institution, slot) are serialized by a striped
+ * lock, so unrelated institutions never wait on each other, and the slot is checked against the
+ * occupancy index before the appointment is written. The unique constraint on active bookings
+ * (see {@link Appointment#getActiveSlot()}) covers writers outside this process.
+ */
+@Slf4j
+@Component
+public class SlotReservationEngine {
+
+    private final SlotOccupancyIndex slotOccupancyIndex;
+    private final SlotHoldRegistry slotHoldRegistry;
+    private final ReentrantLock[] stripes;
+
+    public SlotReservationEngine(SlotOccupancyIndex slotOccupancyIndex,
+                                 SlotHoldRegistry slotHoldRegistry,
+                                 @Value("${app.reservation.lock-stripes:1024}") int lockStripes) {
+        this.slotOccupancyIndex = slotOccupancyIndex;
+        this.slotHoldRegistry = slotHoldRegistry;
+        // Round up to a power of two so the stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Cheap check without locking, used to reject requests for taken slots early.
+    // A slot held by someone else is taken, a slot held with the given token is not.
+    public void ensureAvailable(Long institutionId, LocalDateTime appointmentTime, String holdToken) {
+        if (!slotOccupancyIndex.isFree(institutionId, appointmentTime)
+                || slotHoldRegistry.isHeldByOther(institutionId, appointmentTime, holdToken)) {
+            throw new SlotConflictException(institutionId, appointmentTime);
+        }
+    }
+
+    /**
+     * Persists the appointment through {@code persist} if the slot is still free, redeeming the
+     * hold identified by {@code holdToken} if any. {@code persist} must commit before returning,
+     * so the lock covers the whole write.
+     */
+    public Appointment reserve(Long institutionId, LocalDateTime appointmentTime, String holdToken, Supplier<Appointment> persist) {
+        // Most losing attempts on a popular slot stop here without queueing on the lock
+        ensureAvailable(institutionId, appointmentTime, holdToken);
+
+        ReentrantLock lock = stripeFor(institutionId, appointmentTime);
+        lock.lock();
+        try {
+            ensureAvailable(institutionId, appointmentTime, holdToken);
+
+            Appointment saved;
+            try {
+                saved = persist.get();
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Slot {} of institution {} was booked concurrently", appointmentTime, institutionId);
+                throw new SlotConflictException(institutionId, appointmentTime);
+            }
+            slotOccupancyIndex.markBooked(institutionId, appointmentTime);
+            if (holdToken != null) {
+                slotHoldRegistry.release(holdToken);
+            }
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(Long institutionId, LocalDateTime appointmentTime) {
+        int hash = 31 * institutionId.hashCode() + appointmentTime.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,54 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Institution;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Daily slot grid of an institution: slot {@code i} starts at
+ * {@code openingTime + i * intervalMinutes}, for {@code slotCount} slots per open day.
+ */
+public record SlotTemplate(LocalTime openingTime, int intervalMinutes, int slotCount, boolean closedOnWeekends) {
+
+    public static SlotTemplate of(Institution institution) {
+        // ANAF works with longer slots, everyone else uses 30 minutes
+        int interval = institution.getType() == Institution.InstitutionType.ANAF ? 45 : 30;
+
+        long openMinutes = ChronoUnit.MINUTES.between(institution.getOpeningTime(), institution.getClosingTime());
+        int slotCount = openMinutes <= 0 ? 0 : (int) ((openMinutes + interval - 1) / interval);
+
+        // Government institutions do not work on weekends
+        boolean closedOnWeekends = institution.getType() == Institution.InstitutionType.PRIMARIA
+                || institution.getType() == Institution.InstitutionType.ANAF;
+
+        return new SlotTemplate(institution.getOpeningTime(), interval, slotCount, closedOnWeekends);
+    }
+
+    public boolean isOpenOn(LocalDate date) {
+        if (!closedOnWeekends) {
+            return true;
+        }
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        return dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY;
+    }
+
+    public LocalDateTime slotAt(LocalDate date, int slot) {
+        return LocalDateTime.of(date, openingTime.plusMinutes((long) slot * intervalMinutes));
+    }
+
+    /**
+     * Returns the slot index of the given time, or -1 when the time is not on the slot grid.
+     */
+    public int slotIndexOf(LocalTime time) {
+        long minutes = ChronoUnit.MINUTES.between(openingTime, time);
+        if (minutes < 0 || minutes % intervalMinutes != 0 || time.getSecond() != 0 || time.getNano() != 0) {
+            return -1;
+        }
+        long slot = minutes / intervalMinutes;
+        return slot < slotCount ? (int) slot : -1;
+    }
+}
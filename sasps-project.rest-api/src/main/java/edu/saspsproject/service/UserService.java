@@ -1,37 +1,63 @@
 package edu.saspsproject.service;
 
 import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Notification;
 import edu.saspsproject.model.User;
 import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.IdCursor;
+import edu.saspsproject.repository.KeysetCursor;
+import edu.saspsproject.repository.KeysetPage;
 import edu.saspsproject.repository.UserRepository;
+import edu.saspsproject.repository.projection.AppointmentChange;
+import edu.saspsproject.repository.projection.UserStatusCount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * User service without design patterns, monolithic service with tight coupling
  * No facade pattern, no single responsibility principle
  */
+@Slf4j
 @Service
 public class UserService {
 
+    private static final DateTimeFormatter NOTIFICATION_TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     private final UserRepository userRepository;
     private final AppointmentRepository appointmentRepository;
     private final EmailService emailService;
     private final NotificationService notificationService;
+    private final SlotOccupancyIndex slotOccupancyIndex;
+    private final AppointmentStatsRegistry appointmentStatsRegistry;
+    private final DailyStatsRollupService dailyStatsRollupService;
+    private final TransactionTemplate transactionTemplate;
 
     public UserService(UserRepository userRepository,
                       AppointmentRepository appointmentRepository,
                       EmailService emailService,
-                      NotificationService notificationService) {
+                      NotificationService notificationService,
+                      SlotOccupancyIndex slotOccupancyIndex,
+                      AppointmentStatsRegistry appointmentStatsRegistry,
+                      DailyStatsRollupService dailyStatsRollupService,
+                      TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
         this.appointmentRepository = appointmentRepository;
         this.emailService = emailService;
         this.notificationService = notificationService;
+        this.slotOccupancyIndex = slotOccupancyIndex;
+        this.appointmentStatsRegistry = appointmentStatsRegistry;
+        this.dailyStatsRollupService = dailyStatsRollupService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     // Create user with notification, tightly coupled
@@ -132,118 +158,124 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
     }
 
-    // Get all users, no pagination
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    // Users in id order, one keyset page at a time
+    public KeysetPage<User> getAllUsers(String cursor, int size) {
+        KeysetPage.checkSize(size);
+        IdCursor after = IdCursor.decode(cursor, 0);
+        return toPage(userRepository.findByIdGreaterThanOrderByIdAsc(after.id(), Limit.of(size + 1)), size);
     }
 
-    // Get active users only
-    public List<User> getActiveUsers() {
-        return userRepository.findByActive(true);
+    // Active users only, in id order
+    public KeysetPage<User> getActiveUsers(String cursor, int size) {
+        KeysetPage.checkSize(size);
+        IdCursor after = IdCursor.decode(cursor, 0);
+        return toPage(userRepository.findByActiveAndIdGreaterThanOrderByIdAsc(true, after.id(), Limit.of(size + 1)), size);
     }
 
-    // Deactivate user, cascading logic hardcoded
+    // Deactivate user, cancelling all future appointments with one statement
     public void deactivateUser(Long userId) {
-        User user = getUserById(userId);
-        user.setActive(false);
-        userRepository.save(user);
-
-        // Hardcoded: also cancel all future appointments
-        List<Appointment> futureAppointments = appointmentRepository.findAll().stream()
-                .filter(apt -> apt.getUserId().equals(userId))
-                .filter(apt -> apt.getAppointmentTime().isAfter(LocalDateTime.now()))
-                .filter(apt -> apt.getStatus() != Appointment.Status.CANCELLED)
-                .toList();
-
-        for (Appointment apt : futureAppointments) {
-            apt.setStatus(Appointment.Status.CANCELLED);
-            appointmentRepository.save(apt);
-            
-            // Send cancellation notification, tightly coupled
-            try {
-                notificationService.createNotification(
-                    userId, 
-                    "Programarea a fost anulată deoarece contul a fost dezactivat", 
-                    "CANCELLATION"
-                );
-            } catch (Exception e) {
-                System.err.println("Failed to send cancellation notification");
-            }
+        List<AppointmentChange> cancelled = transactionTemplate.execute(status -> {
+            User user = getUserById(userId);
+            user.setActive(false);
+            userRepository.save(user);
+            return cancelFutureAppointments(user, "contul a fost dezactivat");
+        });
+        afterCancellation(cancelled);
+    }
+
+    // Cancel every future appointment of a user at once, for admin tools; returns how many were cancelled
+    public int cancelFutureAppointments(Long userId, String reason) {
+        List<AppointmentChange> cancelled = transactionTemplate.execute(status ->
+                cancelFutureAppointments(getUserById(userId), reason));
+        afterCancellation(cancelled);
+        return cancelled.size();
+    }
+
+    // Must run inside a transaction: the cancellation and its single notification commit together
+    private List<AppointmentChange> cancelFutureAppointments(User user, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        List<AppointmentChange> cancelled = appointmentRepository.cancelFutureAppointmentsOfUser(user.getId(), now, now);
+        if (!cancelled.isEmpty()) {
+            notificationService.createNotifications(List.of(user), cancellationMessage(cancelled, reason),
+                    Notification.NotificationType.CANCELLATION);
+        }
+        return cancelled;
+    }
+
+    private static String cancellationMessage(List<AppointmentChange> cancelled, String reason) {
+        String times = cancelled.stream()
+                .map(AppointmentChange::appointmentTime)
+                .sorted()
+                .map(time -> time.format(NOTIFICATION_TIME_FORMAT))
+                .collect(Collectors.joining(", "));
+        String subject = cancelled.size() == 1 ? "Programarea din " + times + " a fost anulată"
+                : "Programările din " + times + " au fost anulate";
+        return reason == null || reason.isBlank() ? subject : subject + " deoarece " + reason;
+    }
+
+    private void afterCancellation(List<AppointmentChange> cancelled) {
+        for (AppointmentChange apt : cancelled) {
+            slotOccupancyIndex.markFree(apt.institutionId(), apt.appointmentTime());
+            appointmentStatsRegistry.statusChanged(apt.institutionId(), apt.previousStatus(), Appointment.Status.CANCELLED);
         }
     }
 
-    // Complex user statistics, no separate analytics service
+    // User statistics from one grouped query over the user's appointments
     public Map<String, Object> getUserStatistics(Long userId) {
         User user = getUserById(userId);
-        List<Appointment> allAppointments = appointmentRepository.findAll().stream()
-                .filter(apt -> apt.getUserId().equals(userId))
-                .toList();
+        Map<Appointment.Status, UserStatusCount> byStatus = new EnumMap<>(Appointment.Status.class);
+        appointmentRepository.countByStatusForUser(userId, LocalDateTime.now())
+                .forEach(count -> byStatus.put(count.getStatus(), count));
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("userId", userId);
         stats.put("userName", user.getName());
         stats.put("email", user.getEmail());
-        stats.put("totalAppointments", allAppointments.size());
-
-        // Count by status, hardcoded logic
-        long pending = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.PENDING).count();
-        long confirmed = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.CONFIRMED).count();
-        long completed = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.COMPLETED).count();
-        long cancelled = allAppointments.stream()
-                .filter(apt -> apt.getStatus() == Appointment.Status.CANCELLED).count();
-
-        stats.put("pendingAppointments", pending);
-        stats.put("confirmedAppointments", confirmed);
-        stats.put("completedAppointments", completed);
-        stats.put("cancelledAppointments", cancelled);
-
-        // Future appointments
-        long futureAppointments = allAppointments.stream()
-                .filter(apt -> apt.getAppointmentTime().isAfter(LocalDateTime.now()))
-                .filter(apt -> apt.getStatus() != Appointment.Status.CANCELLED)
-                .count();
-        stats.put("upcomingAppointments", futureAppointments);
+
+        long total = byStatus.values().stream().mapToLong(UserStatusCount::getTotal).sum();
+        long upcomingAll = byStatus.values().stream().mapToLong(UserStatusCount::getUpcoming).sum();
+        stats.put("totalAppointments", total);
+
+        stats.put("pendingAppointments", totalOf(byStatus, Appointment.Status.PENDING));
+        stats.put("confirmedAppointments", totalOf(byStatus, Appointment.Status.CONFIRMED));
+        stats.put("completedAppointments", totalOf(byStatus, Appointment.Status.COMPLETED));
+        stats.put("cancelledAppointments", totalOf(byStatus, Appointment.Status.CANCELLED));
+
+        // Future appointments, cancelled ones left out
+        UserStatusCount cancelled = byStatus.get(Appointment.Status.CANCELLED);
+        stats.put("upcomingAppointments", upcomingAll - (cancelled == null ? 0 : cancelled.getUpcoming()));
 
         // Past appointments
-        long pastAppointments = allAppointments.stream()
-                .filter(apt -> apt.getAppointmentTime().isBefore(LocalDateTime.now()))
-                .count();
-        stats.put("pastAppointments", pastAppointments);
+        stats.put("pastAppointments", total - upcomingAll);
 
         return stats;
     }
 
+    private static long totalOf(Map<Appointment.Status, UserStatusCount> byStatus, Appointment.Status status) {
+        UserStatusCount count = byStatus.get(status);
+        return count == null ? 0 : count.getTotal();
+    }
+
     // Get users by county, for administrative purposes
     public List<User> getUsersByCounty(String county) {
         return userRepository.findByCounty(county);
     }
 
+    public KeysetPage<User> getUsersByCounty(String county, String cursor, int size) {
+        KeysetPage.checkSize(size);
+        IdCursor after = IdCursor.decode(cursor, 0);
+        return toPage(userRepository.findByCountyAndIdGreaterThanOrderByIdAsc(county, after.id(), Limit.of(size + 1)), size);
+    }
+
+    private static KeysetPage<User> toPage(List<User> fetched, int size) {
+        return KeysetPage.of(fetched, size, user -> new IdCursor(user.getId()).encode());
+    }
+
     // Get users by city
     public List<User> getUsersByCity(String city) {
         return userRepository.findByCity(city);
     }
 
-    // Bulk notification to all users in a county, no batch processing pattern
-    public void sendCountyAnnouncement(String county, String message) {
-        List<User> users = getUsersByCounty(county);
-        
-        for (User user : users) {
-            if (user.getActive() && user.getEmailNotificationsEnabled()) {
-                try {
-                    // Hardcoded notification creation, duplicate code
-                    notificationService.createNotification(user.getId(), message, "ANNOUNCEMENT");
-                } catch (Exception e) {
-                    System.err.println("Failed to send announcement to user: " + user.getId());
-                }
-            }
-        }
-        
-        System.out.println("Sent announcement to " + users.size() + " users in county: " + county);
-    }
-
     // Update notification preferences
     public User updateNotificationPreferences(Long userId, 
                                              Boolean emailEnabled, 
@@ -267,27 +299,31 @@ public class UserService {
         return userRepository.save(user);
     }
 
-    // Get user appointment history, duplicated from AppointmentService
-    public List<Appointment> getUserAppointmentHistory(Long userId) {
-        return appointmentRepository.findAll().stream()
-                .filter(apt -> apt.getUserId().equals(userId))
-                .sorted((a1, a2) -> a2.getAppointmentTime().compareTo(a1.getAppointmentTime()))
-                .toList();
+    // User appointment history, latest first, one keyset page at a time
+    public KeysetPage<Appointment> getUserAppointmentHistory(Long userId, String cursor, int size) {
+        KeysetPage.checkSize(size);
+        KeysetCursor before = KeysetCursor.decode(cursor, KeysetCursor.END);
+        getUserById(userId);
+        return KeysetPage.of(appointmentRepository.findUserHistory(userId, before, size + 1), size,
+                apt -> new KeysetCursor(apt.getAppointmentTime(), apt.getId()).encode());
     }
 
-    // Delete user, cascade delete not handled by DB
+    // Delete user, removing the appointments with one statement since there is no cascade in the DB
     public void deleteUser(Long userId) {
-        User user = getUserById(userId);
-        
-        // Manually delete all users appointments, no cascade
-        List<Appointment> userAppointments = appointmentRepository.findAll().stream()
-                .filter(apt -> apt.getUserId().equals(userId))
-                .toList();
-        
-        appointmentRepository.deleteAll(userAppointments);
-        
-        userRepository.delete(user);
-        
-        System.out.println("Deleted user " + userId + " and " + userAppointments.size() + " appointments");
+        List<AppointmentChange> deleted = transactionTemplate.execute(status -> {
+            User user = getUserById(userId);
+            List<AppointmentChange> appointments = appointmentRepository.deleteAppointmentsOfUser(userId);
+            userRepository.delete(user);
+            return appointments;
+        });
+
+        deleted.stream()
+                .filter(apt -> apt.previousStatus() != Appointment.Status.CANCELLED)
+                .forEach(apt -> slotOccupancyIndex.markFree(apt.institutionId(), apt.appointmentTime()));
+        deleted.forEach(appointmentStatsRegistry::deleted);
+        dailyStatsRollupService.markDirty(deleted.stream()
+                .map(apt -> apt.appointmentTime().toLocalDate())
+                .collect(Collectors.toSet()));
+        log.info("Deleted user {} and {} appointments", userId, deleted.size());
     }
 }
@@ -0,0 +1,136 @@
+package edu.saspsproject.benchmark;
+
+import edu.saspsproject.dto.request.AppointmentSearchCriteria;
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.KeysetCursor;
+import edu.saspsproject.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * First-page latency of the appointment search for representative filter mixes while the table
+ * grows to 10M rows, followed by a check that each mix with a composite index is planned on it.
+ * The EXPLAIN statements mirror the SQL generated for {@code AppointmentRepositoryImpl.search}.
+ */
+@Slf4j
+@BenchmarkDatabaseTest
+class AppointmentSearchBenchmarkTests {
+
+    private static final int INSTITUTIONS = 20;
+    private static final int PAGE = 100;
+    private static final int RUNS = 10;
+
+    private record FilterMix(String name, AppointmentSearchCriteria criteria, String condition,
+                             List<Object> parameters, String expectedIndex) {
+    }
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private InstitutionRepository institutionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void filterMixesUseTheirIndexesAsTheTableGrows() {
+        List<Long> institutionIds = BenchmarkData.institutions(institutionRepository, INSTITUTIONS);
+        List<Long> userIds = BenchmarkData.users(userRepository, 100);
+        LocalDateTime newest = LocalDate.now().plusDays(30).atStartOfDay();
+        List<FilterMix> mixes = mixes(institutionIds.get(0), userIds.get(0), newest.toLocalDate().minusDays(7));
+
+        long loaded = 0;
+        for (long size : BenchmarkData.sizes()) {
+            BenchmarkData.insertAppointments(jdbcTemplate, institutionIds, userIds, loaded, size, newest);
+            loaded = size;
+            for (FilterMix mix : mixes) {
+                double millis = BenchmarkData.medianMillis(RUNS, () ->
+                        appointmentRepository.search(mix.criteria(), KeysetCursor.START, PAGE + 1));
+                log.info("{} rows, {}: first page in {} ms", size, mix.name(), millis);
+            }
+        }
+
+        for (FilterMix mix : mixes) {
+            String plan = explain(mix);
+            log.info("Plan for {}:\n{}", mix.name(), plan);
+            if (mix.expectedIndex() != null) {
+                assertThat(plan).contains(mix.expectedIndex());
+            }
+        }
+    }
+
+    private List<FilterMix> mixes(Long institutionId, Long userId, LocalDate weekStart) {
+        Timestamp from = Timestamp.valueOf(weekStart.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(weekStart.plusDays(7).atStartOfDay());
+        return List.of(
+                new FilterMix("status",
+                        criteria(null, Appointment.Status.CANCELLED, null, null, null, null, null),
+                        "a.status = ?", List.of("CANCELLED"), "idx_appointments_status_time_id"),
+                new FilterMix("service type",
+                        criteria(null, null, Appointment.ServiceType.CERTIFICAT_NASTERE, null, null, null, null),
+                        "a.service_type = ?", List.of("CERTIFICAT_NASTERE"), "idx_appointments_service_time_id"),
+                new FilterMix("user",
+                        criteria(null, null, null, null, null, null, userId),
+                        "a.user_id = ?", List.of(userId), "idx_appointments_user_time_id"),
+                new FilterMix("institution and status",
+                        criteria(institutionId, Appointment.Status.CONFIRMED, null, null, null, null, null),
+                        "a.institution_id = ? and a.status = ?", List.of(institutionId, "CONFIRMED"),
+                        "idx_appointments_institution_status_time"),
+                new FilterMix("institution and week",
+                        criteria(institutionId, null, null, null, weekStart, weekStart.plusDays(6), null),
+                        "a.institution_id = ? and a.appointment_time >= ? and a.appointment_time < ?",
+                        List.of(institutionId, from, to), "idx_appointments_institution_time"),
+                new FilterMix("week",
+                        criteria(null, null, null, null, weekStart, weekStart.plusDays(6), null),
+                        "a.appointment_time >= ? and a.appointment_time < ?", List.of(from, to),
+                        "idx_appointments_time_id"),
+                // No index of its own, walks the time order and filters
+                new FilterMix("priority",
+                        criteria(null, null, null, Appointment.PriorityLevel.URGENT, null, null, null),
+                        "a.priority_level = ?", List.of("URGENT"), null));
+    }
+
+    private static AppointmentSearchCriteria criteria(Long institutionId, Appointment.Status status,
+                                                      Appointment.ServiceType serviceType,
+                                                      Appointment.PriorityLevel priorityLevel,
+                                                      LocalDate startDate, LocalDate endDate, Long userId) {
+        return new AppointmentSearchCriteria(institutionId, null, status, serviceType, priorityLevel, startDate, endDate, userId);
+    }
+
+    // Sequential scans are disabled so the check also holds on the small tables of a quick run
+    private String explain(FilterMix mix) {
+        Object[] parameters = Stream.concat(
+                        Stream.of(Timestamp.valueOf(KeysetCursor.START.time()), KeysetCursor.START.id()),
+                        Stream.concat(mix.parameters().stream(), Stream.of(PAGE + 1)))
+                .toArray();
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("set local enable_seqscan = off");
+            List<String> lines = new ArrayList<>(jdbcTemplate.queryForList(
+                    "explain select * from appointments a where (a.appointment_time, a.id) > (?, ?) and "
+                            + mix.condition() + " order by a.appointment_time, a.id limit ?",
+                    String.class, parameters));
+            return String.join("\n", lines);
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package edu.saspsproject.benchmark;
+
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.UserRepository;
+import edu.saspsproject.service.SlotOccupancyIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Availability latency while the appointment history grows from 10k to 10M rows. Each run uses a
+ * fresh {@link SlotOccupancyIndex}, so it measures the cold path: one range query on
+ * idx_appointments_institution_time for the 14-day window. The whole-history read it replaced
+ * (findByInstitutionId) is measured next to it while that stays affordable.
+ */
+@Slf4j
+@BenchmarkDatabaseTest
+class AvailabilityLatencyBenchmarkTests {
+
+    private static final int INSTITUTIONS = 20;
+    private static final int RUNS = 20;
+    // Whole-history reads past this size take minutes and only confirm the trend
+    private static final long MAX_ROWS_FOR_FULL_HISTORY = 1_000_000L;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private InstitutionRepository institutionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void availabilityLatencyStaysFlatAsHistoryGrows() {
+        List<Long> institutionIds = BenchmarkData.institutions(institutionRepository, INSTITUTIONS);
+        List<Long> userIds = BenchmarkData.users(userRepository, 100);
+        Long institutionId = institutionIds.get(0);
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        // The newest rows fall in the rendered window, everything older is history
+        LocalDateTime newest = firstDay.plusDays(14).atStartOfDay();
+
+        Map<Long, Double> windowMillis = new LinkedHashMap<>();
+        long loaded = 0;
+        for (long size : BenchmarkData.sizes()) {
+            BenchmarkData.insertAppointments(jdbcTemplate, institutionIds, userIds, loaded, size, newest);
+            loaded = size;
+
+            double window = BenchmarkData.medianMillis(RUNS, () ->
+                    new SlotOccupancyIndex(institutionRepository, appointmentRepository).freeSlots(institutionId, firstDay, 14));
+            windowMillis.put(size, window);
+            if (size <= MAX_ROWS_FOR_FULL_HISTORY) {
+                double fullHistory = BenchmarkData.medianMillis(3, () -> appointmentRepository.findByInstitutionId(institutionId));
+                log.info("{} rows: 14-day window {} ms, full institution history {} ms", size, window, fullHistory);
+            } else {
+                log.info("{} rows: 14-day window {} ms", size, window);
+            }
+        }
+
+        // Flat within noise: a thousandfold larger table may not make the window query more than a few times slower
+        double smallest = windowMillis.values().iterator().next();
+        assertThat(windowMillis.get(loaded)).isLessThan(smallest * 4 + 5);
+    }
+}
@@ -0,0 +1,106 @@
+package edu.saspsproject.benchmark;
+
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.model.User;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.UserRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Data generators and timing helpers shared by the database benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static List<Long> institutions(InstitutionRepository institutionRepository, int count) {
+        List<Institution> institutions = IntStream.range(0, count)
+                .mapToObj(i -> {
+                    Institution institution = new Institution();
+                    institution.setName("Benchmark institution " + i);
+                    institution.setType(Institution.InstitutionType.values()[i % Institution.InstitutionType.values().length]);
+                    institution.setOpeningTime(LocalTime.of(8, 0));
+                    institution.setClosingTime(LocalTime.of(16, 0));
+                    institution.setMaxAppointmentsPerDay(16);
+                    return institution;
+                })
+                .toList();
+        return institutionRepository.saveAll(institutions).stream().map(Institution::getId).toList();
+    }
+
+    static List<Long> users(UserRepository userRepository, int count) {
+        List<User> users = IntStream.range(0, count)
+                .mapToObj(i -> {
+                    User user = new User();
+                    user.setName("Benchmark user " + i);
+                    user.setEmail("benchmark-" + i + "@example.com");
+                    user.setCounty(i % 2 == 0 ? "Cluj" : "Iasi");
+                    user.setCreatedAt(LocalDateTime.now());
+                    return user;
+                })
+                .toList();
+        return userRepository.saveAll(users).stream().map(User::getId).toList();
+    }
+
+    /**
+     * Inserts the appointments with ids in (fromId, toId] in one statement. Row {@code g} goes to
+     * institution {@code g % institutions} and is booked {@code g / institutions} quarter hours
+     * before {@code newest}, so every (institution, time) is unique and older rows form the history.
+     * One row in ten is cancelled; statuses, services, priorities and users rotate.
+     */
+    static void insertAppointments(JdbcTemplate jdbcTemplate, List<Long> institutionIds, List<Long> userIds,
+                                   long fromId, long toId, LocalDateTime newest) {
+        jdbcTemplate.update("insert into appointments (id, institution_id, user_id, title, appointment_time, service_type, "
+                        + "priority_level, status, institution_type, estimated_duration, document_required, reminder_sent, "
+                        + "active_slot, created_at, updated_at) "
+                        + "select g, i.ids[(g % " + institutionIds.size() + ")::int + 1], u.ids[(g % " + userIds.size() + ")::int + 1], 'Benchmark', "
+                        + "t.time, (array['ELIBERARE_CI', 'CERTIFICAT_NASTERE', 'DECLARATIE_FISCALA'])[(g % 3)::int + 1], "
+                        + "(array['LOW', 'MEDIUM', 'HIGH', 'URGENT'])[(g % 4)::int + 1], "
+                        + "case g % 10 when 0 then 'CANCELLED' when 1 then 'COMPLETED' when 2 then 'CONFIRMED' else 'PENDING' end, "
+                        + "'PRIMARIE', 30, 'CI', false, case g % 10 when 0 then null else true end, "
+                        + "t.time - interval '7 days', t.time - interval '7 days' "
+                        + "from generate_series(?::bigint, ?::bigint) g "
+                        + "cross join (select " + arrayLiteral(institutionIds) + " as ids) i "
+                        + "cross join (select " + arrayLiteral(userIds) + " as ids) u "
+                        + "cross join lateral (select ?::timestamp - (g / " + institutionIds.size() + ") * interval '15 minutes' as time) t",
+                fromId + 1, toId, Timestamp.valueOf(newest));
+        jdbcTemplate.execute("analyze appointments");
+    }
+
+    // Median of the runs in milliseconds, after as many unmeasured warm-up runs
+    static double medianMillis(int runs, Runnable action) {
+        for (int i = 0; i < runs; i++) {
+            action.run();
+        }
+        List<Double> millis = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            action.run();
+            millis.add((System.nanoTime() - start) / 1e6);
+        }
+        double[] sorted = millis.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        return sorted[sorted.length / 2];
+    }
+
+    // Dataset sizes from 10k rows up to benchmark.max-rows (10M by default), growing tenfold
+    static long[] sizes() {
+        long maxRows = Long.getLong("benchmark.max-rows", 10_000_000L);
+        return Arrays.stream(new long[]{10_000L, 100_000L, 1_000_000L, 10_000_000L})
+                .filter(size -> size <= maxRows)
+                .toArray();
+    }
+
+    private static String arrayLiteral(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(", ", "array[", "]::bigint[]"));
+    }
+}
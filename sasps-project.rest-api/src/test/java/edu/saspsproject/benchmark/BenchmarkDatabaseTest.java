@@ -0,0 +1,39 @@
+package edu.saspsproject.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * JPA slice against a scratch PostgreSQL database, for the benchmarks that need realistic data
+ * volumes. They only run when one is given, and the schema is dropped afterwards:
+ * <pre>
+ * mvn test -Dgroups=benchmark -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/sasps_benchmark \
+ *     -Dspring.datasource.username=... -Dspring.datasource.password=...
+ * </pre>
+ * Data is committed as it is written (no test transaction), so the queries see analyzed tables,
+ * and each benchmark class gets its own context so it starts from an empty schema.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@DataJpaTest(properties = {
+        "spring.datasource.url=${benchmark.db.url}",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext
+public @interface BenchmarkDatabaseTest {
+}
@@ -0,0 +1,115 @@
+package edu.saspsproject.benchmark;
+
+import edu.saspsproject.model.County;
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.repository.CountyRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.NotificationRepository;
+import edu.saspsproject.repository.PublicServiceRepository;
+import edu.saspsproject.service.InstitutionDataLoader;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bulk inserts with and without JDBC batching. "Unbatched" sets the session batch size to 1, which
+ * is what every insert looked like while the entities used identity ids (Hibernate cannot batch
+ * those); "batched" uses the configured hibernate.jdbc.batch_size with pooled sequence ids.
+ */
+@Slf4j
+@BenchmarkDatabaseTest
+class BulkInsertBenchmarkTests {
+
+    private static final int NOTIFICATIONS = 100_000;
+    private static final int INSTITUTION_LOADS = 10;
+
+    @Autowired
+    private CountyRepository countyRepository;
+
+    @Autowired
+    private InstitutionRepository institutionRepository;
+
+    @Autowired
+    private PublicServiceRepository publicServiceRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        if (countyRepository.count() == 0) {
+            countyRepository.saveAll(IntStream.range(0, 41)
+                    .mapToObj(i -> new County("Judet " + i))
+                    .toList());
+            countyRepository.save(new County("Bucuresti"));
+        }
+    }
+
+    @Test
+    void institutionLoadIsFasterBatched() {
+        InstitutionDataLoader loader = new InstitutionDataLoader(countyRepository, institutionRepository, publicServiceRepository);
+
+        double unbatched = BenchmarkData.medianMillis(INSTITUTION_LOADS, () -> inTransaction(1, loader::loadSimpleInstitutions));
+        double batched = BenchmarkData.medianMillis(INSTITUTION_LOADS, () -> inTransaction(null, loader::loadSimpleInstitutions));
+        log.info("Institution load: unbatched {} ms, batched {} ms", unbatched, batched);
+
+        assertThat(batched).isLessThan(unbatched);
+    }
+
+    @Test
+    void hundredThousandNotificationsAreFasterBatched() {
+        // Warm up the insert path on a small batch first
+        inTransaction(null, () -> notificationRepository.saveAll(notifications(1_000)));
+
+        long start = System.nanoTime();
+        inTransaction(1, () -> notificationRepository.saveAll(notifications(NOTIFICATIONS)));
+        double unbatched = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        inTransaction(null, () -> notificationRepository.saveAll(notifications(NOTIFICATIONS)));
+        double batched = (System.nanoTime() - start) / 1e6;
+        log.info("{} notifications: unbatched {} ms, batched {} ms", NOTIFICATIONS, unbatched, batched);
+
+        assertThat(batched).isLessThan(unbatched);
+    }
+
+    // Runs the action in a transaction, with the given JDBC batch size or the configured one when null
+    private void inTransaction(Integer batchSize, Runnable action) {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            action.run();
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private static List<Notification> notifications(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        return IntStream.range(0, count)
+                .mapToObj(i -> Notification.builder()
+                        .userId((long) i % 1000)
+                        .method(Notification.NotificationMethod.NONE)
+                        .type(Notification.NotificationType.ANNOUNCEMENT)
+                        .status(Notification.NotificationStatus.SENT)
+                        .message("Benchmark announcement " + i)
+                        .sentAt(now)
+                        .build())
+                .toList();
+    }
+}
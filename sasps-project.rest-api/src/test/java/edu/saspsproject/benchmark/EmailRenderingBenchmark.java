@@ -0,0 +1,152 @@
+package edu.saspsproject.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Email rendering throughput and allocation: the string concatenation the emails used to be built
+ * with against the cached Thymeleaf templates, for the confirmation and the announcement emails.
+ * The engine is set up like the application's, with the template cache on and the i18n/email texts.
+ * Run {@link #main} from the IDE, or {@code mvn test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test -Dexec.args="-cp %classpath edu.saspsproject.benchmark.EmailRenderingBenchmark"};
+ * the GC profiler reports the bytes allocated per email as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailRenderingBenchmark {
+
+    private static final Locale LOCALE = Locale.forLanguageTag("ro");
+    private static final DateTimeFormatter APPOINTMENT_TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 3, 9, 30);
+    private static final String NAME = "Ion Popescu";
+    private static final String INSTITUTION = "Primăria Cluj-Napoca";
+    private static final String SERVICE = "ELIBERARE_CI";
+    private static final String PRIORITY = "NORMAL";
+    private static final String ANNOUNCEMENT = "Ghișeele sunt închise vineri, 7 martie, pentru inventar.";
+
+    private SpringTemplateEngine templateEngine;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("i18n/email");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+    }
+
+    @Benchmark
+    public String confirmationConcatenated() {
+        // As before, a new formatter per email
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        return "<!DOCTYPE html><html><head><style>"
+                + "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }"
+                + ".container { max-width: 600px; margin: 0 auto; padding: 20px; }"
+                + ".header { background-color: #4CAF50; color: white; padding: 20px; text-align: center; }"
+                + ".content { padding: 20px; background-color: #f9f9f9; }"
+                + ".details { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #4CAF50; }"
+                + ".footer { text-align: center; padding: 20px; font-size: 12px; color: #666; }"
+                + "</style></head><body><div class='container'>"
+                + "<div class='header'><h1>Programare confirmată</h1></div>"
+                + "<div class='content'>"
+                + "<p>Bună " + NAME + ",</p>"
+                + "<p>Programarea dumneavoastră a fost confirmată cu succes!</p>"
+                + "<div class='details'>"
+                + "<h3>Detalii programare:</h3>"
+                + "<p><strong>Instituție:</strong> " + INSTITUTION + "</p>"
+                + "<p><strong>Data și ora:</strong> " + TIME.format(formatter) + "</p>"
+                + "<p><strong>Serviciu:</strong> " + SERVICE + "</p>"
+                + "<p><strong>Prioritate:</strong> " + PRIORITY + "</p>"
+                + "</div>"
+                + "<p>Vă rugăm să ajungeți cu 10 minute înainte de ora programării.</p>"
+                + "<p>Veți primi un reminder cu 24 de ore înainte de programare.</p>"
+                + "</div>"
+                + "<div class='footer'>"
+                + "<p>Acest email a fost generat automat. Vă rugăm să nu răspundeți.</p>"
+                + "<p>&copy; 2025 SASPS, Sistem de Agendat la Servicii Publice</p>"
+                + "</div></div></body></html>";
+    }
+
+    @Benchmark
+    public String confirmationTemplate() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", NAME);
+        variables.put("institution", INSTITUTION);
+        variables.put("time", TIME.format(APPOINTMENT_TIME_FORMAT));
+        variables.put("service", SERVICE);
+        variables.put("priority", PRIORITY);
+        return templateEngine.process("email/confirmation", new Context(LOCALE, variables));
+    }
+
+    @Benchmark
+    public String announcementConcatenated() {
+        return "<!DOCTYPE html><html><head><style>"
+                + "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }"
+                + ".container { max-width: 600px; margin: 0 auto; padding: 20px; }"
+                + ".header { background-color: #2196F3; color: white; padding: 20px; text-align: center; }"
+                + ".content { padding: 20px; background-color: #f9f9f9; }"
+                + ".footer { text-align: center; padding: 20px; font-size: 12px; color: #666; }"
+                + "</style></head><body><div class='container'>"
+                + "<div class='header'><h1>Anunț</h1></div>"
+                + "<div class='content'>"
+                + "<p>Bună " + HtmlUtils.htmlEscape(NAME) + ",</p>"
+                + "<p>" + HtmlUtils.htmlEscape(ANNOUNCEMENT) + "</p>"
+                + "</div>"
+                + "<div class='footer'>"
+                + "<p>Acest email a fost generat automat. Vă rugăm să nu răspundeți.</p>"
+                + "<p>&copy; 2025 SASPS</p>"
+                + "</div></div></body></html>";
+    }
+
+    @Benchmark
+    public String announcementTemplate() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", NAME);
+        variables.put("text", ANNOUNCEMENT);
+        return templateEngine.process("email/announcement", new Context(LOCALE, variables));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailRenderingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package edu.saspsproject.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetPagingTests {
+
+    private record Row(LocalDateTime time, long id) {
+    }
+
+    private static final Comparator<Row> BY_TIME_AND_ID = Comparator.comparing(Row::time).thenComparingLong(Row::id);
+
+    @Test
+    void cursorsRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2025, 3, 3, 9, 30), 42);
+        assertThat(KeysetCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(IdCursor.decode(new IdCursor(42).encode(), 0)).isEqualTo(new IdCursor(42));
+    }
+
+    @Test
+    void missingCursorStartsTheListing() {
+        assertThat(KeysetCursor.decode(null)).isEqualTo(KeysetCursor.START);
+        assertThat(KeysetCursor.decode(" ", KeysetCursor.END)).isEqualTo(KeysetCursor.END);
+        assertThat(IdCursor.decode(null, Long.MAX_VALUE)).isEqualTo(new IdCursor(Long.MAX_VALUE));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        String withoutSeparator = new IdCursor(42).encode();
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(withoutSeparator)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IdCursor.decode("bm90LWEtbnVtYmVy", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void pageOfSizePlusOneRowsPointsAtItsLastItem() {
+        List<Row> fetched = List.of(row(0, 1), row(0, 2), row(1, 3));
+
+        KeysetPage<Row> page = KeysetPage.of(fetched, 2, KeysetPagingTests::cursorOf);
+
+        assertThat(page.items()).containsExactly(row(0, 1), row(0, 2));
+        assertThat(page.hasMore()).isTrue();
+        assertThat(KeysetCursor.decode(page.nextCursor())).isEqualTo(new KeysetCursor(row(0, 2).time(), 2));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        KeysetPage<Row> page = KeysetPage.of(List.of(row(0, 1), row(0, 2)), 2, KeysetPagingTests::cursorOf);
+
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.hasMore()).isFalse();
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void pageSizeIsBounded() {
+        assertThat(KeysetPage.checkSize(KeysetPage.MAX_SIZE)).isEqualTo(KeysetPage.MAX_SIZE);
+        assertThatThrownBy(() -> KeysetPage.checkSize(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetPage.checkSize(KeysetPage.MAX_SIZE + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void walkingThePagesVisitsEveryRowOnceAcrossSharedTimestamps() {
+        // Five rows per timestamp, so page boundaries fall inside groups of equal times
+        List<Row> table = IntStream.range(0, 53)
+                .mapToObj(i -> row(i / 5, 1000 - i))
+                .sorted(BY_TIME_AND_ID)
+                .toList();
+
+        List<Row> visited = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeysetPage<Row> page = KeysetPage.of(fetchAfter(table, KeysetCursor.decode(cursor), 7), 7, KeysetPagingTests::cursorOf);
+            visited.addAll(page.items());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(visited).isEqualTo(table);
+        assertThat(pages).isEqualTo(8);
+    }
+
+    // What the (time, id) > (:time, :id) order by time, id limit size + 1 queries return
+    private static List<Row> fetchAfter(List<Row> table, KeysetCursor cursor, int size) {
+        Row after = new Row(cursor.time(), cursor.id());
+        return table.stream()
+                .filter(row -> BY_TIME_AND_ID.compare(row, after) > 0)
+                .limit(size + 1L)
+                .toList();
+    }
+
+    private static Row row(int quarterHour, long id) {
+        return new Row(LocalDateTime.of(2025, 3, 3, 8, 0).plusMinutes(15L * quarterHour), id);
+    }
+
+    private static String cursorOf(Row row) {
+        return new KeysetCursor(row.time(), row.id()).encode();
+    }
+}
@@ -0,0 +1,298 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.AnnouncementJob;
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.model.User;
+import edu.saspsproject.repository.AnnouncementJobRepository;
+import edu.saspsproject.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnnouncementServiceTests {
+
+    private static final Long JOB_ID = 1L;
+    private static final String COUNTY = "Cluj";
+    private static final String MESSAGE = "Ghișeele sunt închise vineri";
+    private static final int PAGE_SIZE = 2;
+    private static final int MAX_FAILURES = 2;
+
+    // Not every test reaches the job rows, they stand in for the table
+    @Mock(strictness = Mock.Strictness.LENIENT)
+    private AnnouncementJobRepository announcementJobRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private EmailService emailService;
+
+    // Job rows by id, saved copies are checked against the stored version like the @Version column
+    private final Map<Long, AnnouncementJob> jobs = new HashMap<>();
+    private final List<User> users = LongStream.rangeClosed(1, 5).mapToObj(AnnouncementServiceTests::user).toList();
+    private ExecutorService mailExecutor;
+    private AnnouncementService announcementService;
+
+    @BeforeEach
+    void setUp() {
+        when(announcementJobRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(jobs.get((Long) invocation.getArgument(0))).map(AnnouncementServiceTests::copy));
+        when(announcementJobRepository.save(any(AnnouncementJob.class)))
+                .thenAnswer(invocation -> store(invocation.getArgument(0)));
+        when(announcementJobRepository.findByStatusInOrderByIdAsc(any()))
+                .thenAnswer(invocation -> jobs.values().stream()
+                        .filter(job -> job.getStatus() == AnnouncementJob.Status.QUEUED
+                                || job.getStatus() == AnnouncementJob.Status.RUNNING)
+                        .map(AnnouncementServiceTests::copy)
+                        .toList());
+
+        mailExecutor = Executors.newSingleThreadExecutor();
+        // Runs the jobs on the calling thread so each test sees the finished run
+        ThreadPoolExecutor inlineExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        announcementService = new AnnouncementService(announcementJobRepository, userRepository, notificationService,
+                emailService, new TransactionTemplate(mock(PlatformTransactionManager.class)), inlineExecutor,
+                mailExecutor, PAGE_SIZE, 50, 60_000, MAX_FAILURES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailExecutor.shutdownNow();
+    }
+
+    @Test
+    void sweepResumesAnAbandonedJobFromItsCursor() {
+        AnnouncementJob job = job(AnnouncementJob.Status.RUNNING);
+        job.setLastUserId(2);
+        job.setRecipientsProcessed(2);
+        // Lease of a crashed instance that ran out
+        job.setLeaseOwner("crashed");
+        job.setLeaseUntil(LocalDateTime.now().minusMinutes(1));
+        jobs.put(JOB_ID, job);
+        givenUsers();
+
+        announcementService.resumeUnfinishedJobs();
+
+        AnnouncementJob stored = jobs.get(JOB_ID);
+        assertThat(stored.getStatus()).isEqualTo(AnnouncementJob.Status.COMPLETED);
+        assertThat(stored.getLastUserId()).isEqualTo(5L);
+        assertThat(stored.getRecipientsProcessed()).isEqualTo(5L);
+        assertThat(stored.getLeaseOwner()).isNull();
+        verify(notificationService).createNotifications(users.subList(2, 4), MESSAGE, Notification.NotificationType.ANNOUNCEMENT);
+        verify(notificationService).createNotifications(users.subList(4, 5), MESSAGE, Notification.NotificationType.ANNOUNCEMENT);
+        verify(emailService, never()).queueAnnouncementEmails(eq(users.subList(0, 2)), anyString(), anyString());
+    }
+
+    @Test
+    void pageEmailsAreStoredWithTheCursorAndSentAfterTheCommit() {
+        jobs.put(JOB_ID, job(AnnouncementJob.Status.QUEUED));
+        givenUsers();
+        when(emailService.queueAnnouncementEmails(anyList(), eq(COUNTY), eq(MESSAGE))).thenAnswer(invocation -> {
+            List<User> recipients = invocation.getArgument(0);
+            // Stored in the page's transaction, before the cursor moves
+            assertThat(jobs.get(JOB_ID).getLastUserId()).isLessThan(recipients.get(0).getId());
+            return recipients.stream().map(user -> Notification.builder().userId(user.getId()).build()).toList();
+        });
+        when(emailService.sendQueuedEmails(anyList())).thenAnswer(invocation -> {
+            List<Notification> batch = invocation.getArgument(0);
+            assertThat(jobs.get(JOB_ID).getLastUserId()).isEqualTo(batch.get(batch.size() - 1).getUserId());
+            // The last page cannot be sent yet
+            return batch.size() == 1 ? 1 : 0;
+        });
+
+        announcementService.resumeUnfinishedJobs();
+
+        AnnouncementJob stored = jobs.get(JOB_ID);
+        assertThat(stored.getStatus()).isEqualTo(AnnouncementJob.Status.COMPLETED);
+        assertThat(stored.getEmailsSent()).isEqualTo(4L);
+        assertThat(stored.getEmailsFailed()).isEqualTo(1L);
+        verify(emailService, times(3)).sendQueuedEmails(anyList());
+    }
+
+    @Test
+    void sweepSkipsJobsLeasedByAnotherInstance() {
+        AnnouncementJob job = job(AnnouncementJob.Status.RUNNING);
+        job.setLeaseOwner("other");
+        job.setLeaseUntil(LocalDateTime.now().plusMinutes(1));
+        jobs.put(JOB_ID, job);
+
+        announcementService.resumeUnfinishedJobs();
+
+        verifyNoInteractions(userRepository, emailService, notificationService);
+        assertThat(jobs.get(JOB_ID).getLeaseOwner()).isEqualTo("other");
+    }
+
+    @Test
+    void failedRunReleasesTheJobForTheNextSweep() {
+        jobs.put(JOB_ID, job(AnnouncementJob.Status.QUEUED));
+        givenUsers();
+        doThrow(new IllegalStateException("connection lost"))
+                .doNothing()
+                .when(notificationService).createNotifications(anyList(), anyString(), any());
+
+        announcementService.resumeUnfinishedJobs();
+
+        AnnouncementJob failed = jobs.get(JOB_ID);
+        assertThat(failed.getStatus()).isEqualTo(AnnouncementJob.Status.RUNNING);
+        assertThat(failed.getFailures()).isEqualTo(1);
+        assertThat(failed.getLastError()).isEqualTo("connection lost");
+        assertThat(failed.getLeaseUntil()).isNull();
+        assertThat(failed.getLastUserId()).isEqualTo(0L);
+
+        announcementService.resumeUnfinishedJobs();
+
+        AnnouncementJob completed = jobs.get(JOB_ID);
+        assertThat(completed.getStatus()).isEqualTo(AnnouncementJob.Status.COMPLETED);
+        assertThat(completed.getFailures()).isEqualTo(0);
+        assertThat(completed.getRecipientsProcessed()).isEqualTo(5L);
+    }
+
+    @Test
+    void jobFailingTooOftenIsGivenUpUntilResumedByHand() {
+        jobs.put(JOB_ID, job(AnnouncementJob.Status.QUEUED));
+        givenUsers();
+        doThrow(new IllegalStateException("connection lost"))
+                .when(notificationService).createNotifications(anyList(), anyString(), any());
+
+        for (int run = 0; run < MAX_FAILURES + 1; run++) {
+            announcementService.resumeUnfinishedJobs();
+        }
+
+        assertThat(jobs.get(JOB_ID).getStatus()).isEqualTo(AnnouncementJob.Status.FAILED);
+        // The sweep leaves failed jobs alone
+        verify(notificationService, times(MAX_FAILURES)).createNotifications(anyList(), anyString(), any());
+
+        doNothing().when(notificationService).createNotifications(anyList(), anyString(), any());
+        announcementService.resume(JOB_ID);
+
+        AnnouncementJob resumed = jobs.get(JOB_ID);
+        assertThat(resumed.getStatus()).isEqualTo(AnnouncementJob.Status.COMPLETED);
+        assertThat(resumed.getRecipientsProcessed()).isEqualTo(5L);
+    }
+
+    @Test
+    void resumeRefusesCompletedAndRunningJobs() {
+        jobs.put(JOB_ID, job(AnnouncementJob.Status.COMPLETED));
+        AnnouncementJob running = job(AnnouncementJob.Status.RUNNING);
+        running.setId(2L);
+        running.setLeaseOwner("other");
+        running.setLeaseUntil(LocalDateTime.now().plusMinutes(1));
+        jobs.put(2L, running);
+
+        assertThatThrownBy(() -> announcementService.resume(JOB_ID)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> announcementService.resume(2L)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> announcementService.resume(3L)).isInstanceOf(RuntimeException.class);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void runStopsWithoutFailureWhenAnotherInstanceTookTheJobOver() {
+        jobs.put(JOB_ID, job(AnnouncementJob.Status.QUEUED));
+        givenUsers();
+        // While the first page is prepared the lease runs out and another instance claims the job
+        when(emailService.queueAnnouncementEmails(anyList(), anyString(), anyString())).thenAnswer(invocation -> {
+            AnnouncementJob stored = jobs.get(JOB_ID);
+            stored.setLeaseOwner("other");
+            stored.setLeaseUntil(LocalDateTime.now().plusMinutes(1));
+            stored.setVersion(stored.getVersion() + 1);
+            return List.of();
+        });
+
+        announcementService.resumeUnfinishedJobs();
+
+        AnnouncementJob stored = jobs.get(JOB_ID);
+        assertThat(stored.getLeaseOwner()).isEqualTo("other");
+        assertThat(stored.getLastUserId()).isEqualTo(0L);
+        assertThat(stored.getFailures()).isEqualTo(0);
+        verify(userRepository, times(1)).findByCountyAndActiveTrueAndEmailNotificationsEnabledTrueAndIdGreaterThanOrderByIdAsc(
+                anyString(), anyLong(), any());
+    }
+
+    private void givenUsers() {
+        when(userRepository.findByCountyAndActiveTrueAndEmailNotificationsEnabledTrueAndIdGreaterThanOrderByIdAsc(
+                eq(COUNTY), anyLong(), any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(1);
+                    return users.stream().filter(user -> user.getId() > after).limit(PAGE_SIZE).toList();
+                });
+    }
+
+    private AnnouncementJob store(AnnouncementJob job) {
+        AnnouncementJob stored = jobs.get(job.getId());
+        if (stored != null && !stored.getVersion().equals(job.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(AnnouncementJob.class, job.getId());
+        }
+        AnnouncementJob saved = copy(job);
+        saved.setVersion(job.getVersion() == null ? 0L : job.getVersion() + 1);
+        jobs.put(saved.getId(), saved);
+        return copy(saved);
+    }
+
+    private static AnnouncementJob job(AnnouncementJob.Status status) {
+        return AnnouncementJob.builder()
+                .id(JOB_ID)
+                .county(COUNTY)
+                .message(MESSAGE)
+                .status(status)
+                .version(0L)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static AnnouncementJob copy(AnnouncementJob job) {
+        return new AnnouncementJob(job.getId(), job.getCounty(), job.getMessage(), job.getStatus(), job.getLastUserId(),
+                job.getRecipientsProcessed(), job.getEmailsSent(), job.getEmailsFailed(), job.getLastError(),
+                job.getFailures(), job.getLeaseOwner(), job.getLeaseUntil(), job.getVersion(), job.getCreatedAt(),
+                job.getStartedAt(), job.getUpdatedAt(), job.getCompletedAt());
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("citizen" + id + "@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,179 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.dto.request.AppointmentExportFilter;
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.KeysetCursor;
+import edu.saspsproject.repository.projection.AppointmentExportRow;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentExportServiceTests {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 3, 9, 30);
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private AppointmentExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new AppointmentExportService(appointmentRepository, mock(PlatformTransactionManager.class), 60);
+    }
+
+    @Test
+    void csvFieldsAreQuotedOnlyWhenTheyWouldBreakTheRow() {
+        AppointmentExportFilter filter = AppointmentExportFilter.all();
+        when(appointmentRepository.streamExportRows(filter)).thenReturn(Stream.of(
+                row(1L, "Buletin", "SPCLEP Cluj"),
+                row(2L, "Buletin, pașaport", "Primăria \"Centru\""),
+                row(3L, "Prima linie\nA doua linie", null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(exportService.writeCsv(filter, out)).isEqualTo(3);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "ID,Title,Institution,Service Type,Date Time,Status,Priority Level,Duration\n"
+                        + "1,Buletin,SPCLEP Cluj,ELIBERARE_CI,2025-03-03T09:30,CONFIRMED,MEDIUM,30.0\n"
+                        + "2,\"Buletin, pașaport\",\"Primăria \"\"Centru\"\"\",ELIBERARE_CI,2025-03-03T09:30,CONFIRMED,MEDIUM,30.0\n"
+                        + "3,\"Prima linie\nA doua linie\",null,ELIBERARE_CI,2025-03-03T09:30,CONFIRMED,MEDIUM,30.0\n");
+    }
+
+    @Test
+    void emptyExportStillHasItsHeader() {
+        AppointmentExportFilter filter = new AppointmentExportFilter(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), 4L, null);
+        when(appointmentRepository.streamExportRows(filter)).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(exportService.writeCsv(filter, out)).isZero();
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("ID,Title,Institution,Service Type,Date Time,Status,Priority Level,Duration\n");
+    }
+
+    @Test
+    void invertedDateRangeIsRejectedBeforeReading() {
+        AppointmentExportFilter filter = new AppointmentExportFilter(LocalDate.of(2025, 3, 31), LocalDate.of(2025, 3, 1), null, null);
+
+        assertThatThrownBy(() -> exportService.writeCsv(filter, new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(appointmentRepository);
+    }
+
+    @Test
+    void pdfReportListsEveryRowAcrossPagesWithItsFilters() throws IOException {
+        AppointmentExportFilter filter = new AppointmentExportFilter(null, null, 4L, Appointment.Status.CONFIRMED);
+        when(appointmentRepository.countExportRows(filter)).thenReturn(150L);
+        when(appointmentRepository.streamExportRows(filter)).thenReturn(LongStream.rangeClosed(1, 150)
+                .mapToObj(id -> row(id, "Certificat de naștere", "Primăria Sector 4")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(exportService.writePdf(filter, out)).isEqualTo(150);
+
+        try (PDDocument document = PDDocument.load(out.toByteArray())) {
+            // 50 rows fit under the header, 59 on every following page
+            assertThat(document.getNumberOfPages()).isEqualTo(3);
+            String text = new PDFTextStripper().getText(document);
+            assertThat(text).contains("Total appointments: 150", "Institution: 4", "Status: CONFIRMED")
+                    .doesNotContain("Period:");
+            // Diacritics are dropped and long text is cut, since the standard fonts cannot show them
+            assertThat(text).contains("Certificat de n...", "Primaria Sec...");
+            assertThat(text.lines().filter(line -> line.startsWith("150 "))).hasSize(1);
+        }
+    }
+
+    @Test
+    void deltaPageEndsAtItsLimitAndLeavesRecentChangesForLater() {
+        KeysetCursor after = new KeysetCursor(TIME, 7);
+        KeysetCursor boundary = new KeysetCursor(TIME.plusHours(1), 12);
+        ArgumentCaptor<LocalDateTime> until = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(appointmentRepository.findDeltaBoundary(eq(after), until.capture(), eq(500))).thenReturn(Optional.of(boundary));
+        when(appointmentRepository.findDeltaBoundary(eq(boundary), any(), eq(1)))
+                .thenReturn(Optional.of(new KeysetCursor(TIME.plusHours(1), 13)));
+
+        AppointmentExportService.DeltaPage page = exportService.planDelta(after, 500);
+
+        assertThat(page.after()).isEqualTo(after);
+        assertThat(page.upTo()).isEqualTo(boundary);
+        assertThat(page.hasMore()).isTrue();
+        assertThat(page.nextCursor()).isEqualTo(boundary);
+        assertThat(until.getValue()).isCloseTo(LocalDateTime.now().minusSeconds(60), within(5, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    void lastDeltaPageHasNoMore() {
+        KeysetCursor boundary = new KeysetCursor(TIME.plusHours(1), 12);
+        when(appointmentRepository.findDeltaBoundary(eq(KeysetCursor.START), any(), eq(500))).thenReturn(Optional.of(boundary));
+        when(appointmentRepository.findDeltaBoundary(eq(boundary), any(), eq(1))).thenReturn(Optional.empty());
+
+        AppointmentExportService.DeltaPage page = exportService.planDelta(KeysetCursor.START, 500);
+
+        assertThat(page.hasMore()).isFalse();
+        assertThat(page.nextCursor()).isEqualTo(boundary);
+    }
+
+    @Test
+    void emptyDeltaKeepsTheCursorAndReadsNoRows() {
+        KeysetCursor after = new KeysetCursor(TIME, 7);
+        when(appointmentRepository.findDeltaBoundary(eq(after), any(), eq(500))).thenReturn(Optional.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        AppointmentExportService.DeltaPage page = exportService.planDelta(after, 500);
+
+        assertThat(page.upTo()).isNull();
+        assertThat(page.hasMore()).isFalse();
+        assertThat(page.nextCursor()).isEqualTo(after);
+        assertThat(exportService.writeDeltaCsv(page, out)).isZero();
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("ID,Title,Institution,Service Type,Date Time,Status,Priority Level,Duration,Updated At\n");
+        verify(appointmentRepository, never()).streamChangedRows(any(), any());
+    }
+
+    @Test
+    void deltaRowsCarryTheirChangeTime() {
+        KeysetCursor after = new KeysetCursor(TIME, 7);
+        KeysetCursor upTo = new KeysetCursor(TIME.minusDays(2), 8);
+        when(appointmentRepository.streamChangedRows(after, upTo)).thenReturn(Stream.of(row(8L, "Buletin", "SPCLEP Cluj")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(exportService.writeDeltaCsv(new AppointmentExportService.DeltaPage(after, upTo, false), out)).isEqualTo(1);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).endsWith(
+                "\n8,Buletin,SPCLEP Cluj,ELIBERARE_CI,2025-03-03T09:30,CONFIRMED,MEDIUM,30.0,2025-03-01T09:30\n");
+    }
+
+    private static AppointmentExportRow row(Long id, String title, String institutionName) {
+        return new AppointmentExportRow(id, title, institutionName, Appointment.ServiceType.ELIBERARE_CI, TIME,
+                Appointment.Status.CONFIRMED, Appointment.PriorityLevel.MEDIUM, 30.0, TIME.minusDays(2));
+    }
+}
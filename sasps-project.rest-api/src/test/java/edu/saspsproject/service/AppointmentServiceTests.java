@@ -0,0 +1,319 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.dto.response.AvailabilityResponse;
+import edu.saspsproject.dto.response.CompactAvailabilityResponse;
+import edu.saspsproject.dto.response.EarliestSlotResponse;
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.CountyRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.UserRepository;
+import edu.saspsproject.repository.projection.AppointmentSpan;
+import edu.saspsproject.repository.projection.GroupCount;
+import edu.saspsproject.repository.projection.InstitutionBookedSlot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentServiceTests {
+
+    // Past the two hour booking cutoff, whatever the time of day
+    private static final LocalDate DAY = LocalDate.now().plusDays(3);
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private InstitutionRepository institutionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CountyRepository countyRepository;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private AppointmentStatsRegistry appointmentStatsRegistry;
+
+    @Mock
+    private DailyStatsRollupService dailyStatsRollupService;
+
+    private final ForkJoinPool availabilityPool = new ForkJoinPool(2);
+    private SlotOccupancyIndex slotOccupancyIndex;
+    private SlotHoldRegistry slotHoldRegistry;
+    private AppointmentService appointmentService;
+
+    @BeforeEach
+    void setUp() {
+        slotOccupancyIndex = spy(new SlotOccupancyIndex(institutionRepository, appointmentRepository));
+        slotHoldRegistry = new SlotHoldRegistry(slotOccupancyIndex, 120, 600);
+        appointmentService = new AppointmentService(appointmentRepository, institutionRepository, userRepository,
+                countyRepository, outboxService, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                slotOccupancyIndex, availabilityPool, new SlotReservationEngine(slotOccupancyIndex, slotHoldRegistry, 16),
+                slotHoldRegistry, appointmentStatsRegistry, dailyStatsRollupService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        availabilityPool.shutdown();
+    }
+
+    @Test
+    void countyAvailabilityLoadsEveryInstitutionWithOneQuery() {
+        List<Institution> county = List.of(institution(1L), institution(2L), institution(3L));
+        when(institutionRepository.findByCountyIdOrCountyIdIsNull(7L)).thenReturn(county);
+        when(appointmentRepository.findActiveBookedSlots(anyCollection(), any(), any())).thenReturn(List.of(
+                booked(1L, DAY.atTime(9, 0)),
+                booked(2L, DAY.plusDays(1).atTime(9, 30))));
+        when(institutionRepository.findById(3L)).thenReturn(Optional.of(county.get(2)));
+        when(appointmentRepository.findActiveBookedSlots(eq(3L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        slotHoldRegistry.hold(3L, DAY.atTime(9, 30), null);
+
+        Map<Long, List<LocalDateTime>> slots = appointmentService
+                .getCountyAvailability(7L, Optional.of(DAY), Optional.of(DAY.plusDays(1))).stream()
+                .collect(Collectors.toMap(AvailabilityResponse::getInstitutionId, AvailabilityResponse::getAvailableSlots));
+
+        assertThat(slots.get(1L)).containsExactly(DAY.atTime(9, 30), DAY.plusDays(1).atTime(9, 0), DAY.plusDays(1).atTime(9, 30));
+        assertThat(slots.get(2L)).containsExactly(DAY.atTime(9, 0), DAY.atTime(9, 30), DAY.plusDays(1).atTime(9, 0));
+        // Held by a booking form in progress
+        assertThat(slots.get(3L)).containsExactly(DAY.atTime(9, 0), DAY.plusDays(1).atTime(9, 0), DAY.plusDays(1).atTime(9, 30));
+        // One query for the whole county; institution 3 was read on its own when the slot was held
+        verify(appointmentRepository).findActiveBookedSlots(anyCollection(), any(), any());
+        verify(appointmentRepository).findActiveBookedSlots(eq(3L), any(LocalDateTime.class), any(LocalDateTime.class));
+        verifyNoMoreInteractions(appointmentRepository);
+    }
+
+    @Test
+    void countyAvailabilityRejectsRangesOverAMonth() {
+        assertThatThrownBy(() -> appointmentService.getCountyAvailability(7L, Optional.of(DAY), Optional.of(DAY.plusDays(31))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> appointmentService.getCountyAvailability(7L, Optional.of(DAY), Optional.of(DAY.minusDays(1))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void compactAvailabilityHasOneMaskPerDayPaddedToWholeBytes() {
+        // 09:00 to 13:30 is nine slots, so two bytes per day with seven unused bits
+        Institution institution = institution(1L);
+        institution.setClosingTime(LocalTime.of(13, 30));
+        when(institutionRepository.findById(1L)).thenReturn(Optional.of(institution));
+        when(appointmentRepository.findActiveBookedSlots(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(() -> DAY.atTime(9, 0), () -> DAY.atTime(13, 0)));
+        slotHoldRegistry.hold(1L, DAY.plusDays(1).atTime(9, 30), null);
+
+        CompactAvailabilityResponse availability = appointmentService.getCompactAvailability(1L, Optional.of(DAY));
+
+        assertThat(availability.firstDay()).isEqualTo(DAY);
+        assertThat(availability.openingTime()).isEqualTo(LocalTime.of(9, 0));
+        assertThat(availability.intervalMinutes()).isEqualTo(30);
+        assertThat(availability.slotsPerDay()).isEqualTo(9);
+        assertThat(availability.freeSlotMasks()).hasSize(14).allSatisfy(mask -> assertThat(mask).hasSize(2));
+        // Slot i is bit i % 8 of byte i / 8: the first and last slot are booked, the second is held
+        assertThat(availability.freeSlotMasks().get(0)).containsExactly(0xFE, 0x00);
+        assertThat(availability.freeSlotMasks().get(1)).containsExactly(0xFD, 0x01);
+        assertThat(availability.freeSlotMasks().get(2)).containsExactly(0xFF, 0x01);
+    }
+
+    @Test
+    void compactAvailabilityBinaryLayout() {
+        LocalDate firstDay = LocalDate.of(2025, 3, 3);
+        CompactAvailabilityResponse availability = new CompactAvailabilityResponse(42L, firstDay, LocalTime.of(8, 30),
+                20, 9, List.of(new byte[]{(byte) 0xFE, 0x00}, new byte[]{(byte) 0xFF, 0x01}));
+
+        ByteBuffer binary = ByteBuffer.wrap(availability.toBinary());
+
+        assertThat(binary.remaining()).isEqualTo(21 + 2 * 2);
+        assertThat(binary.get()).isEqualTo((byte) 1);
+        assertThat(binary.getLong()).isEqualTo(42L);
+        assertThat(LocalDate.ofEpochDay(binary.getInt())).isEqualTo(firstDay);
+        assertThat(binary.getShort()).isEqualTo((short) (8 * 60 + 30));
+        assertThat(binary.getShort()).isEqualTo((short) 20);
+        assertThat(binary.getShort()).isEqualTo((short) 9);
+        assertThat(binary.getShort()).isEqualTo((short) 2);
+        byte[] masks = new byte[binary.remaining()];
+        binary.get(masks);
+        assertThat(masks).containsExactly(0xFE, 0x00, 0xFF, 0x01);
+    }
+
+    @Test
+    void earliestSlotsAreMergedInTimeOrderAndTheSearchStopsAtTheLimit() {
+        LocalDate today = LocalDate.now();
+        LocalDate tomorrow = today.plusDays(1);
+        List<Institution> institutions = List.of(institution(1L), institution(2L), institution(3L));
+        when(institutionRepository.findByType(Institution.InstitutionType.SPCLEP)).thenReturn(institutions);
+        // Today is fully booked everywhere, so the result does not depend on the time of day
+        when(appointmentRepository.findActiveBookedSlots(anyCollection(), any(), any())).thenReturn(List.of(
+                booked(1L, today.atTime(9, 0)), booked(1L, today.atTime(9, 30)),
+                booked(2L, today.atTime(9, 0)), booked(2L, today.atTime(9, 30)),
+                booked(3L, today.atTime(9, 0)), booked(3L, today.atTime(9, 30))));
+
+        List<EarliestSlotResponse> earliest = appointmentService.findEarliestSlots("spclep", Optional.empty(), 4);
+
+        assertThat(earliest).extracting(EarliestSlotResponse::institutionId, EarliestSlotResponse::slot).containsExactly(
+                tuple(1L, tomorrow.atTime(9, 0)),
+                tuple(2L, tomorrow.atTime(9, 0)),
+                tuple(3L, tomorrow.atTime(9, 0)),
+                tuple(1L, tomorrow.atTime(9, 30)));
+        // Every cursor was still on tomorrow when the fourth slot was found
+        verify(slotOccupancyIndex, never()).freeSlots(any(Institution.class), eq(today.plusDays(2)), eq(1));
+    }
+
+    @Test
+    void earliestSlotSearchValidatesItsArguments() {
+        assertThatThrownBy(() -> appointmentService.findEarliestSlots("BANK", Optional.empty(), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> appointmentService.findEarliestSlots("ANAF", Optional.empty(), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> appointmentService.findEarliestSlots("ANAF", Optional.empty(), 101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void globalStatsAreGroupedInTheDatabaseUntilTheCountersAreSeeded() {
+        when(appointmentStatsRegistry.globalStats()).thenReturn(Optional.empty());
+        when(appointmentRepository.countByStatus()).thenReturn(List.of(
+                count(Appointment.Status.PENDING, 4), count(Appointment.Status.CONFIRMED, 6)));
+        when(appointmentRepository.countByInstitution()).thenReturn(List.of(count(1L, 7), count(2L, 3)));
+        when(appointmentRepository.countByServiceType()).thenReturn(List.of(count(Appointment.ServiceType.ELIBERARE_CI, 10)));
+        when(institutionRepository.count()).thenReturn(2L);
+
+        Map<String, Object> stats = appointmentService.getGlobalStats();
+
+        assertThat(stats).containsEntry("totalAppointments", 10L)
+                .containsEntry("totalInstitutions", 2L)
+                .containsEntry("appointmentsByInstitution", Map.of(1L, 7L, 2L, 3L))
+                .containsEntry("appointmentsByService", Map.of(Appointment.ServiceType.ELIBERARE_CI, 10L))
+                .containsEntry("appointmentsByStatus", Map.of(Appointment.Status.PENDING, 4L, Appointment.Status.CONFIRMED, 6L));
+    }
+
+    @Test
+    void seededCountersAreServedWithoutGrouping() {
+        when(appointmentStatsRegistry.globalStats()).thenReturn(Optional.of(new HashMap<>(Map.of("totalAppointments", 10L))));
+        when(institutionRepository.count()).thenReturn(2L);
+
+        assertThat(appointmentService.getGlobalStats()).containsEntry("totalAppointments", 10L).containsEntry("totalInstitutions", 2L);
+        verifyNoMoreInteractions(appointmentRepository);
+    }
+
+    @Test
+    void institutionAverageSpansFromTheFirstToTheLastAppointmentDay() {
+        when(appointmentStatsRegistry.institutionStats(1L)).thenReturn(Optional.empty());
+        when(appointmentRepository.findAppointmentSpan(1L))
+                .thenReturn(span(6, LocalDateTime.of(2025, 3, 1, 16, 30), LocalDateTime.of(2025, 3, 4, 9, 0)));
+        when(institutionRepository.findById(1L)).thenReturn(Optional.of(institution(1L)));
+        when(appointmentRepository.countByServiceType(1L)).thenReturn(List.of(count(Appointment.ServiceType.ELIBERARE_CI, 6)));
+        when(appointmentRepository.countByStatus(1L)).thenReturn(List.of(count(Appointment.Status.COMPLETED, 6)));
+        when(dailyStatsRollupService.averagePerDay(1L)).thenReturn(OptionalDouble.empty());
+
+        Map<String, Object> stats = appointmentService.getInstitutionStats(1L);
+
+        assertThat(stats).containsEntry("institutionName", "Instituția 1")
+                .containsEntry("totalAppointments", 6L)
+                .containsEntry("appointmentsByService", Map.of(Appointment.ServiceType.ELIBERARE_CI, 6L))
+                .containsEntry("appointmentsByStatus", Map.of(Appointment.Status.COMPLETED, 6L))
+                // Four calendar days, whatever the times of day
+                .containsEntry("averageAppointmentsPerDay", 1.5);
+    }
+
+    @Test
+    void institutionWithoutAppointmentsHasNoAverage() {
+        when(appointmentStatsRegistry.institutionStats(9L)).thenReturn(Optional.empty());
+        when(appointmentRepository.findAppointmentSpan(9L)).thenReturn(span(0, null, null));
+        when(institutionRepository.findById(9L)).thenReturn(Optional.empty());
+        when(dailyStatsRollupService.averagePerDay(9L)).thenReturn(OptionalDouble.empty());
+
+        Map<String, Object> stats = appointmentService.getInstitutionStats(9L);
+
+        assertThat(stats).containsEntry("institutionName", "Unknown")
+                .containsEntry("totalAppointments", 0L)
+                .containsEntry("appointmentsByStatus", Map.of())
+                .doesNotContainKey("averageAppointmentsPerDay");
+    }
+
+    // Open every day from 09:00 to 10:00, two 30 minute slots
+    private static Institution institution(Long id) {
+        Institution institution = new Institution();
+        institution.setId(id);
+        institution.setName("Instituția " + id);
+        institution.setType(Institution.InstitutionType.SPCLEP);
+        institution.setOpeningTime(LocalTime.of(9, 0));
+        institution.setClosingTime(LocalTime.of(10, 0));
+        return institution;
+    }
+
+    private static <K> GroupCount<K> count(K key, long total) {
+        return new GroupCount<>() {
+            public K getGroupKey() {
+                return key;
+            }
+
+            public long getTotal() {
+                return total;
+            }
+        };
+    }
+
+    private static AppointmentSpan span(long total, LocalDateTime first, LocalDateTime last) {
+        return new AppointmentSpan() {
+            public long getTotal() {
+                return total;
+            }
+
+            public LocalDateTime getFirstAppointment() {
+                return first;
+            }
+
+            public LocalDateTime getLastAppointment() {
+                return last;
+            }
+        };
+    }
+
+    private static InstitutionBookedSlot booked(Long institutionId, LocalDateTime time) {
+        return new InstitutionBookedSlot() {
+            public Long getInstitutionId() {
+                return institutionId;
+            }
+
+            public LocalDateTime getAppointmentTime() {
+                return time;
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.projection.AppointmentStatsBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentStatsRegistryTests {
+
+    private record Bucket(Long institutionId, Appointment.ServiceType serviceType, Appointment.Status status,
+                          LocalDate day, long total) implements AppointmentStatsBucket {
+        public Long getInstitutionId() {
+            return institutionId;
+        }
+
+        public Appointment.ServiceType getServiceType() {
+            return serviceType;
+        }
+
+        public Appointment.Status getStatus() {
+            return status;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 3);
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private AppointmentStatsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new AppointmentStatsRegistry(appointmentRepository);
+    }
+
+    @Test
+    void statsAreEmptyUntilSeeded() {
+        registry.created(appointment(Appointment.Status.PENDING));
+
+        assertThat(registry.globalStats()).isEmpty();
+        assertThat(registry.institutionStats(1L)).isEmpty();
+    }
+
+    @Test
+    void changesAreCountedOnTopOfTheSeed() {
+        when(appointmentRepository.findStatsBuckets()).thenReturn(List.of(
+                new Bucket(1L, Appointment.ServiceType.ELIBERARE_CI, Appointment.Status.CONFIRMED, DAY, 3),
+                new Bucket(2L, Appointment.ServiceType.ELIBERARE_CI, Appointment.Status.PENDING, DAY.plusDays(1), 2)));
+        registry.seed();
+
+        Appointment appointment = appointment(Appointment.Status.PENDING);
+        registry.created(appointment);
+        appointment.setStatus(Appointment.Status.CANCELLED);
+        registry.statusChanged(appointment, Appointment.Status.PENDING);
+
+        Map<String, Object> global = registry.globalStats().orElseThrow();
+        assertThat(global.get("totalAppointments")).isEqualTo(6L);
+        assertThat(global.get("appointmentsByInstitution")).isEqualTo(Map.of(1L, 4L, 2L, 2L));
+        assertThat(global.get("appointmentsByStatus")).isEqualTo(Map.of(
+                Appointment.Status.CONFIRMED, 3L, Appointment.Status.PENDING, 2L, Appointment.Status.CANCELLED, 1L));
+        Map<String, Object> institution = registry.institutionStats(1L).orElseThrow();
+        assertThat(institution.get("totalAppointments")).isEqualTo(4L);
+        assertThat(institution.get("averageAppointmentsPerDay")).isEqualTo(4.0);
+    }
+
+    private static Appointment appointment(Appointment.Status status) {
+        Appointment appointment = new Appointment();
+        appointment.setInstitutionId(1L);
+        appointment.setServiceType(Appointment.ServiceType.ELIBERARE_CI);
+        appointment.setStatus(status);
+        appointment.setAppointmentTime(LocalDateTime.of(DAY, LocalTime.of(10, 0)));
+        return appointment;
+    }
+}
@@ -0,0 +1,131 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.RollupWatermark;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.DailyAppointmentStatsRepository;
+import edu.saspsproject.repository.RollupWatermarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DailyStatsRollupServiceTests {
+
+    private static final String WATERMARK_NAME = "daily_appointment_stats";
+    private static final int LAG_SECONDS = 60;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private DailyAppointmentStatsRepository dailyStatsRepository;
+
+    @Mock
+    private RollupWatermarkRepository watermarkRepository;
+
+    private DailyStatsRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new DailyStatsRollupService(appointmentRepository, dailyStatsRepository, watermarkRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), LAG_SECONDS);
+    }
+
+    @Test
+    void refreshRollsUpChangedDaysAndMovesTheWatermark() {
+        LocalDateTime previous = LocalDateTime.now().minusHours(1);
+        LocalDate monday = LocalDate.of(2025, 3, 3);
+        LocalDate tuesday = monday.plusDays(1);
+        when(watermarkRepository.findById(WATERMARK_NAME))
+                .thenReturn(Optional.of(new RollupWatermark(WATERMARK_NAME, previous, null)));
+        when(appointmentRepository.findDaysChangedBetween(eq(previous), any())).thenReturn(List.of(monday, tuesday));
+
+        LocalDateTime before = LocalDateTime.now().minusSeconds(LAG_SECONDS);
+        rollupService.refresh();
+        LocalDateTime after = LocalDateTime.now().minusSeconds(LAG_SECONDS);
+
+        verify(dailyStatsRepository).deleteByDay(monday);
+        verify(dailyStatsRepository).deleteByDay(tuesday);
+        verify(appointmentRepository).findStatsBuckets(monday.atStartOfDay(), tuesday.atStartOfDay());
+        ArgumentCaptor<RollupWatermark> saved = ArgumentCaptor.forClass(RollupWatermark.class);
+        verify(watermarkRepository).save(saved.capture());
+        // Changes younger than the lag are left for the next run
+        assertThat(saved.getValue().getWatermark()).isBetween(before, after);
+        assertThat(saved.getValue().getLastRunAt()).isNotNull();
+    }
+
+    @Test
+    void refreshStartsFromTheInitialWatermarkOnFirstRun() {
+        when(watermarkRepository.findById(WATERMARK_NAME)).thenReturn(Optional.empty());
+
+        rollupService.refresh();
+
+        verify(appointmentRepository).findDaysChangedBetween(eq(LocalDateTime.of(1970, 1, 1, 0, 0)), any());
+        verify(watermarkRepository).save(any(RollupWatermark.class));
+    }
+
+    @Test
+    void refreshIsSkippedWhileTheWatermarkIsWithinTheLag() {
+        when(watermarkRepository.findById(WATERMARK_NAME))
+                .thenReturn(Optional.of(new RollupWatermark(WATERMARK_NAME, LocalDateTime.now(), null)));
+        rollupService.markDirty(List.of(LocalDate.of(2025, 3, 3)));
+
+        rollupService.refresh();
+
+        verifyNoInteractions(appointmentRepository, dailyStatsRepository);
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    @Test
+    void dirtyDaysAreRolledUpOnceWithoutChanges() {
+        LocalDate deleted = LocalDate.of(2025, 3, 5);
+        when(watermarkRepository.findById(WATERMARK_NAME)).thenReturn(Optional.empty());
+        when(appointmentRepository.findDaysChangedBetween(any(), any())).thenReturn(List.of());
+        rollupService.markDirty(List.of(deleted));
+
+        rollupService.refresh();
+        rollupService.refresh();
+
+        verify(dailyStatsRepository, times(1)).deleteByDay(deleted);
+    }
+
+    @Test
+    void failedRefreshKeepsTheWatermarkAndTheDirtyDays() {
+        LocalDate deleted = LocalDate.of(2025, 3, 5);
+        when(watermarkRepository.findById(WATERMARK_NAME)).thenReturn(Optional.empty());
+        when(appointmentRepository.findDaysChangedBetween(any(), any())).thenReturn(List.of());
+        when(appointmentRepository.findStatsBuckets(deleted.atStartOfDay(), deleted.plusDays(1).atStartOfDay()))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenReturn(List.of());
+        rollupService.markDirty(List.of(deleted));
+
+        assertThatThrownBy(() -> rollupService.refresh()).isInstanceOf(IllegalStateException.class);
+        verify(watermarkRepository, never()).save(any());
+
+        rollupService.refresh();
+
+        verify(dailyStatsRepository, times(2)).deleteByDay(deleted);
+        verify(watermarkRepository).save(any(RollupWatermark.class));
+    }
+}
@@ -0,0 +1,80 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.dto.request.AppointmentExportFilter;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.projection.AppointmentDataVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExportJobServiceTests {
+
+    private static final LocalDateTime LAST_UPDATE = LocalDateTime.of(2025, 3, 3, 9, 30);
+
+    @Mock
+    private AppointmentExportService appointmentExportService;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @TempDir
+    private Path exportDirectory;
+
+    private ExportJobService exportJobService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Runs each export on the submitting thread
+        ThreadPoolExecutor inline = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        exportJobService = new ExportJobService(appointmentExportService, appointmentRepository, emailService,
+                inline, exportDirectory.toString(), 60);
+    }
+
+    @Test
+    void finishedExportIsReusedUntilTheTableChanges() {
+        AppointmentExportFilter filter = AppointmentExportFilter.all();
+        when(appointmentRepository.findDataVersion()).thenReturn(
+                new AppointmentDataVersion(LAST_UPDATE, 10),
+                new AppointmentDataVersion(LAST_UPDATE, 10),
+                // A row deleted through another instance
+                new AppointmentDataVersion(LAST_UPDATE, 9),
+                new AppointmentDataVersion(LAST_UPDATE.plusSeconds(1), 9));
+
+        ExportJob first = exportJobService.submit(ExportJob.Format.CSV, filter, null);
+        ExportJob reused = exportJobService.submit(ExportJob.Format.CSV, filter, null);
+        ExportJob afterDelete = exportJobService.submit(ExportJob.Format.CSV, filter, null);
+        ExportJob afterUpdate = exportJobService.submit(ExportJob.Format.CSV, filter, null);
+
+        assertThat(first.getStatus()).isEqualTo(ExportJob.Status.COMPLETED);
+        assertThat(reused).isSameAs(first);
+        assertThat(afterDelete).isNotSameAs(first);
+        assertThat(afterUpdate).isNotSameAs(afterDelete);
+        verify(appointmentExportService, times(3)).writeCsv(eq(filter), any());
+    }
+}
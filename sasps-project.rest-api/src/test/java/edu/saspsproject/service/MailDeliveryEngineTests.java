@@ -0,0 +1,181 @@
+package edu.saspsproject.service;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MailDeliveryEngineTests {
+
+    @Mock
+    private JavaMailSenderImpl mailSender;
+
+    @Mock
+    private ObjectProvider<LocalSmtpSink> localSmtpSink;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Transport transport;
+
+    @Mock
+    private Transport replacement;
+
+    private MailDeliveryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(mailSender.getSession()).thenReturn(session);
+        when(mailSender.getHost()).thenReturn("smtp.example.com");
+        when(mailSender.getPort()).thenReturn(587);
+        engine = new MailDeliveryEngine(mailSender, localSmtpSink, 2, 2, 1000, 60_000);
+    }
+
+    @Test
+    void idleConnectionIsCheckedOnceWhenBorrowed() throws Exception {
+        when(session.getTransport("smtp")).thenReturn(transport);
+        when(transport.isConnected()).thenReturn(true);
+
+        assertThat(engine.sendBatch(messages(3))).isEmpty();
+        assertThat(engine.sendBatch(messages(3))).isEmpty();
+
+        // Opened once, then reused: no NOOP per message or on return to the pool
+        verify(transport).connect("smtp.example.com", 587, null, null);
+        verify(transport, times(1)).isConnected();
+        verify(transport, times(6)).sendMessage(any(), any());
+    }
+
+    @Test
+    void connectionBrokenDuringTheBatchIsReplaced() throws Exception {
+        when(session.getTransport("smtp")).thenReturn(transport, replacement);
+        List<MimeMessage> messages = messages(3);
+        doNothing().when(transport).sendMessage(eq(messages.get(0)), any());
+        doThrow(new MessagingException("connection reset")).when(transport).sendMessage(eq(messages.get(1)), any());
+
+        assertThat(engine.sendBatch(messages)).isEmpty();
+
+        verify(transport).close();
+        verify(replacement).sendMessage(eq(messages.get(1)), any());
+        verify(replacement).sendMessage(eq(messages.get(2)), any());
+        verify(transport, never()).isConnected();
+    }
+
+    @Test
+    void rejectedRecipientKeepsTheConnection() throws Exception {
+        when(session.getTransport("smtp")).thenReturn(transport);
+        List<MimeMessage> messages = messages(3);
+        doNothing().when(transport).sendMessage(eq(messages.get(0)), any());
+        doThrow(new SendFailedException("550 mailbox unavailable")).when(transport).sendMessage(eq(messages.get(1)), any());
+        doNothing().when(transport).sendMessage(eq(messages.get(2)), any());
+
+        Map<MimeMessage, String> failed = engine.sendBatch(messages);
+
+        assertThat(failed).containsOnlyKeys(messages.get(1));
+        assertThat(failed.get(messages.get(1))).contains("550");
+        verify(transport).sendMessage(eq(messages.get(2)), any());
+        verify(transport, never()).close();
+        verify(session, times(1)).getTransport("smtp");
+    }
+
+    @Test
+    void messagesAreSentGroupedByRecipientDomain() throws Exception {
+        when(session.getTransport("smtp")).thenReturn(transport);
+        when(transport.isConnected()).thenReturn(true);
+        MimeMessage first = message("ana@gmail.com");
+        MimeMessage second = message("ion@yahoo.com");
+        MimeMessage third = message("maria@GMAIL.com");
+
+        assertThat(engine.sendBatch(List.of(first, second, third))).isEmpty();
+
+        InOrder order = inOrder(transport);
+        order.verify(transport).sendMessage(eq(first), any());
+        order.verify(transport).sendMessage(eq(third), any());
+        order.verify(transport).sendMessage(eq(second), any());
+        // The second group reuses the connection the first one returned
+        verify(transport, times(1)).connect(anyString(), eq(587), any(), any());
+    }
+
+    @Test
+    void groupWithoutAConnectionInTimeFailsAsAWhole() throws Exception {
+        MailDeliveryEngine exhausted = new MailDeliveryEngine(mailSender, localSmtpSink, 0, 2, 50, 60_000);
+        List<MimeMessage> messages = messages(2);
+
+        Map<MimeMessage, String> failed = exhausted.sendBatch(messages);
+
+        assertThat(failed).containsOnlyKeys(messages);
+        assertThat(failed.values()).allMatch(reason -> reason.contains("Timed out waiting for an SMTP connection"));
+        verifyNoInteractions(session);
+    }
+
+    @Test
+    void unreachableServerFailsTheMessageAfterOneRetry() throws Exception {
+        when(session.getTransport("smtp")).thenReturn(transport);
+        doThrow(new MessagingException("connection refused")).when(transport).connect("smtp.example.com", 587, null, null);
+        List<MimeMessage> messages = messages(1);
+
+        Map<MimeMessage, String> failed = engine.sendBatch(messages);
+
+        assertThat(failed).containsOnlyKeys(messages.get(0));
+        verify(transport, times(2)).connect("smtp.example.com", 587, null, null);
+        verify(transport, never()).sendMessage(any(), any());
+    }
+
+    @Test
+    void idleConnectionsAreClosedAfterTheTimeout() throws Exception {
+        MailDeliveryEngine shortIdle = new MailDeliveryEngine(mailSender, localSmtpSink, 2, 2, 1000, 1);
+        when(session.getTransport("smtp")).thenReturn(transport);
+        shortIdle.sendBatch(messages(1));
+        Thread.sleep(10);
+
+        shortIdle.evictIdleConnections();
+
+        verify(transport).close();
+    }
+
+    private static List<MimeMessage> messages(int count) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(message("citizen" + i + "@example.com"));
+        }
+        return messages;
+    }
+
+    private static MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Programare");
+        message.setText("Confirmare");
+        return message;
+    }
+}
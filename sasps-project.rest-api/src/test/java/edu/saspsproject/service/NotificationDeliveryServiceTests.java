@@ -0,0 +1,130 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.repository.NotificationRepository;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDeliveryServiceTests {
+
+    private static final long LEASE_MILLIS = 300_000;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private MailDeliveryEngine mailDeliveryEngine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // Transactions begun and not yet committed
+    private final AtomicInteger openTransactions = new AtomicInteger();
+    private NotificationDeliveryService deliveryService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            openTransactions.incrementAndGet();
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).commit(any());
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+        deliveryService = new NotificationDeliveryService(notificationRepository, mailSender, mailDeliveryEngine,
+                new TransactionTemplate(transactionManager), 3, 30_000, 3_600_000, LEASE_MILLIS, 10, 1_000_000);
+        ReflectionTestUtils.setField(deliveryService, "fromEmail", "noreply@sasps.ro");
+    }
+
+    @Test
+    void retriesAreSentOutsideTheClaimingTransaction() {
+        Notification first = failed(1L);
+        Notification second = failed(2L);
+        when(notificationRepository.findDueForDelivery(anyList(), any(), any()))
+                .thenReturn(new ArrayList<>(List.of(first, second)));
+        LocalDateTime claimedAt = LocalDateTime.now();
+        List<LocalDateTime> leasesWhileSending = new ArrayList<>();
+        when(mailDeliveryEngine.sendBatch(anyList())).thenAnswer(invocation -> {
+            // No row lock or pooled connection is held while SMTP is talked to
+            assertThat(openTransactions.get()).isEqualTo(0);
+            leasesWhileSending.add(first.getNextAttemptAt());
+            leasesWhileSending.add(second.getNextAttemptAt());
+            List<MimeMessage> messages = invocation.getArgument(0);
+            return Map.of(messages.get(1), "mailbox unavailable");
+        });
+
+        deliveryService.retryDue();
+
+        // Claimed one lease ahead, so another retrier leaves them alone while they are sent
+        assertThat(leasesWhileSending).allMatch(lease -> !lease.isBefore(claimedAt.plusNanos(LEASE_MILLIS * 1_000_000)));
+        assertThat(first.getStatus()).isEqualTo(Notification.NotificationStatus.SENT);
+        assertThat(first.getNextAttemptAt()).isNull();
+        assertThat(second.getStatus()).isEqualTo(Notification.NotificationStatus.FAILED);
+        assertThat(second.getAttempts()).isEqualTo(2);
+        assertThat(second.getLastError()).isEqualTo("mailbox unavailable");
+        // The claim, then each outcome in its own transaction
+        verify(notificationRepository).save(first);
+        verify(notificationRepository).save(second);
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void lastFailedAttemptDeadLettersTheEmail() {
+        Notification notification = failed(1L);
+        notification.setAttempts(2);
+        when(notificationRepository.findDueForDelivery(anyList(), any(), any()))
+                .thenReturn(new ArrayList<>(List.of(notification)));
+        when(mailDeliveryEngine.sendBatch(anyList())).thenAnswer(invocation -> {
+            List<MimeMessage> messages = invocation.getArgument(0);
+            return Map.of(messages.get(0), "mailbox unavailable");
+        });
+
+        deliveryService.retryDue();
+
+        assertThat(notification.getStatus()).isEqualTo(Notification.NotificationStatus.DEAD_LETTER);
+        assertThat(notification.getNextAttemptAt()).isNull();
+        verify(notificationRepository).save(notification);
+    }
+
+    private static Notification failed(Long id) {
+        return Notification.builder()
+                .id(id)
+                .recipientEmail("citizen" + id + "@example.com")
+                .method(Notification.NotificationMethod.EMAIL)
+                .type(Notification.NotificationType.REMINDER)
+                .status(Notification.NotificationStatus.FAILED)
+                .subject("Reminder")
+                .body("<p>Reminder</p>")
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+}
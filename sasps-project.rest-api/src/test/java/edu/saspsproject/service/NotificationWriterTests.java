@@ -0,0 +1,149 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.repository.NotificationRepository;
+import edu.saspsproject.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationWriterTests {
+
+    private static final int PRODUCERS = 8;
+    private static final int PER_PRODUCER = 2000;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final Queue<Notification> written = new ConcurrentLinkedQueue<>();
+    // Writes that fail before the database accepts rows again
+    private final AtomicInteger failingWrites = new AtomicInteger();
+    private NotificationWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        when(notificationRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            if (failingWrites.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw new DataAccessResourceFailureException("database unavailable");
+            }
+            List<Notification> batch = invocation.getArgument(0);
+            written.addAll(batch);
+            return batch;
+        });
+        writer = new NotificationWriter(notificationRepository, userRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 1000, 20, 5, 1000, 10_000);
+    }
+
+    @Test
+    void notificationsEnqueuedWhileStoppingAreAllWritten() throws Exception {
+        writer.start();
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        CountDownLatch started = new CountDownLatch(PRODUCERS);
+        List<Future<?>> producers = new ArrayList<>();
+        try {
+            for (int p = 0; p < PRODUCERS; p++) {
+                producers.add(executor.submit(() -> {
+                    started.countDown();
+                    // Keeps going across stop(), later rows must be written by the producer itself
+                    for (int i = 0; i < PER_PRODUCER; i++) {
+                        writer.enqueue(notification());
+                    }
+                }));
+            }
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            while (written.isEmpty()) {
+                Thread.sleep(1);
+            }
+
+            writer.stop();
+
+            for (Future<?> producer : producers) {
+                producer.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(writer.isRunning()).isFalse();
+            assertThat(written).hasSize(PRODUCERS * PER_PRODUCER);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stoppedWriterWritesSynchronously() {
+        writer.enqueue(notification());
+
+        assertThat(written).hasSize(1);
+    }
+
+    @Test
+    void failedBatchIsRetriedUntilWritten() throws Exception {
+        failingWrites.set(3);
+        writer.start();
+        for (int i = 0; i < 5; i++) {
+            writer.enqueue(notification());
+        }
+
+        writer.stop();
+
+        assertThat(written).hasSize(5);
+        assertThat(failingWrites.get()).isZero();
+    }
+
+    @Test
+    void producersWriteTheirOwnRowsWhileTheWriterIsFailing() throws Exception {
+        failingWrites.set(Integer.MAX_VALUE);
+        writer.start();
+        Notification queued = notification();
+        writer.enqueue(queued);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!(boolean) ReflectionTestUtils.getField(writer, "writeFailing") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        // Not queued behind the failing batch: the caller sees the failure
+        assertThatThrownBy(() -> writer.enqueue(notification()))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        failingWrites.set(0);
+        writer.stop();
+
+        assertThat(written).containsExactly(queued);
+    }
+
+    private static Notification notification() {
+        return Notification.builder()
+                .userId(1L)
+                .recipientEmail("citizen@example.com")
+                .method(Notification.NotificationMethod.NONE)
+                .type(Notification.NotificationType.ANNOUNCEMENT)
+                .status(Notification.NotificationStatus.SENT)
+                .message("Anunț")
+                .build();
+    }
+}
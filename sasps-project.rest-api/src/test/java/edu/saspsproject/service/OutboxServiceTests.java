@@ -0,0 +1,98 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.OutboxEvent;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.OutboxEventRepository;
+import edu.saspsproject.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTests {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private InstitutionRepository institutionRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxService(outboxEventRepository, appointmentRepository, userRepository,
+                institutionRepository, emailService, notificationService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 100, 300_000, 7, MAX_ATTEMPTS);
+        Appointment appointment = new Appointment();
+        appointment.setId(5L);
+        appointment.setUserId(9L);
+        appointment.setInstitutionId(2L);
+        when(outboxEventRepository.findDueForDispatch(eq(OutboxEvent.Status.PENDING), any(), any()))
+                .thenReturn(new ArrayList<>(List.of(OutboxEvent.builder()
+                        .id(1L)
+                        .eventType(OutboxEvent.EventType.APPOINTMENT_CONFIRMED)
+                        .appointmentId(5L)
+                        .userId(9L)
+                        .status(OutboxEvent.Status.PENDING)
+                        .build())));
+        when(appointmentRepository.findAllById(any())).thenReturn(List.of(appointment));
+        doThrow(new IllegalStateException("Notification queue is full"))
+                .when(notificationService).createNotification(eq(9L), anyString(), eq("CONFIRMATION"));
+    }
+
+    @Test
+    void failedEventStaysPendingUntilItRunsOutOfAttempts() {
+        when(outboxEventRepository.markExhausted(eq(1L), eq(MAX_ATTEMPTS), eq(OutboxEvent.Status.DEAD_LETTER), any()))
+                .thenReturn(0);
+
+        outboxService.dispatchPending();
+
+        verify(outboxEventRepository).recordFailure(1L, "Notification queue is full");
+        verify(outboxEventRepository, never()).markProcessed(any(), any(), any());
+    }
+
+    @Test
+    void eventFailingItsLastAttemptIsSetAside() {
+        when(outboxEventRepository.markExhausted(eq(1L), eq(MAX_ATTEMPTS), eq(OutboxEvent.Status.DEAD_LETTER), any()))
+                .thenReturn(1);
+
+        outboxService.dispatchPending();
+
+        verify(outboxEventRepository).recordFailure(1L, "Notification queue is full");
+        verify(outboxEventRepository).markExhausted(eq(1L), eq(MAX_ATTEMPTS), eq(OutboxEvent.Status.DEAD_LETTER), any());
+        verify(outboxEventRepository, never()).markProcessed(any(), any(), any());
+    }
+}
@@ -0,0 +1,142 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SlotHoldRegistryTests {
+
+    private static final Long INSTITUTION_ID = 1L;
+
+    @Mock
+    private InstitutionRepository institutionRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private SlotOccupancyIndex slotOccupancyIndex;
+    private SlotHoldRegistry registry;
+    private SlotReservationEngine engine;
+    private LocalDateTime slot;
+
+    @BeforeEach
+    void setUp() {
+        Institution institution = new Institution();
+        institution.setType(Institution.InstitutionType.SPCLEP);
+        institution.setOpeningTime(LocalTime.of(8, 0));
+        institution.setClosingTime(LocalTime.of(16, 0));
+        when(institutionRepository.findById(anyLong())).thenReturn(Optional.of(institution));
+
+        slotOccupancyIndex = new SlotOccupancyIndex(institutionRepository, appointmentRepository);
+        registry = new SlotHoldRegistry(slotOccupancyIndex, 120, 600);
+        engine = new SlotReservationEngine(slotOccupancyIndex, registry, 16);
+        slot = LocalDate.now().plusDays(7).atTime(10, 0);
+    }
+
+    @Test
+    void holdRequestsAreValidated() {
+        assertThatThrownBy(() -> registry.hold(INSTITUTION_ID, slot, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry.hold(INSTITUTION_ID, slot, 601)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry.hold(INSTITUTION_ID, slot.plusMinutes(10), null))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        slotOccupancyIndex.markBooked(INSTITUTION_ID, slot);
+        assertThatThrownBy(() -> registry.hold(INSTITUTION_ID, slot, null)).isInstanceOf(SlotConflictException.class);
+    }
+
+    @Test
+    void liveHoldBlocksOtherHoldsAndBookings() {
+        SlotHoldRegistry.Hold hold = registry.hold(INSTITUTION_ID, slot, null);
+
+        assertThat(hold.expiresAt()).isAfter(Instant.now().plusSeconds(110));
+        assertThat(registry.heldSlots(INSTITUTION_ID)).containsExactly(slot);
+        assertThatThrownBy(() -> registry.hold(INSTITUTION_ID, slot, null)).isInstanceOf(SlotConflictException.class);
+        assertThatThrownBy(() -> engine.reserve(INSTITUTION_ID, slot, null, () -> booking(slot)))
+                .isInstanceOf(SlotConflictException.class);
+        assertThatThrownBy(() -> engine.reserve(INSTITUTION_ID, slot, "another-token", () -> booking(slot)))
+                .isInstanceOf(SlotConflictException.class);
+        assertThat(slotOccupancyIndex.isFree(INSTITUTION_ID, slot)).isTrue();
+    }
+
+    @Test
+    void holderRedeemsItsHoldByBooking() {
+        SlotHoldRegistry.Hold hold = registry.hold(INSTITUTION_ID, slot, null);
+
+        assertThat(engine.reserve(INSTITUTION_ID, slot, hold.token(), () -> booking(slot))).isNotNull();
+
+        assertThat(slotOccupancyIndex.isFree(INSTITUTION_ID, slot)).isFalse();
+        // The hold is spent, and the slot is now taken by the booking itself
+        assertThat(registry.heldSlots(INSTITUTION_ID)).isEmpty();
+        assertThatThrownBy(() -> registry.hold(INSTITUTION_ID, slot, null)).isInstanceOf(SlotConflictException.class);
+    }
+
+    @Test
+    void releasedHoldFreesTheSlot() {
+        SlotHoldRegistry.Hold hold = registry.hold(INSTITUTION_ID, slot, null);
+
+        registry.release(hold.token());
+
+        assertThat(registry.heldSlots(INSTITUTION_ID)).isEmpty();
+        assertThat(registry.hold(INSTITUTION_ID, slot, null).token()).isNotEqualTo(hold.token());
+    }
+
+    @Test
+    void expiredHoldIsIgnoredBeforeTheWheelSweepsIt() throws InterruptedException {
+        SlotHoldRegistry.Hold expired = registry.hold(INSTITUTION_ID, slot, 1);
+        Thread.sleep(1100);
+
+        assertThat(registry.heldSlots(INSTITUTION_ID)).isEmpty();
+        assertThat(registry.isHeldByOther(INSTITUTION_ID, slot, null)).isFalse();
+
+        // Taken over by a new hold; releasing the stale token leaves the new one in place
+        SlotHoldRegistry.Hold current = registry.hold(INSTITUTION_ID, slot, null);
+        registry.release(expired.token());
+
+        assertThat(registry.heldSlots(INSTITUTION_ID)).containsExactly(slot);
+        assertThat(registry.isHeldByOther(INSTITUTION_ID, slot, current.token())).isFalse();
+    }
+
+    @Test
+    void wheelSweepsExpiredHolds() throws InterruptedException {
+        registry.hold(INSTITUTION_ID, slot, 1);
+        registry.hold(INSTITUTION_ID, slot.plusMinutes(30), null);
+        Thread.sleep(2100);
+
+        registry.expireHolds();
+
+        assertThat(holdsByToken()).hasSize(1);
+        assertThat(registry.heldSlots(INSTITUTION_ID)).containsExactly(slot.plusMinutes(30));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, SlotHoldRegistry.Hold> holdsByToken() {
+        return (Map<String, SlotHoldRegistry.Hold>) ReflectionTestUtils.getField(registry, "holdsByToken");
+    }
+
+    private static Appointment booking(LocalDateTime time) {
+        Appointment appointment = new Appointment();
+        appointment.setInstitutionId(INSTITUTION_ID);
+        appointment.setAppointmentTime(time);
+        return appointment;
+    }
+}
@@ -0,0 +1,146 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import edu.saspsproject.repository.projection.BookedSlot;
+import edu.saspsproject.repository.projection.InstitutionBookedSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SlotOccupancyIndexTests {
+
+    // Inside the cached window, whatever today is
+    private static final LocalDate DAY = LocalDate.now().plusDays(3);
+
+    @Mock
+    private InstitutionRepository institutionRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private SlotOccupancyIndex index;
+    private Institution institution;
+
+    @BeforeEach
+    void setUp() {
+        index = new SlotOccupancyIndex(institutionRepository, appointmentRepository);
+        // Open every day, 09:00 to 12:00 in 30 minute slots
+        institution = new Institution();
+        institution.setId(1L);
+        institution.setType(Institution.InstitutionType.SPCLEP);
+        institution.setOpeningTime(LocalTime.of(9, 0));
+        institution.setClosingTime(LocalTime.of(12, 0));
+    }
+
+    @Test
+    void dayIsLoadedOnceThenKeptUpToDateByBookings() {
+        when(appointmentRepository.findActiveBookedSlots(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(booked(DAY.atTime(9, 30))));
+
+        assertThat(index.freeSlots(institution, DAY, 1).get(0)).isEqualTo(bits(0, 2, 3, 4, 5));
+
+        index.markBooked(1L, DAY.atTime(10, 0));
+        index.markFree(1L, DAY.atTime(9, 30));
+
+        assertThat(index.freeSlots(institution, DAY, 1).get(0)).isEqualTo(bits(0, 1, 3, 4, 5));
+        assertThat(index.isFree(1L, DAY.atTime(10, 0))).isFalse();
+        verify(appointmentRepository, times(1))
+                .findActiveBookedSlots(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void returnedBitmapsAreCopies() {
+        BitSet free = index.freeSlots(institution, DAY, 1).get(0);
+        free.clear();
+
+        assertThat(index.freeSlots(institution, DAY, 1).get(0)).isEqualTo(bits(0, 1, 2, 3, 4, 5));
+    }
+
+    @Test
+    void daysOutsideTheCachedWindowAreReadEveryTime() {
+        LocalDate farAhead = LocalDate.now().plusDays(SlotOccupancyIndex.CACHED_DAYS + 10);
+
+        index.freeSlots(institution, farAhead, 1);
+        index.freeSlots(institution, farAhead, 1);
+
+        verify(appointmentRepository, times(2))
+                .findActiveBookedSlots(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void preloadLeavesInstitutionBookedMeanwhileToTheRegularLoad() {
+        when(appointmentRepository.findActiveBookedSlots(anyCollection(), any(), any())).thenAnswer(invocation -> {
+            // Booked while the multi-institution query runs: its result may already be stale
+            index.markBooked(1L, DAY.atTime(11, 0));
+            return List.of(institutionBooked(DAY.atTime(9, 0)));
+        });
+        when(appointmentRepository.findActiveBookedSlots(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(booked(DAY.atTime(9, 0)), booked(DAY.atTime(11, 0))));
+
+        index.preload(List.of(institution), DAY, 1);
+
+        assertThat(index.freeSlots(institution, DAY, 1).get(0)).isEqualTo(bits(1, 2, 3, 5));
+    }
+
+    @Test
+    void offGridBookingsDoNotOccupyASlot() {
+        when(appointmentRepository.findActiveBookedSlots(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(booked(DAY.atTime(9, 10)), booked(DAY.atTime(12, 0))));
+
+        assertThat(index.freeSlots(institution, DAY, 1).get(0)).isEqualTo(bits(0, 1, 2, 3, 4, 5));
+        assertThat(index.isFree(1L, DAY.atTime(9, 10))).isTrue();
+    }
+
+    @Test
+    void closedDaysHaveNoFreeSlots() {
+        institution.setType(Institution.InstitutionType.PRIMARIA);
+        LocalDate saturday = DAY.with(TemporalAdjusters.next(DayOfWeek.SATURDAY));
+
+        assertThat(index.freeSlots(institution, saturday, 1).get(0).isEmpty()).isTrue();
+    }
+
+    private static BitSet bits(int... slots) {
+        BitSet bits = new BitSet();
+        for (int slot : slots) {
+            bits.set(slot);
+        }
+        return bits;
+    }
+
+    private static BookedSlot booked(LocalDateTime time) {
+        return () -> time;
+    }
+
+    private static InstitutionBookedSlot institutionBooked(LocalDateTime time) {
+        return new InstitutionBookedSlot() {
+            public Long getInstitutionId() {
+                return 1L;
+            }
+
+            public LocalDateTime getAppointmentTime() {
+                return time;
+            }
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Institution;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.InstitutionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SlotReservationEngineTests {
+
+    private static final Long INSTITUTION_ID = 1L;
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 10;
+
+    @Mock
+    private InstitutionRepository institutionRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private SlotOccupancyIndex slotOccupancyIndex;
+    private SlotReservationEngine engine;
+    // Stands in for uk_appointments_active_slot
+    private final Set<String> activeSlots = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger writes = new AtomicInteger();
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        Institution institution = new Institution();
+        institution.setType(Institution.InstitutionType.SPCLEP);
+        institution.setOpeningTime(LocalTime.of(8, 0));
+        institution.setClosingTime(LocalTime.of(16, 0));
+        when(institutionRepository.findById(anyLong())).thenReturn(Optional.of(institution));
+
+        slotOccupancyIndex = new SlotOccupancyIndex(institutionRepository, appointmentRepository);
+        engine = new SlotReservationEngine(slotOccupancyIndex, new SlotHoldRegistry(slotOccupancyIndex, 120, 600), 1024);
+        day = LocalDate.now().plusDays(7);
+    }
+
+    @Test
+    void concurrentReservationsOfTheSameSlotHaveExactlyOneWinner() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDateTime slot = day.atTime(8, 0).plusMinutes(30L * round);
+                writes.set(0);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> attempts = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    attempts.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            engine.reserve(INSTITUTION_ID, slot, null, () -> insert(INSTITUTION_ID, slot));
+                            return true;
+                        } catch (SlotConflictException e) {
+                            return false;
+                        }
+                    }));
+                }
+                start.countDown();
+
+                int winners = 0;
+                for (Future<Boolean> attempt : attempts) {
+                    if (attempt.get(10, TimeUnit.SECONDS)) {
+                        winners++;
+                    }
+                }
+                assertThat(winners).isEqualTo(1);
+                // Losers are turned away by the index, none of them reaches the database
+                assertThat(writes.get()).isEqualTo(1);
+                assertThat(slotOccupancyIndex.isFree(INSTITUTION_ID, slot)).isFalse();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void attemptQueuedOnTheStripeIsRejectedOnceTheWriteCommits() throws Exception {
+        LocalDateTime slot = day.atTime(10, 0);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Appointment> first = executor.submit(() -> engine.reserve(INSTITUTION_ID, slot, null, () -> {
+                writing.countDown();
+                await(commit);
+                return insert(INSTITUTION_ID, slot);
+            }));
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // The slot is still free in the index, so the second attempt passes the early check and waits on the lock
+            AtomicInteger secondWrites = new AtomicInteger();
+            List<Throwable> secondOutcome = new ArrayList<>();
+            Thread second = new Thread(() -> {
+                try {
+                    engine.reserve(INSTITUTION_ID, slot, null, counting(secondWrites, () -> insert(INSTITUTION_ID, slot)));
+                } catch (Throwable e) {
+                    secondOutcome.add(e);
+                }
+            });
+            second.start();
+            waitUntilParked(second);
+
+            commit.countDown();
+            assertThat(first.get(10, TimeUnit.SECONDS)).isNotNull();
+            second.join(TimeUnit.SECONDS.toMillis(10));
+
+            assertThat(secondOutcome).hasSize(1);
+            assertThat(secondOutcome.get(0)).isInstanceOf(SlotConflictException.class);
+            assertThat(secondWrites.get()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void uniqueConstraintRejectsSlotBookedOutsideThisProcess() {
+        LocalDateTime slot = day.atTime(11, 0);
+        // Booked by another instance after this one loaded the day
+        assertThat(slotOccupancyIndex.isFree(INSTITUTION_ID, slot)).isTrue();
+        activeSlots.add(INSTITUTION_ID + "@" + slot);
+
+        assertThatThrownBy(() -> engine.reserve(INSTITUTION_ID, slot, null, () -> insert(INSTITUTION_ID, slot)))
+                .isInstanceOf(SlotConflictException.class);
+        assertThat(writes.get()).isEqualTo(1);
+
+        // The next slot is unaffected
+        LocalDateTime next = slot.plusMinutes(30);
+        assertThat(engine.reserve(INSTITUTION_ID, next, null, () -> insert(INSTITUTION_ID, next))).isNotNull();
+        assertThat(slotOccupancyIndex.isFree(INSTITUTION_ID, next)).isFalse();
+    }
+
+    private Appointment insert(Long institutionId, LocalDateTime time) {
+        writes.incrementAndGet();
+        if (!activeSlots.add(institutionId + "@" + time)) {
+            throw new DataIntegrityViolationException(
+                    "duplicate key value violates unique constraint \"uk_appointments_active_slot\"");
+        }
+        Appointment appointment = new Appointment();
+        appointment.setInstitutionId(institutionId);
+        appointment.setAppointmentTime(time);
+        return appointment;
+    }
+
+    private static Supplier<Appointment> counting(AtomicInteger counter, Supplier<Appointment> persist) {
+        return () -> {
+            counter.incrementAndGet();
+            return persist.get();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntilParked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
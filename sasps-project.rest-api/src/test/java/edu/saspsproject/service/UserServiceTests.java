@@ -0,0 +1,146 @@
+package edu.saspsproject.service;
+
+import edu.saspsproject.model.Appointment;
+import edu.saspsproject.model.Notification;
+import edu.saspsproject.model.User;
+import edu.saspsproject.repository.AppointmentRepository;
+import edu.saspsproject.repository.UserRepository;
+import edu.saspsproject.repository.projection.AppointmentChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTests {
+
+    private static final Long USER_ID = 7L;
+    private static final LocalDateTime MONDAY_NINE = LocalDateTime.of(2025, 3, 3, 9, 0);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Mock
+    private AppointmentStatsRegistry appointmentStatsRegistry;
+
+    @Mock
+    private DailyStatsRollupService dailyStatsRollupService;
+
+    private UserService userService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(userRepository, appointmentRepository, emailService, notificationService,
+                slotOccupancyIndex, appointmentStatsRegistry, dailyStatsRollupService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        user = new User();
+        user.setId(USER_ID);
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void bulkCancelFreesSlotsAndSendsOneNotification() {
+        AppointmentChange pending = change(1L, 10L, MONDAY_NINE, Appointment.Status.PENDING);
+        AppointmentChange confirmed = change(2L, 11L, MONDAY_NINE.plusDays(2), Appointment.Status.CONFIRMED);
+        when(appointmentRepository.cancelFutureAppointmentsOfUser(eq(USER_ID), any(), any()))
+                .thenReturn(List.of(confirmed, pending));
+
+        int cancelled = userService.cancelFutureAppointments(USER_ID, "institutia este inchisa");
+
+        assertThat(cancelled).isEqualTo(2);
+        verify(slotOccupancyIndex).markFree(10L, MONDAY_NINE);
+        verify(slotOccupancyIndex).markFree(11L, MONDAY_NINE.plusDays(2));
+        verify(appointmentStatsRegistry).statusChanged(10L, Appointment.Status.PENDING, Appointment.Status.CANCELLED);
+        verify(appointmentStatsRegistry).statusChanged(11L, Appointment.Status.CONFIRMED, Appointment.Status.CANCELLED);
+        // One notification listing both appointments in time order, with the reason
+        verify(notificationService).createNotifications(List.of(user),
+                "Programările din 03/03/2025 09:00, 05/03/2025 09:00 au fost anulate deoarece institutia este inchisa",
+                Notification.NotificationType.CANCELLATION);
+    }
+
+    @Test
+    void bulkCancelWithNothingToCancelChangesNothing() {
+        when(appointmentRepository.cancelFutureAppointmentsOfUser(eq(USER_ID), any(), any())).thenReturn(List.of());
+
+        assertThat(userService.cancelFutureAppointments(USER_ID, null)).isEqualTo(0);
+
+        verifyNoInteractions(notificationService, slotOccupancyIndex, appointmentStatsRegistry);
+    }
+
+    @Test
+    void deactivateUserCancelsFutureAppointments() {
+        AppointmentChange pending = change(1L, 10L, MONDAY_NINE, Appointment.Status.PENDING);
+        when(appointmentRepository.cancelFutureAppointmentsOfUser(eq(USER_ID), any(), any())).thenReturn(List.of(pending));
+
+        userService.deactivateUser(USER_ID);
+
+        assertThat(user.getActive()).isFalse();
+        verify(userRepository).save(user);
+        verify(slotOccupancyIndex).markFree(10L, MONDAY_NINE);
+        verify(notificationService).createNotifications(List.of(user),
+                "Programarea din 03/03/2025 09:00 a fost anulată deoarece contul a fost dezactivat",
+                Notification.NotificationType.CANCELLATION);
+    }
+
+    @Test
+    void deleteUserFreesActiveSlotsAndUpdatesStatistics() {
+        AppointmentChange confirmed = change(1L, 10L, MONDAY_NINE, Appointment.Status.CONFIRMED);
+        AppointmentChange cancelled = change(2L, 11L, MONDAY_NINE.plusDays(1), Appointment.Status.CANCELLED);
+        when(appointmentRepository.deleteAppointmentsOfUser(USER_ID)).thenReturn(List.of(confirmed, cancelled));
+
+        userService.deleteUser(USER_ID);
+
+        verify(userRepository).delete(user);
+        // A cancelled appointment no longer held its slot
+        verify(slotOccupancyIndex).markFree(10L, MONDAY_NINE);
+        verify(slotOccupancyIndex, never()).markFree(11L, MONDAY_NINE.plusDays(1));
+        verify(appointmentStatsRegistry).deleted(confirmed);
+        verify(appointmentStatsRegistry).deleted(cancelled);
+        verify(dailyStatsRollupService).markDirty(Set.of(MONDAY_NINE.toLocalDate(), MONDAY_NINE.plusDays(1).toLocalDate()));
+    }
+
+    @Test
+    void deleteUserWithoutAppointmentsOnlyRemovesTheUser() {
+        when(appointmentRepository.deleteAppointmentsOfUser(USER_ID)).thenReturn(List.of());
+
+        userService.deleteUser(USER_ID);
+
+        verify(userRepository).delete(user);
+        verify(slotOccupancyIndex, never()).markFree(any(), any());
+        verify(appointmentStatsRegistry, never()).deleted(any(AppointmentChange.class));
+    }
+
+    private static AppointmentChange change(Long id, Long institutionId, LocalDateTime time, Appointment.Status status) {
+        return new AppointmentChange(id, institutionId, USER_ID, time, Appointment.ServiceType.ELIBERARE_CI, status);
+    }
+}
@@ -1,6 +1,6 @@
 import { Component, OnInit, inject } from '@angular/core';
 import { CommonModule } from '@angular/common';
-import { HttpClient, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { TableModule } from 'primeng/table';
 import { CardModule } from 'primeng/card';
 import { TagModule } from 'primeng/tag';
@@ -36,6 +36,8 @@ export class AdminNotificationsComponent implements OnInit {
 
   notifications: Notification[] = [];
   loading = false;
+  // Cursor of the next page of /notifications/all, null once every page is loaded
+  nextCursor: string | null = null;
 
   statusOptions = [
     { label: 'All', value: null },
@@ -57,8 +59,21 @@ export class AdminNotificationsComponent implements OnInit {
     this.loadNotifications();
   }
 
-  // Load all notifications with optional status filter
+  // Load the first page of notifications with optional status filter
   loadNotifications() {
+    this.notifications = [];
+    this.nextCursor = null;
+    this.fetchNotifications();
+  }
+
+  // Append the next page, following the cursor returned in X-Next-Cursor
+  loadMore() {
+    if (this.nextCursor) {
+      this.fetchNotifications(this.nextCursor);
+    }
+  }
+
+  private fetchNotifications(cursor?: string) {
     this.loading = true;
 
     const user = LoginComponent.getCurrentUser();
@@ -69,10 +84,14 @@ export class AdminNotificationsComponent implements OnInit {
     const url = this.selectedStatus
       ? `http://localhost:8080/api/notifications/status/${this.selectedStatus}`
       : 'http://localhost:8080/api/notifications/all';
-
-    this.http.get<Notification[]>(url, { headers }).subscribe({
-      next: (data) => {
-        this.notifications = data;
+    const params = cursor ? new HttpParams().set('cursor', cursor) : undefined;
+
+    this.http.get<Notification[]>(url, { headers, params, observe: 'response' }).subscribe({
+      next: (response) => {
+        this.notifications = [...this.notifications, ...(response.body ?? [])];
+        // The status listing is not paged and sends no cursor
+        this.nextCursor =
+          response.headers.get('X-Has-More') === 'true' ? response.headers.get('X-Next-Cursor') : null;
         this.loading = false;
       },
       error: (error) => {
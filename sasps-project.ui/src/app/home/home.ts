@@ -16,6 +16,12 @@ interface Appointment {
   serviceType: string;
 }
 
+// Response of /appointment/stats, counted by the server over all appointments
+interface AppointmentStats {
+  totalAppointments: number;
+  appointmentsByStatus: Record<string, number>;
+}
+
 interface DashboardStats {
   totalAppointments: number;
   pendingAppointments: number;
@@ -60,14 +66,14 @@ export class Home implements OnInit {
     this.loading = true;
 
     if (this.isAdmin) {
-      // Admin Load all appointments for statistics
-      this.http.get<Appointment[]>(`${environment.apiUrl}/appointment/all`).subscribe({
-        next: (appointments) => {
-          this.calculateStats(appointments);
+      // Admin Load the statistics over all appointments, /appointment/all only returns one page
+      this.http.get<AppointmentStats>(`${environment.apiUrl}/appointment/stats`).subscribe({
+        next: (stats) => {
+          this.applyStats(stats);
           this.loading = false;
         },
         error: (error) => {
-          console.error('Error loading appointments:', error);
+          console.error('Error loading appointment statistics:', error);
           this.loading = false;
         },
       });
@@ -97,6 +103,14 @@ export class Home implements OnInit {
     this.stats.completedAppointments = appointments.filter((a) => a.status === 'COMPLETED').length;
   }
 
+  applyStats(stats: AppointmentStats): void {
+    const byStatus = stats.appointmentsByStatus ?? {};
+    this.stats.totalAppointments = stats.totalAppointments;
+    this.stats.pendingAppointments = byStatus['PENDING'] ?? 0;
+    this.stats.confirmedAppointments = byStatus['CONFIRMED'] ?? 0;
+    this.stats.completedAppointments = byStatus['COMPLETED'] ?? 0;
+  }
+
   getStatusClass(status: string): string {
     switch (status?.toUpperCase()) {
       case 'PENDING':